@@ -293,6 +293,10 @@ public class GamaPreferences {
 		public static final Pref<Boolean> CORE_MEMORY_ACTION = create("pref_memory_action",
 				"If true, when running out of memory, GAMA will try to close the experiment, otherwise it exits", true,
 				IType.BOOL, true).in(NAME, MEMORY);
+		public static final Pref<Boolean> CORE_ATTRIBUTE_SLOTS = create("pref_attribute_slots",
+				"Store the declared attributes of agents in compact slots rather than in maps", false, IType.BOOL, true)
+						.in(NAME, MEMORY)
+						.withComment(", if true, int, float and bool attributes are not boxed. Applies to new experiments");
 		/**
 		 * Errors & warnings
 		 */
@@ -485,12 +489,36 @@ public class GamaPreferences {
 		public static final Pref<Boolean> PATH_COMPUTATION_OPTIMIZATION = create("pref_optimize_path_computation",
 				"Optimize the path computation operators and goto action (but with possible 'jump' issues)", false,
 				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Integer> SHORTEST_PATH_CACHE_SIZE = create("pref_shortest_path_cache_size",
+				"Max. number of edges kept in the cache of shortest paths of each graph (0 for no limit)", 1000000,
+				IType.INT, true).between(0, null).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Integer> GRAPH_COMPACT_THRESHOLD = create("pref_graph_compact_threshold",
+				"Min. number of edges from which spatial graphs compute their shortest paths on a compact copy (0 to disable)",
+				10000, IType.INT, true).between(0, null).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Double> OSM_STREAMING_THRESHOLD = create("pref_osm_streaming_threshold",
+				"Min. size (in MB) from which OSM files are imported in streaming mode (0 to disable)", 100.0,
+				IType.FLOAT, true).between(0.0, null).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Boolean> OSM_CACHE = create("pref_osm_cache",
+				"Keep a binary cache, beside the file, of the OSM files imported in streaming mode", true, IType.BOOL,
+				true).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Boolean> GRID_LAZY_LOADING = create("pref_grid_lazy_loading",
+				"Read the values of grid files (.asc, .tif) on demand instead of loading them all in memory", true,
+				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Boolean> SAVE_ASYNCHRONOUS = create("pref_save_asynchronous",
+				"Write the files saved by the save statement (text, csv, shp, json) in the background", false,
+				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Boolean> BATCH_FITNESS_STORE = create("pref_batch_fitness_store",
+				"Keep on disk the fitness of the solutions evaluated by batch experiments with a fixed seed, and reuse it when they are run again (changes of the data files are not detected)",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
 		public static final Pref<Boolean> QUADTREE_OPTIMIZATION = create("pref_optimize_quadtree",
 				"Optimize spatial queries: add agents only when necessary in the quadtree (still experimental)", false,
 				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
 		public static final Pref<Boolean> QUADTREE_SYNCHRONIZATION = create("pref_synchronize_quadtree",
 				"Forces the spatial index to synchronize its operations. Useful for interactive models where the user may interfere.",
 				true, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+		public static final Pref<Integer> SPATIAL_HASH_RESOLUTION = create("pref_spatial_hash_resolution",
+				"Number of cells along the largest side of the environment in the grid spatial indexes (species declaring 'spatial_index: \"grid\"')",
+				100, IType.INT, true).between(1, 10000).in(NAME, OPTIMIZATIONS);
 		public static final Pref<Boolean> USE_POOLING =
 				create("pref_use_pooling", "Use object pooling to reduce memory usage (still experimental)", false,
 						IType.BOOL, true).in(NAME, OPTIMIZATIONS);
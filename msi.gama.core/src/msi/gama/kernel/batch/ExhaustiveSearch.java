@@ -10,6 +10,7 @@
  ********************************************************************************************************/
 package msi.gama.kernel.batch;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import msi.gama.common.interfaces.IKeyword;
@@ -43,6 +44,11 @@ import msi.gaml.types.IType;
 				optional = false,
 				internal = true,
 				doc = @doc ("The name of the method. For internal use only")),
+				@facet (
+						name = ParamSpaceExploAlgorithm.RACING,
+						type = IType.INT,
+						optional = true,
+						doc = @doc ("if positive, the solutions are raced: the repetitions of the simulations (see 'repeat') are run in rounds of this number, and the solutions whose fitness is statistically worse than the one of the best solution after a round are not run any further")),
 				@facet (
 						name = IKeyword.MAXIMIZE,
 						type = IType.FLOAT,
@@ -71,6 +77,11 @@ import msi.gaml.types.IType;
 						value = "For example: ",
 						examples = { @example (
 								value = "method exhaustive maximize: food_gathered;",
+								isExecutable = false) }),
+				@usage (
+						value = "With 30 repetitions per solution, run in rounds of 5 that stop the solutions clearly worse than the best one: ",
+						examples = { @example (
+								value = "method exhaustive maximize: food_gathered racing: 5;",
 								isExecutable = false) }) })
 public class ExhaustiveSearch extends ParamSpaceExploAlgorithm {
 
@@ -81,16 +92,19 @@ public class ExhaustiveSearch extends ParamSpaceExploAlgorithm {
 	@Override
 	public ParametersSet findBestSolution(final IScope scope) throws GamaRuntimeException {
 		setBestFitness(null);
-		testSolutions(scope, new ParametersSet(), 0);
+		// All the solutions are evaluated together
+		final List<ParametersSet> solutions = new ArrayList<>();
+		testSolutions(scope, new ParametersSet(), 0, solutions);
+		currentExperiment.launchSimulationsWithSolutions(solutions, racing);
 		return getBestSolution();
 	}
 
-	private void testSolutions(final IScope scope, final ParametersSet sol, final int index)
-			throws GamaRuntimeException {
+	private void testSolutions(final IScope scope, final ParametersSet sol, final int index,
+			final List<ParametersSet> solutions) throws GamaRuntimeException {
 		final List<IParameter.Batch> variables = currentExperiment.getParametersToExplore();
 		final ParametersSet solution = new ParametersSet(sol);
 		if (variables.isEmpty()) {
-			currentExperiment.launchSimulationsWithSolution(solution);
+			solutions.add(solution);
 			return;
 		}
 		final IParameter.Batch var = variables.get(index);
@@ -98,9 +112,9 @@ public class ExhaustiveSearch extends ParamSpaceExploAlgorithm {
 			for (final Object val : var.getAmongValue(scope)) {
 				solution.put(var.getName(), val);
 				if (solution.size() == variables.size()) {
-					currentExperiment.launchSimulationsWithSolution(solution);
+					solutions.add(new ParametersSet(solution));
 				} else {
-					testSolutions(scope, solution, index + 1);
+					testSolutions(scope, solution, index + 1, solutions);
 				}
 			}
 		} else {
@@ -114,9 +128,9 @@ public class ExhaustiveSearch extends ParamSpaceExploAlgorithm {
 					continue;
 				}
 				if (solution.size() == variables.size()) {
-					currentExperiment.launchSimulationsWithSolution(solution);
+					solutions.add(new ParametersSet(solution));
 				} else {
-					testSolutions(scope, solution, index + 1);
+					testSolutions(scope, solution, index + 1, solutions);
 				}
 				varValue = varValue + var.getStepValue(scope).doubleValue();
 			}
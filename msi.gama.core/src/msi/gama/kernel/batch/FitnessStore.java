@@ -0,0 +1,173 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.kernel.batch.FitnessStore.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and
+ * simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.common.util.FileUtils;
+import msi.gama.kernel.experiment.BatchAgent;
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.kernel.model.IModel;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.operators.Cast;
+
+/**
+ * The fitness of the solutions evaluated by a batch experiment, kept on disk so that they are not simulated again when
+ * the experiment is run again (after a crash, or with more generations). A store is identified by a hash of the source
+ * of the model (and of the models it imports), of the name of the experiment, of its fitness and of its seeds, and
+ * written in a file named after this hash in the cache folder of the workspace. As the fitness is only reproducible
+ * when the seeds are, there is no store for the experiments which do not fix their seed. The data files read by the
+ * model are not part of the hash: the store is thus only used when the preference "pref_batch_fitness_store" is
+ * enabled, and must be emptied (or disabled) when they change.
+ * <p>
+ * Each line of the file contains the values of the parameters of a solution and its fitness. The lines are only
+ * appended to the file (under a lock), and the lines appended by the other experiments using the same store, on the
+ * same machine, are read before each lookup.
+ */
+public class FitnessStore {
+
+	private static final String EXTENSION = ".fitness";
+
+	private final IScope scope;
+	private final File file;
+	private final Map<String, Double> fitnesses = new HashMap<>();
+	private long readPosition;
+
+	FitnessStore(final IScope scope, final File file) {
+		this.scope = scope;
+		this.file = file;
+	}
+
+	/**
+	 * Returns the store of the experiment, or null if it cannot have one (no fitness, seed not fixed or preference
+	 * disabled)
+	 */
+	public static FitnessStore of(final BatchAgent agent) {
+		if (!GamaPreferences.External.BATCH_FITNESS_STORE.getValue()) { return null; }
+		final IExploration exploration = agent.getSpecies().getExplorationAlgorithm();
+		final IExpression fitness = exploration.getFitnessExpression();
+		if (fitness == null || !agent.getSpecies().keepsSeed()) { return null; }
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			final IModel model = agent.getModel();
+			final List<String> paths = new ArrayList<>(model.getImportedPaths());
+			paths.remove(model.getFilePath());
+			paths.sort(null);
+			paths.add(0, model.getFilePath());
+			for (final String path : paths) {
+				final File source = new File(path);
+				if (source.isFile()) {
+					digest.update(Files.readAllBytes(source.toPath()));
+				}
+			}
+			final String context = agent.getSpecies().getName() + "\n" + fitness.serialize(false) + "\n"
+					+ exploration.getCombination() + "\n" + Arrays.toString(agent.getSeeds());
+			digest.update(context.getBytes(StandardCharsets.UTF_8));
+			final String name = String.format("%064x", new BigInteger(1, digest.digest()));
+			return new FitnessStore(agent.getScope(), new File(FileUtils.CACHE, name + EXTENSION));
+		} catch (final IOException | NoSuchAlgorithmException e) {
+			warn(agent.getScope(), "The fitness of the solutions cannot be stored", e);
+			return null;
+		}
+	}
+
+	/**
+	 * The key of the solution in the file: its parameters sorted by name, with their values (on a single line)
+	 */
+	static String keyOf(final ParametersSet solution) {
+		final StringBuilder sb = new StringBuilder();
+		for (final Map.Entry<String, Object> entry : new TreeMap<>(solution).entrySet()) {
+			sb.append(entry.getKey()).append('=').append(Cast.toGaml(entry.getValue())).append(';');
+		}
+		return sb.toString().replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	/**
+	 * Returns the fitness of the solution if it has already been evaluated, by this experiment or another one
+	 */
+	public synchronized Double get(final ParametersSet solution) {
+		refresh();
+		return fitnesses.get(keyOf(solution));
+	}
+
+	/**
+	 * Records the fitness of the solution
+	 */
+	public synchronized void put(final ParametersSet solution, final Double fitness) {
+		final String key = keyOf(solution);
+		fitnesses.put(key, fitness);
+		final byte[] line = (key + '\t' + fitness + '\n').getBytes(StandardCharsets.UTF_8);
+		try (FileOutputStream out = new FileOutputStream(file, true);
+				FileLock lock = out.getChannel().lock()) {
+			out.write(line);
+		} catch (final IOException e) {
+			warn(scope, "The fitness of a solution cannot be written to " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the lines appended to the file since the last time it was read. A line which is not complete yet (being
+	 * written by another experiment) is read the next time
+	 */
+	private void refresh() {
+		if (!file.exists() || file.length() <= readPosition) { return; }
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			final ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - readPosition));
+			channel.read(buffer, readPosition);
+			final byte[] bytes = buffer.array();
+			int start = 0;
+			for (int i = 0; i < bytes.length; i++) {
+				if (bytes[i] != '\n') {
+					continue;
+				}
+				final String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+				final int tab = line.lastIndexOf('\t');
+				if (tab > 0) {
+					try {
+						fitnesses.put(line.substring(0, tab), Double.valueOf(line.substring(tab + 1)));
+					} catch (final NumberFormatException e) {
+						// Ignores the malformed lines
+					}
+				}
+				start = i + 1;
+			}
+			readPosition += start;
+		} catch (final IOException e) {
+			warn(scope, "The fitness of the solutions cannot be read from " + file, e);
+		}
+	}
+
+	private static void warn(final IScope scope, final String message, final Exception e) {
+		GAMA.reportError(scope, GamaRuntimeException.warning(message + " (" + e.getMessage() + ")", scope), false);
+	}
+
+}
@@ -10,6 +10,8 @@
  ********************************************************************************************************/
 package msi.gama.kernel.batch;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -86,6 +88,11 @@ import msi.gaml.types.IType;
 						type = IType.BOOL,
 						optional = true,
 						doc = @doc ("if true, use a stochastic selection algorithm (roulette) rather a determistic one (keep the best solutions)")),
+				@facet (
+						name = ParamSpaceExploAlgorithm.RACING,
+						type = IType.INT,
+						optional = true,
+						doc = @doc ("if positive, the solutions are raced: the repetitions of the simulations (see 'repeat') are run in rounds of this number, and the solutions whose fitness is statistically worse than the one of the best solution after a round are not run any further")),
 				@facet (
 						name = IKeyword.MAXIMIZE,
 						type = IType.FLOAT,
@@ -233,9 +240,7 @@ public class GeneticAlgorithm extends ParamSpaceExploAlgorithm {
 	}
 
 	private void computePopFitness(final IScope scope, final List<Chromosome> population) throws GamaRuntimeException {
-		for (final Chromosome chromosome : population) {
-			computeChroFitness(scope, chromosome);
-		}
+		computeChrosFitness(scope, population);
 		if (this.improveSolution != null && improveSolution) {
 			for (final Chromosome chromosome : population) {
 				ParametersSet sol = chromosome.convertToSolution(scope, currentExperiment.getParametersToExplore());
@@ -257,6 +262,22 @@ public class GeneticAlgorithm extends ParamSpaceExploAlgorithm {
 		chromosome.setFitness(fitness);
 	}
 
+	/**
+	 * Computes the fitness of several chromosomes, whose solutions are evaluated together
+	 */
+	public void computeChrosFitness(final IScope scope, final Collection<Chromosome> chromosomes)
+			throws GamaRuntimeException {
+		final List<ParametersSet> solutions = new ArrayList<>();
+		for (final Chromosome chromosome : chromosomes) {
+			solutions.add(chromosome.convertToSolution(scope, currentExperiment.getParametersToExplore()));
+		}
+		evaluateSolutions(solutions);
+		int i = 0;
+		for (final Chromosome chromosome : chromosomes) {
+			chromosome.setFitness(testedSolutions.get(solutions.get(i++)));
+		}
+	}
+
 	@Override
 	public void addParametersTo(final List<IParameter.Batch> params, final BatchAgent agent) {
 		super.addParametersTo(params, agent);
@@ -314,18 +335,13 @@ public class GeneticAlgorithm extends ParamSpaceExploAlgorithm {
 				break;
 			}
 			ParametersSet bestNeighbor = null;
+			evaluateSolutions(neighbors);
 
 			for (final ParametersSet neighborSol : neighbors) {
 				if (neighborSol == null) {
 					continue;
 				}
-				final double neighborFitness;
-				if (!testedSolutions.containsKey(neighborSol)) {
-					neighborFitness = currentExperiment.launchSimulationsWithSolution(neighborSol);
-					testedSolutions.put(neighborSol, neighborFitness);
-				} else {
-					neighborFitness = testedSolutions.get(neighborSol);
-				}
+				final double neighborFitness = testedSolutions.get(neighborSol);
 
 				if (isMaximize() && neighborFitness > bestFitness || !isMaximize() && neighborFitness < bestFitness) {
 					bestNeighbor = neighborSol;
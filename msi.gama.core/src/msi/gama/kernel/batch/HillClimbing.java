@@ -112,16 +112,13 @@ public class HillClimbing extends LocalSearchAlgorithm {
 			}
 			setBestFitness(currentFitness);
 			ParametersSet bestNeighbor = null;
+			evaluateSolutions(neighbors);
 
 			for (final ParametersSet neighborSol : neighbors) {
 				if (neighborSol == null) {
 					continue;
 				}
-				Double neighborFitness = testedSolutions.get(neighborSol);
-				if (neighborFitness == null) {
-					neighborFitness = currentExperiment.launchSimulationsWithSolution(neighborSol);
-				}
-				testedSolutions.put(neighborSol, neighborFitness);
+				final Double neighborFitness = testedSolutions.get(neighborSol);
 
 				if (isMaximize() && neighborFitness.doubleValue() > getBestFitness()
 						|| !isMaximize() && neighborFitness.doubleValue() < getBestFitness()) {
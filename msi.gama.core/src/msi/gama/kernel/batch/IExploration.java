@@ -41,6 +41,8 @@ public interface IExploration extends ISymbol {// , Runnable {
 	public abstract ParametersSet getBestSolution();
 
 	public abstract short getCombination();
+
+	public abstract boolean isMaximize();
 	
 	public abstract void updateBestFitness(ParametersSet solution, Double fitness);
 		
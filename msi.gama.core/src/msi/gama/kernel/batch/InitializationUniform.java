@@ -35,9 +35,7 @@ public class InitializationUniform implements Initialization {
 				populationInit.add(new Chromosome(scope, variables, true));
 			}
 		}
-		for (final Chromosome chromosome : populationInit) {
-			algo.computeChroFitness(scope, chromosome);
-		}
+		algo.computeChrosFitness(scope, populationInit);
 		final List<Chromosome> populationInitOrd = new ArrayList<>(populationInit);
 		Collections.sort(populationInitOrd);
 		if (algo.isMaximize) {
@@ -10,9 +10,13 @@
  ********************************************************************************************************/
 package msi.gama.kernel.batch;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.experiment.BatchAgent;
@@ -31,6 +35,7 @@ import msi.gaml.compilation.ISymbol;
 import msi.gaml.compilation.Symbol;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.expressions.IExpression;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.IType;
 
 /**
@@ -58,12 +63,19 @@ public abstract class ParamSpaceExploAlgorithm extends Symbol implements IExplor
 	private ParametersSet bestSolution = null;
 	private Double bestFitness = null;
 	protected short combination;
+	// The number of repetitions per round when the solutions are raced (only for the methods declaring the facet)
+	protected static final String RACING = "racing";
+	protected int racing;
 
 	protected abstract ParametersSet findBestSolution(IScope scope) throws GamaRuntimeException;
 
 	@Override
 	public void initializeFor(final IScope scope, final BatchAgent agent) throws GamaRuntimeException {
 		currentExperiment = agent;
+		final IExpression race = getFacet(RACING);
+		if (race != null) {
+			racing = Cast.asInt(scope, race.value(scope));
+		}
 		// this.scope = scope;
 	}
 
@@ -78,6 +90,25 @@ public abstract class ParamSpaceExploAlgorithm extends Symbol implements IExplor
 		testedSolutions = new HashMap<ParametersSet, Double>();
 	}
 
+	/**
+	 * Evaluates together the solutions that have not been tested yet (see
+	 * BatchAgent.launchSimulationsWithSolutions()) and records their fitness in testedSolutions
+	 */
+	protected void evaluateSolutions(final Collection<ParametersSet> solutions) throws GamaRuntimeException {
+		final Set<ParametersSet> toTest = new LinkedHashSet<>();
+		for (final ParametersSet sol : solutions) {
+			if (sol != null && !testedSolutions.containsKey(sol)) {
+				toTest.add(sol);
+			}
+		}
+		if (toTest.isEmpty()) { return; }
+		final List<ParametersSet> list = new ArrayList<>(toTest);
+		final List<Double> fitnesses = currentExperiment.launchSimulationsWithSolutions(list, racing);
+		for (int i = 0; i < list.size(); i++) {
+			testedSolutions.put(list.get(i), fitnesses.get(i));
+		}
+	}
+
 	void initParams() {
 		GAMA.run(new InScope.Void() {
 
@@ -122,7 +153,8 @@ public abstract class ParamSpaceExploAlgorithm extends Symbol implements IExplor
 	@Override
 	public void setChildren(final Iterable<? extends ISymbol> commands) {}
 
-	protected boolean isMaximize() {
+	@Override
+	public boolean isMaximize() {
 		return isMaximize;
 	}
 
@@ -136,18 +136,27 @@ public class TabuSearch extends LocalSearchAlgorithm {
 			}
 			ParametersSet bestNeighbor = null;
 
+			// The neighbours not tested yet, within the limit of the number of iterations, are evaluated together
+			final List<ParametersSet> toTest = new ArrayList<>();
 			for (final ParametersSet neighborSol : neighbors) {
 				// scope.getGui().debug("TabuSearch.findBestSolution for parametersSet " + neighborSol);
-				if (neighborSol == null) {
+				if (neighborSol == null || toTest.contains(neighborSol)) {
 					continue;
 				}
-				Double neighborFitness = testedSolutions.get(neighborSol);
+				final Double neighborFitness = testedSolutions.get(neighborSol);
 				if (neighborFitness == null || neighborFitness == Double.MAX_VALUE) {
-					neighborFitness = currentExperiment.launchSimulationsWithSolution(neighborSol);
-					nbIt++;
-				} else {
-					continue;
+					toTest.add(neighborSol);
+					if (nbIt + toTest.size() > iterMax) {
+						break;
+					}
 				}
+			}
+			final List<Double> fitnesses = currentExperiment.launchSimulationsWithSolutions(toTest);
+			nbIt += toTest.size();
+
+			for (int i = 0; i < toTest.size(); i++) {
+				final ParametersSet neighborSol = toTest.get(i);
+				final Double neighborFitness = fitnesses.get(i);
 				testedSolutions.put(neighborSol, neighborFitness);
 
 				// scope.getGui().debug("TabuSearch.findBestSolution neighborFitness = " + neighborFitness +
@@ -158,10 +167,6 @@ public class TabuSearch extends LocalSearchAlgorithm {
 					bestNeighbor = neighborSol;
 					bestFitnessAlgo = neighborFitness;
 				}
-
-				if (nbIt > iterMax) {
-					break;
-				}
 			}
 			if (bestNeighbor != null) {
 				bestSolutionAlgo = bestNeighbor;
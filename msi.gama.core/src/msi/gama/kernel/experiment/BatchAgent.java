@@ -12,6 +12,7 @@ package msi.gama.kernel.experiment;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +20,7 @@ import org.jfree.data.statistics.Statistics;
 
 import msi.gama.common.interfaces.IGui;
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.kernel.batch.FitnessStore;
 import msi.gama.kernel.batch.IExploration;
 import msi.gama.kernel.experiment.IParameter.Batch;
 import msi.gama.kernel.simulation.SimulationAgent;
@@ -26,6 +28,7 @@ import msi.gama.kernel.simulation.SimulationPopulation;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.outputs.FileOutput;
+import msi.gama.outputs.IOutputManager;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.experiment;
 import msi.gama.runtime.GAMA;
@@ -55,7 +58,43 @@ public class BatchAgent extends ExperimentAgent {
 	ParametersSet lastSolution;
 	Double lastFitness;
 	private Double[] seeds;
-	final List<Double> fitnessValues = new ArrayList<>();
+	// The solution evaluated by each of the simulations launched by launchSimulationsWithSolutions()
+	final Map<IAgent, Run> runs = new HashMap<>();
+	// The fitness of the solutions evaluated by the previous runs of the experiment, if it fixes its seed
+	FitnessStore fitnessStore;
+
+	/**
+	 * A solution being evaluated, and the fitness values computed by its simulations
+	 */
+	static class Run {
+
+		final ParametersSet solution;
+		final List<Double> fitnessValues = new ArrayList<>();
+		// The number of simulations already created, the number to create and the number of those which are finished
+		int launched, until, stopped;
+		// The simulations which are finished but kept alive (facet keep_simulations) until the solution is finished
+		final List<SimulationAgent> kept = new ArrayList<>();
+		// Whether the solution has been discarded by a race
+		boolean discarded;
+		Double fitness;
+
+		Run(final ParametersSet solution) {
+			this.solution = solution;
+		}
+
+		double mean() {
+			return Statistics.calculateMean(fitnessValues);
+		}
+
+		/**
+		 * The square of the standard error of the mean of the fitness values
+		 */
+		double squaredStandardError() {
+			final int n = fitnessValues.size();
+			final double sd = Statistics.getStdDev(fitnessValues.toArray(new Number[n]));
+			return sd * sd / n;
+		}
+	}
 
 	public BatchAgent(final IPopulation p, final int index) throws GamaRuntimeException {
 		super(p, index);
@@ -139,13 +178,17 @@ public class BatchAgent extends ExperimentAgent {
 	public void memorizeFitnessAndCloseSimulation(final IAgent sim) {
 		final IExpression fitness = getSpecies().getExplorationAlgorithm().getFitnessExpression();
 		final FileOutput output = getSpecies().getLog();
+		final Run run = runs.remove(sim);
+		final ParametersSet solution = run == null ? currentSolution : run.solution;
 		double lastFitnessValue = 0;
 		if (fitness != null) {
 			lastFitnessValue = Cast.asFloat(sim.getScope(), fitness.value(sim.getScope()));
-			fitnessValues.add(lastFitnessValue);
+			if (run != null) {
+				run.fitnessValues.add(lastFitnessValue);
+			}
 		}
 		if (output != null) {
-			getSpecies().getLog().doRefreshWriteAndClose(currentSolution, lastFitnessValue);
+			getSpecies().getLog().doRefreshWriteAndClose(solution, lastFitnessValue);
 		}
 		sim.dispose();
 	}
@@ -160,7 +203,8 @@ public class BatchAgent extends ExperimentAgent {
 	@Override
 	public boolean step(final IScope scope) {
 		// We run the exloration algorithm. The future steps will be called by the exploration algorithm through the
-		// launchSimulationsWithSolution() method
+		// launchSimulationsWithSolution() method. The seeds are known at this stage
+		fitnessStore = FitnessStore.of(this);
 		getSpecies().getExplorationAlgorithm().run(scope);
 		// Once the algorithm has finished exploring the solutions, the agent is
 		// killed.
@@ -181,115 +225,329 @@ public class BatchAgent extends ExperimentAgent {
 	}
 
 	public Double launchSimulationsWithSolution(final ParametersSet sol) throws GamaRuntimeException {
-		// We first reset the currentSolution and the fitness values
-		final SimulationPopulation pop = getSimulationPopulation();
-		if (pop == null) { return 0d; }
-		currentSolution = new ParametersSet(sol);
-		fitnessValues.clear();
-		runNumber = runNumber + 1;
-		// The values present in the solution are passed to the parameters of
-		// the experiment
-		for (final Map.Entry<String, Object> entry : sol.entrySet()) {
-			final IParameter p = getSpecies().getExplorableParameters().get(entry.getKey());
-			if (p != null) {
-				p.setValue(getScope(), entry.getValue());
+		return launchSimulationsWithSolutions(Collections.singletonList(sol)).get(0);
+	}
+
+	/**
+	 * Evaluates several solutions at once: the simulations of all the solutions (one per seed) are run together,
+	 * within the limit of the number of concurrent simulations allowed, a new simulation being created each time one
+	 * of them is finished. The exploration algorithms can then evaluate a whole generation or neighbourhood without
+	 * leaving the processors idle between two solutions, or when there are fewer seeds than processors.
+	 *
+	 * @return the fitness of each solution, in the same order as the solutions
+	 */
+	public List<Double> launchSimulationsWithSolutions(final List<ParametersSet> sols) throws GamaRuntimeException {
+		return launchSimulationsWithSolutions(sols, 0);
+	}
+
+	/**
+	 * Evaluates several solutions at once, like launchSimulationsWithSolutions(List), possibly by racing them (see
+	 * race())
+	 *
+	 * @param racing
+	 *            the number of repetitions run for each solution in each round of the race, or 0 to run all the
+	 *            repetitions of all the solutions
+	 * @return the fitness of each solution, in the same order as the solutions
+	 */
+	public List<Double> launchSimulationsWithSolutions(final List<ParametersSet> sols, final int racing)
+			throws GamaRuntimeException {
+		final List<Double> result = new ArrayList<>();
+		if (fitnessStore == null) {
+			for (final Run run : runSimulations(sols, racing)) {
+				result.add(run.fitness);
 			}
+			return result;
 		}
+		// The solutions already evaluated, in this run or a previous one, are not simulated again
+		final List<ParametersSet> toRun = new ArrayList<>();
+		for (final ParametersSet sol : sols) {
+			final Double fitness = fitnessStore.get(sol);
+			result.add(fitness);
+			if (fitness == null) {
+				toRun.add(sol);
+			}
+		}
+		final List<Run> computed = runSimulations(toRun, racing);
+		int j = 0;
+		for (int i = 0; i < sols.size(); i++) {
+			final ParametersSet sol = sols.get(i);
+			if (result.get(i) == null) {
+				final Run run = computed.get(j++);
+				result.set(i, run.fitness);
+				// The fitness of the solutions discarded by a race is only computed on some of the seeds
+				if (!dead && !run.discarded && run.launched == getSeeds().length) {
+					fitnessStore.put(sol, run.fitness);
+				}
+			} else {
+				lastSolution = sol;
+				lastFitness = result.get(i);
+				// The solution is written to the log of the batch as if it had been simulated (with its combined
+				// fitness)
+				if (getSpecies().getLog() != null) {
+					getSpecies().getLog().doRefreshWriteAndClose(sol, lastFitness);
+				}
+				getSpecies().getExplorationAlgorithm().updateBestFitness(sol, lastFitness);
+			}
+		}
+		return result;
+	}
 
-		// We update the parameters (parameter to explore)
+	private List<Run> runSimulations(final List<ParametersSet> sols, final int racing) throws GamaRuntimeException {
+		final List<Run> result = new ArrayList<>();
+		for (final ParametersSet sol : sols) {
+			result.add(new Run(new ParametersSet(sol)));
+		}
+		if (result.isEmpty()) { return result; }
+		if (getSimulationPopulation() == null) {
+			for (final Run run : result) {
+				run.fitness = 0d;
+			}
+			return result;
+		}
+		final int nbSeeds = getSeeds().length;
+		if (racing > 0 && racing < nbSeeds) {
+			race(result, racing);
+		} else {
+			for (final Run run : result) {
+				run.until = nbSeeds;
+			}
+			simulate(result);
+		}
+
+		// If the agent is dead, we return immediately
+		if (dead) {
+			for (final Run run : result) {
+				run.fitness = 0d;
+			}
+			return result;
+		}
+
+		// We then return, for each solution, the combination (average, min or max) of the different
+		// fitness values computed by the
+		// different simulation.
+		final short fitnessCombination = getSpecies().getExplorationAlgorithm().getCombination();
+		for (final Run run : result) {
+			if (run.fitnessValues.isEmpty()) {
+				// No simulation could be created for the solution (or there is no fitness)
+				run.fitness = 0d;
+				if (run.launched == 0) {
+					GAMA.reportError(getScope(), GamaRuntimeException.warning(
+							"No simulation could be run for the solution " + run.solution, getScope()), false);
+				}
+				continue;
+			}
+			lastSolution = run.solution;
+			lastFitness = fitnessCombination == IExploration.C_MAX ? Collections.max(run.fitnessValues)
+					: fitnessCombination == IExploration.C_MIN ? Collections.min(run.fitnessValues)
+							: Statistics.calculateMean(run.fitnessValues);
+			run.fitness = lastFitness;
+			// we update the best solution found so far
+			getSpecies().getExplorationAlgorithm().updateBestFitness(lastSolution, lastFitness);
+		}
+
+		// At last, we update the parameters (last fitness and best fitness)
 		getScope().getGui().showParameterView(getScope(), getSpecies());
 
-		// We then create a number of simulations with the same solution
+		return result;
 
+	}
+
+	/**
+	 * Evaluates the solutions by racing (successive halving): the repetitions are run in rounds of roundSize seeds
+	 * per solution. After each round, the solutions whose mean fitness is statistically dominated by the one of the
+	 * best solution (i.e. worse by more than two standard errors of the difference of the means) are discarded. The
+	 * next round only runs the remaining solutions, which thus get all the simulation slots. The fitness of a
+	 * discarded solution is computed on the repetitions it has run.
+	 */
+	private void race(final List<Run> toRace, final int roundSize) {
+		final boolean maximize = getSpecies().getExplorationAlgorithm().isMaximize();
+		final int nbSeeds = getSeeds().length;
+		List<Run> remaining = new ArrayList<>(toRace);
+		while (!remaining.isEmpty() && !dead) {
+			for (final Run run : remaining) {
+				run.until = Math.min(nbSeeds, run.until + roundSize);
+			}
+			simulate(remaining);
+			if (dead) { return; }
+			// The best solution so far, according to the mean of its fitness values
+			Run best = null;
+			for (final Run run : remaining) {
+				if (!run.fitnessValues.isEmpty() && (best == null
+						|| (maximize ? run.mean() > best.mean() : run.mean() < best.mean()))) {
+					best = run;
+				}
+			}
+			final List<Run> next = new ArrayList<>();
+			for (final Run run : remaining) {
+				if (run.until == nbSeeds) {
+					continue;
+				}
+				if (best != null && run != best && run.fitnessValues.size() > 1 && best.fitnessValues.size() > 1) {
+					final double difference = maximize ? best.mean() - run.mean() : run.mean() - best.mean();
+					if (difference > 2 * Math.sqrt(best.squaredStandardError() + run.squaredStandardError())) {
+						run.discarded = true;
+						continue;
+					}
+				}
+				next.add(run);
+			}
+			remaining = next;
+		}
+	}
+
+	/**
+	 * Runs, for each of the solutions, the simulations of its next seeds (up to Run.until). The simulations of all the
+	 * solutions are run together, within the limit of the number of concurrent simulations allowed, a new simulation
+	 * being created each time one of them is finished. If the experiment has reflexes or outputs, which could see the
+	 * simulations of the other solutions when it steps for a finished solution, the solutions are run one after the
+	 * other instead (their simulations still being run together)
+	 */
+	private void simulate(final List<Run> toLaunch) {
+		final SimulationPopulation pop = getSimulationPopulation();
 		int numberOfCores = pop.getMaxNumberOfConcurrentSimulations();
 		if (numberOfCores == 0) {
 			numberOfCores = 1;
 		}
-		int repeatIndex = 0;
-		while (repeatIndex < getSeeds().length && !dead) {
-			for (int coreIndex = 0; coreIndex < numberOfCores; coreIndex++) {
-				setSeed(getSeeds()[repeatIndex]);
-				createSimulation(currentSolution, true);
-				repeatIndex++;
-				if (repeatIndex == getSeeds().length || dead) {
-					break;
+		final IOutputManager outputs = getSpecies().getExperimentOutputs();
+		final boolean oneSolutionAtATime = !getSpecies().getBehaviors().isEmpty()
+				|| outputs != null && !outputs.getOutputs().isEmpty();
+		final List<SimulationAgent> running = new ArrayList<>();
+		final List<Run> unfinished = new ArrayList<>(toLaunch);
+		int runIndex = 0, launched = 0, total = 0, i = 0;
+		for (final Run run : toLaunch) {
+			total += run.until - run.launched;
+		}
+		while ((launched < total || !running.isEmpty()) && !dead) {
+			// We fill the free places with the next simulations to run
+			while (running.size() < numberOfCores && launched < total && !dead) {
+				Run run = toLaunch.get(runIndex);
+				while (run.launched == run.until) {
+					run = toLaunch.get(++runIndex);
 				}
-			}
-			int i = 0;
-			while (pop.hasScheduledSimulations() && !dead) {
-				// We step all the simulations
-				pop.step(getScope());
-				// String cycles = "";
-				// We evaluate their stopCondition and unschedule the ones who
-				// return true
-				for (final IAgent sim : pop.toArray()) {
-					final SimulationAgent agent = (SimulationAgent) sim;
-					// cycles += " " + simulation.getClock().getCycle();
-					// test the condition first in case it is paused
-					final boolean stopConditionMet =
-							dead || Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue());
-					final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
-					if (mustStop) {
-						pop.unscheduleSimulation(agent);
-						if (!getSpecies().keepsSimulations()) {
-							memorizeFitnessAndCloseSimulation(agent);
-						}
-					}
+				if (oneSolutionAtATime && !running.isEmpty() && runs.get(running.get(0)) != run) {
+					break;
 				}
-				// We inform the status line
-				if (!dead) {
-					getScope().getGui().getStatus(getScope())
-							.setStatus(
-									"Run " + runNumber + " | " + repeatIndex + "/" + seeds.length
-											+ " simulations (using " + pop.getNumberOfActiveThreads() + " threads)",
-									"small.batch" + i / 5);
+				if (run.launched == 0) {
+					startRun(run);
 				}
-				if (++i == 20) {
-					i = 0;
+				setSeed(getSeeds()[run.launched]);
+				final SimulationAgent sim = createSimulation(run.solution, true);
+				if (sim == null) {
+					// No more simulations can be created
+					launched = total;
+					break;
 				}
-				// We then verify that the front scheduler has not been paused
-				while (getSpecies().getController().getScheduler().paused && !dead) {
-					try {
-						Thread.sleep(100);
-					} catch (final InterruptedException e) {
-						e.printStackTrace();
+				run.launched++;
+				runs.put(sim, run);
+				running.add(sim);
+				launched++;
+			}
+			if (running.isEmpty()) {
+				break;
+			}
+			// We step all the simulations
+			pop.step(getScope());
+			// We evaluate their stopCondition and unschedule the ones who return true
+			for (final SimulationAgent agent : new ArrayList<>(running)) {
+				// test the condition first in case it is paused
+				final boolean stopConditionMet = dead
+						|| Cast.asBool(agent.getScope(), agent.getScope().evaluate(stopCondition, agent).getValue());
+				final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
+				if (mustStop) {
+					running.remove(agent);
+					pop.unscheduleSimulation(agent);
+					final Run run = runs.get(agent);
+					run.stopped++;
+					if (getSpecies().keepsSimulations()) {
+						run.kept.add(agent);
+					} else {
+						memorizeFitnessAndCloseSimulation(agent);
+					}
+					if (run.launched == run.until && run.stopped == run.launched && !dead) {
+						finishRun(run);
+						unfinished.remove(run);
 					}
 				}
 			}
-
+			// We inform the status line
+			if (!dead) {
+				getScope().getGui().getStatus(getScope()).setStatus("Run " + runNumber + " | "
+						+ (launched - running.size()) + "/" + total + " simulations (using "
+						+ pop.getNumberOfActiveThreads() + " threads)", "small.batch" + i / 5);
+			}
+			if (++i == 20) {
+				i = 0;
+			}
+			// We then verify that the front scheduler has not been paused
+			while (getSpecies().getController().getScheduler().paused && !dead) {
+				try {
+					Thread.sleep(100);
+				} catch (final InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
 		}
 
-		// When the simulations are finished, we give a chance to the outputs of
-		// the experiment and the experiment
-		// agent itself to "step" once, effectively emulating what the front
-		// scheduler should do. The simulations are
-		// still "alive" at this stage (even if they are not scheduled anymore),
-		// which allows to retrieve information from them
-		super.step(getScope());
-
-		// If the agent is dead, we return immediately
-		if (dead) { return 0.0; }
+		// The solutions whose simulations could not all be created are finished with the simulations they have run
+		for (final Run run : unfinished) {
+			if (dead) { return; }
+			if (run.stopped > 0 && run.stopped == run.launched) {
+				finishRun(run);
+			}
+		}
+		if (dead) { return; }
 		// We reset the experiment agent to erase traces of the current
 		// simulations if any
 		this.reset();
+		runs.clear();
+	}
 
-		// We then return the combination (average, min or max) of the different
-		// fitness values computed by the
-		// different simulation.
-		final short fitnessCombination = getSpecies().getExplorationAlgorithm().getCombination();
-		lastSolution = currentSolution;
-		lastFitness = fitnessCombination == IExploration.C_MAX ? Collections.max(fitnessValues)
-				: fitnessCombination == IExploration.C_MIN ? Collections.min(fitnessValues)
-						: Statistics.calculateMean(fitnessValues);
+	/**
+	 * Called when all the simulations of a solution (or of a round of a race) are finished. We give a chance to the
+	 * outputs of the experiment and the experiment agent itself to "step" once, effectively emulating what the front
+	 * scheduler should do. The simulations of the solution kept are still "alive" at this stage (even if they are not
+	 * scheduled anymore), which allows to retrieve information from them, and are closed afterwards. The simulations of
+	 * the other solutions, which may still be running, are not stepped (see stepSubPopulations())
+	 */
+	private void finishRun(final Run run) {
+		currentSolution = run.solution;
+		super.step(getScope());
+		for (final SimulationAgent sim : run.kept) {
+			if (!sim.dead()) {
+				memorizeFitnessAndCloseSimulation(sim);
+			}
+		}
+		run.kept.clear();
+	}
 
-		// we update the best solution found so far
-		getSpecies().getExplorationAlgorithm().updateBestFitness(lastSolution, lastFitness);
+	/**
+	 * The simulations are only stepped by simulate(): the step of the experiment does not step them
+	 */
+	@Override
+	protected boolean stepSubPopulations(final IScope scope) {
+		final SimulationPopulation simulations = getSimulationPopulation();
+		for (final IPopulation<? extends IAgent> pop : getMicroPopulations()) {
+			if (pop != simulations && !scope.step(pop).passed()) { return false; }
+		}
+		return true;
+	}
 
-		// At last, we update the parameters (last fitness and best fitness)
+	/**
+	 * Called before the first simulation of a solution is created
+	 */
+	private void startRun(final Run run) {
+		currentSolution = run.solution;
+		runNumber = runNumber + 1;
+		// The values present in the solution are passed to the parameters of
+		// the experiment
+		for (final Map.Entry<String, Object> entry : run.solution.entrySet()) {
+			final IParameter p = getSpecies().getExplorableParameters().get(entry.getKey());
+			if (p != null) {
+				p.setValue(getScope(), entry.getValue());
+			}
+		}
+		// We update the parameters (parameter to explore)
 		getScope().getGui().showParameterView(getScope(), getSpecies());
-
-		return lastFitness;
-
 	}
 
 	public List<IParameter.Batch> getParametersToExplore() {
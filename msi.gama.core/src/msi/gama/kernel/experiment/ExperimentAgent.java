@@ -54,6 +54,7 @@ import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.IMap;
+import msi.gama.util.file.OutputChannel;
 import msi.gaml.species.ISpecies;
 import msi.gaml.statements.IExecutable;
 import msi.gaml.types.GamaGeometryType;
@@ -250,6 +251,8 @@ public class ExperimentAgent extends GamlAgent implements IExperimentAgent {
 	public void dispose() {
 		if (dead) { return; }
 		closeSimulations();
+		// Writes what remains of the files saved by the simulations
+		OutputChannel.closeAll(ownScope);
 		GAMA.releaseScope(ownScope);
 		super.dispose();
 	}
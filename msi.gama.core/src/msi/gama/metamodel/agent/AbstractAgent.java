@@ -199,7 +199,11 @@ public abstract class AbstractAgent implements IAgent {
 	@Override
 	public void setExtraAttributes(final Map<String, Object> map) {
 		if (map == null) { return; }
-		getOrCreateAttributes().putAll(map);
+		if (getAttributeSlots() == null) {
+			getOrCreateAttributes().putAll(map);
+		} else {
+			map.forEach(this::setAttribute);
+		}
 	}
 	//
 	// @Override
@@ -207,6 +211,10 @@ public abstract class AbstractAgent implements IAgent {
 	// return (GamaMap<String, Object>) getGeometry().getAttributes();
 	// }
 
+	/**
+	 * Returns the map of the attributes held by the geometry. When the agent stores its declared attributes in slots
+	 * (see {@link #getAttributeSlots()}), this map only contains the extra attributes.
+	 */
 	@Override
 	public IMap<String, Object> getOrCreateAttributes() {
 		return getGeometry().getOrCreateAttributes();
@@ -214,21 +222,41 @@ public abstract class AbstractAgent implements IAgent {
 
 	@Override
 	public boolean hasAttribute(final String key) {
+		final AttributeSlots slots = getAttributeSlots();
+		if (slots != null) {
+			final int slot = slots.layout.slotOf(key);
+			if (slot >= 0) { return slots.isAssigned(slot); }
+		}
 		return getGeometry().hasAttribute(key);
 	}
 
 	@Override
 	public void forEachAttribute(final BiConsumerWithPruning<String, Object> visitor) {
+		final AttributeSlots slots = getAttributeSlots();
+		if (slots != null && !slots.forEach(visitor)) { return; }
 		getGeometry().forEachAttribute(visitor);
 	}
 
 	@Override
 	public Object getAttribute(final String key) {
+		final AttributeSlots slots = getAttributeSlots();
+		if (slots != null) {
+			final int slot = slots.layout.slotOf(key);
+			if (slot >= 0) { return slots.get(slot); }
+		}
 		return getGeometry().getAttribute(key);
 	}
 
 	@Override
 	public void setAttribute(final String name, final Object val) {
+		final AttributeSlots slots = getAttributeSlots();
+		if (slots != null) {
+			final int slot = slots.layout.slotOf(name);
+			if (slot >= 0) {
+				slots.set(slot, val);
+				return;
+			}
+		}
 		getOrCreateAttributes().put(name, val);
 	}
 
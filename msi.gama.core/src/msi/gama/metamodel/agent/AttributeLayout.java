@@ -0,0 +1,136 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.agent.AttributeLayout.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.agent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gaml.descriptions.SpeciesDescription;
+import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.species.ISpecies;
+import msi.gaml.types.IType;
+
+/**
+ * The compiled layout of the attributes of a species. Each attribute declared in the species (and not backed by a
+ * getter/setter or computed by a function) is given a fixed slot, numbered in the order of declaration. Slots of int,
+ * float and bool attributes are stored in primitive arrays in the {@link AttributeSlots} of each agent; the others in
+ * an array of objects. Attributes that do not belong to the layout (i.e. dynamic or "extra" attributes) remain stored
+ * in the map of the geometry of the agent.
+ */
+public class AttributeLayout {
+
+	public static final byte INT = 0, FLOAT = 1, BOOL = 2, OBJECT = 3;
+
+	private final Map<String, Integer> slots = new HashMap<>();
+	final String[] names;
+	final byte[] kinds;
+	final int[] indices;
+	final int nbInts, nbFloats, nbBools, nbObjects;
+
+	/**
+	 * Returns new slots for an agent of this population, or null if the population has no layout or if the storage of
+	 * attributes in slots is disabled in the preferences
+	 */
+	public static AttributeSlots slotsFor(final IPopulation<? extends IAgent> population) {
+		if (population == null || !GamaPreferences.Runtime.CORE_ATTRIBUTE_SLOTS.getValue()) { return null; }
+		final ISpecies species = population.getSpecies();
+		if (species == null) { return null; }
+		final AttributeLayout layout = species.getAttributeLayout();
+		return layout == null ? null : new AttributeSlots(layout);
+	}
+
+	public AttributeLayout(final SpeciesDescription species) {
+		final List<String> n = new ArrayList<>();
+		final List<Byte> k = new ArrayList<>();
+		final List<Integer> i = new ArrayList<>();
+		int ints = 0, floats = 0, bools = 0, objects = 0;
+		for (final VariableDescription var : species.getAttributes()) {
+			if (!isSlotted(var)) {
+				continue;
+			}
+			final byte kind = kindOf(var.getGamlType());
+			slots.put(var.getName(), n.size());
+			n.add(var.getName());
+			k.add(kind);
+			switch (kind) {
+				case INT:
+					i.add(ints++);
+					break;
+				case FLOAT:
+					i.add(floats++);
+					break;
+				case BOOL:
+					i.add(bools++);
+					break;
+				default:
+					i.add(objects++);
+			}
+		}
+		names = n.toArray(new String[n.size()]);
+		kinds = new byte[names.length];
+		indices = new int[names.length];
+		for (int j = 0; j < names.length; j++) {
+			kinds[j] = k.get(j);
+			indices[j] = i.get(j);
+		}
+		nbInts = ints;
+		nbFloats = floats;
+		nbBools = bools;
+		nbObjects = objects;
+	}
+
+	/**
+	 * Built-in attributes (name, location, shape, etc.) are managed by Java getters and setters and functions are never
+	 * stored, so they do not need a slot
+	 */
+	private static boolean isSlotted(final VariableDescription var) {
+		return var.getGetter() == null && var.getSetter() == null && !var.hasFacet(IKeyword.FUNCTION);
+	}
+
+	private static byte kindOf(final IType<?> type) {
+		switch (type.id()) {
+			case IType.INT:
+				return INT;
+			case IType.FLOAT:
+				return FLOAT;
+			case IType.BOOL:
+				return BOOL;
+			default:
+				return OBJECT;
+		}
+	}
+
+	/**
+	 * Returns the slot of the attribute or -1 if it is not part of this layout
+	 */
+	public int slotOf(final String name) {
+		final Integer slot = slots.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public String nameOf(final int slot) {
+		return names[slot];
+	}
+
+	public byte kindOf(final int slot) {
+		return kinds[slot];
+	}
+
+}
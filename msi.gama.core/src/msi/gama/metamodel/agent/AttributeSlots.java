@@ -0,0 +1,112 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.agent.AttributeSlots.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.agent;
+
+import static msi.gama.metamodel.agent.AttributeLayout.BOOL;
+import static msi.gama.metamodel.agent.AttributeLayout.FLOAT;
+import static msi.gama.metamodel.agent.AttributeLayout.INT;
+import static msi.gama.metamodel.agent.AttributeLayout.OBJECT;
+
+import msi.gama.common.interfaces.BiConsumerWithPruning;
+
+/**
+ * The values of the attributes of an agent, stored in the slots described by the {@link AttributeLayout} of its
+ * species. Values of int, float and bool attributes are kept unboxed, nil being recorded apart so that it is not read
+ * back as 0 or false. A slot is considered as absent (i.e. the attribute has not yet been initialized) until a value is
+ * first written in it.
+ */
+public class AttributeSlots {
+
+	public final AttributeLayout layout;
+	private final int[] ints;
+	private final double[] floats;
+	private final boolean[] bools;
+	private final Object[] objects;
+	private final long[] assigned;
+	// The int, float and bool slots whose value is nil
+	private final long[] nils;
+
+	AttributeSlots(final AttributeLayout layout) {
+		this.layout = layout;
+		ints = new int[layout.nbInts];
+		floats = new double[layout.nbFloats];
+		bools = new boolean[layout.nbBools];
+		objects = new Object[layout.nbObjects];
+		assigned = new long[(layout.size() + 63) >> 6];
+		nils = new long[assigned.length];
+	}
+
+	public boolean isAssigned(final int slot) {
+		return (assigned[slot >> 6] & 1L << slot) != 0;
+	}
+
+	public Object get(final int slot) {
+		if (!isAssigned(slot) || (nils[slot >> 6] & 1L << slot) != 0) { return null; }
+		final int index = layout.indices[slot];
+		switch (layout.kinds[slot]) {
+			case INT:
+				return ints[index];
+			case FLOAT:
+				return floats[index];
+			case BOOL:
+				return bools[index];
+			default:
+				return objects[index];
+		}
+	}
+
+	public void set(final int slot, final Object value) {
+		final int index = layout.indices[slot];
+		if (value == null && layout.kinds[slot] != OBJECT) {
+			nils[slot >> 6] |= 1L << slot;
+		} else {
+			nils[slot >> 6] &= ~(1L << slot);
+		}
+		switch (layout.kinds[slot]) {
+			case INT:
+				ints[index] = value instanceof Number ? ((Number) value).intValue() : 0;
+				break;
+			case FLOAT:
+				floats[index] = value instanceof Number ? ((Number) value).doubleValue() : 0d;
+				break;
+			case BOOL:
+				bools[index] = value instanceof Boolean ? (Boolean) value : false;
+				break;
+			default:
+				objects[index] = value;
+		}
+		assigned[slot >> 6] |= 1L << slot;
+	}
+
+	/**
+	 * Makes the slot absent again, as if the attribute had never been initialized
+	 */
+	public void unset(final int slot) {
+		final int index = layout.indices[slot];
+		if (layout.kinds[slot] != INT && layout.kinds[slot] != FLOAT && layout.kinds[slot] != BOOL) {
+			objects[index] = null;
+		}
+		assigned[slot >> 6] &= ~(1L << slot);
+		nils[slot >> 6] &= ~(1L << slot);
+	}
+
+	/**
+	 * Visits the assigned slots, in the order of declaration of the attributes. Returns false if the visitor has
+	 * pruned the visit
+	 */
+	public boolean forEach(final BiConsumerWithPruning<String, Object> visitor) {
+		for (int slot = 0; slot < layout.size(); slot++) {
+			if (isAssigned(slot) && !visitor.process(layout.names[slot], get(slot))) { return false; }
+		}
+		return true;
+	}
+
+}
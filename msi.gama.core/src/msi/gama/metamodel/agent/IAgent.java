@@ -139,6 +139,14 @@ public interface IAgent extends /* ISkill, */ IShape, INamed, Comparable<IAgent>
 	 */
 	public abstract void setExtraAttributes(final Map<String, Object> map);
 
+	/**
+	 * Returns the slots in which the agent stores the attributes declared in its species, or null if it stores all
+	 * its attributes in the map of its geometry
+	 */
+	default AttributeSlots getAttributeSlots() {
+		return null;
+	}
+
 	public abstract int getIndex();
 
 	public String getSpeciesName();
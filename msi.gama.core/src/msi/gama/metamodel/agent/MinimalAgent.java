@@ -49,6 +49,7 @@ public class MinimalAgent extends AbstractAgent {
 	protected final IPopulation<? extends IAgent> population;
 	protected String name;
 	protected final IShape geometry;
+	protected final AttributeSlots slots;
 	private final int hashCode;
 
 	/**
@@ -64,9 +65,15 @@ public class MinimalAgent extends AbstractAgent {
 		this.population = population;
 		this.hashCode = Objects.hash(getPopulation(), index);
 		this.geometry = geometry;
+		this.slots = AttributeLayout.slotsFor(population);
 		geometry.setAgent(this);
 	}
 
+	@Override
+	public AttributeSlots getAttributeSlots() {
+		return slots;
+	}
+
 	@Override
 	public void setGeometricalType(final Type t) {
 		geometry.setGeometricalType(t);
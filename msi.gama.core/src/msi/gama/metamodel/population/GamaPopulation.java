@@ -213,7 +213,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	}
 
 	protected boolean stepAgents(final IScope scope) {
-		return GamaExecutorService.step(scope, this, getSpecies());
+		return GamaExecutorService.step(scope, this);
 	}
 
 	// @Override
@@ -13,8 +13,10 @@ package msi.gama.metamodel.topology;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.common.collect.Ordering;
 import com.vividsolutions.jts.geom.Envelope;
@@ -82,23 +84,29 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 
 	private Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final IAgentFilter filter,
 			final ISpatialIndex index, final int number, final Collection<IAgent> alreadyChosen) {
-		try (final ICollector<IAgent> closestEnt = Collector.getList()) {
-			closestEnt.addAll(alreadyChosen);
-			for (final double step : steps) {
-				final Collection<IAgent> firsts =
-						index.firstAtDistance(scope, source, step, filter, number - closestEnt.size(), closestEnt);
-				if (firsts.isEmpty()) {
-					continue;
+		final Collection<IAgent> nearest = index.nearest(scope, source, filter, number, alreadyChosen);
+		if (nearest != null) { return nearest; }
+		// The agents found at a step are excluded from the next ones, like the agents already chosen, and only the new
+		// ones are returned
+		final Set<IAgent> excluded = new HashSet<>(alreadyChosen);
+		final List<IAgent> closest = new ArrayList<>();
+		for (final double step : steps) {
+			final Collection<IAgent> firsts =
+					index.firstAtDistance(scope, source, step, filter, number - closest.size(), excluded);
+			for (final IAgent a : firsts) {
+				if (excluded.add(a)) {
+					closest.add(a);
 				}
-				closestEnt.addAll(firsts);
-				if (closestEnt.size() == number) { return closestEnt.items(); }
 			}
-			return closestEnt.items();
+			if (closest.size() >= number) { return closest; }
 		}
+		return closest;
 	}
 
 	private IAgent firstAtDistance(final IScope scope, final IShape source, final IAgentFilter filter,
 			final ISpatialIndex index) {
+		final Collection<IAgent> nearest = index.nearest(scope, source, filter, 1, Collections.EMPTY_LIST);
+		if (nearest != null) { return nearest.isEmpty() ? null : nearest.iterator().next(); }
 		for (final double step : steps) {
 			final IAgent first = index.firstAtDistance(scope, source, step, filter);
 			if (first != null) { return first; }
@@ -109,14 +117,15 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	private Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final IAgentFilter filter,
 			final int number, final Collection<IAgent> alreadyChosen) {
 		if (disposed) { return null; }
-		final List<IAgent> shapes = new ArrayList<>(alreadyChosen);
-		for (final double step : steps) {
-			for (final ISpatialIndex si : getAllSpatialIndexes()) {
-				final Collection<IAgent> firsts = si.firstAtDistance(scope, source, step, filter, number, shapes);
-				shapes.addAll(firsts);
-			}
-			if (shapes.size() >= number) {
-				break;
+		final Set<IAgent> excluded = new HashSet<>(alreadyChosen);
+		final List<IAgent> shapes = new ArrayList<>();
+		// Each index returns its own closest agents, either directly or by increasing distances. The agents already
+		// chosen are filtered out before the results are truncated
+		for (final ISpatialIndex si : getAllSpatialIndexes()) {
+			for (final IAgent a : firstAtDistance(scope, source, filter, si, number, alreadyChosen)) {
+				if (excluded.add(a)) {
+					shapes.add(a);
+				}
 			}
 		}
 
@@ -129,15 +138,10 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	private IAgent firstAtDistance(final IScope scope, final IShape source, final IAgentFilter filter) {
 		if (disposed) { return null; }
 		try (final Collector.AsList<IAgent> shapes = Collector.getList()) {
-			for (final double step : steps) {
-				for (final ISpatialIndex si : getAllSpatialIndexes()) {
-					final IAgent first = si.firstAtDistance(scope, source, step, filter);
-					if (first != null) {
-						shapes.add(first);
-					}
-				}
-				if (!shapes.isEmpty()) {
-					break;
+			for (final ISpatialIndex si : getAllSpatialIndexes()) {
+				final IAgent first = firstAtDistance(scope, source, filter, si);
+				if (first != null) {
+					shapes.add(first);
 				}
 			}
 			if (shapes.items().size() == 1) { return shapes.items().get(0); }
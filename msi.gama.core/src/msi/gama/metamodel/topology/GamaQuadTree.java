@@ -11,14 +11,19 @@
 
 package msi.gama.metamodel.topology;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import com.google.common.collect.Ordering;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
 
 import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.util.RandomUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
@@ -27,8 +32,10 @@ import msi.gama.util.Collector;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.ICollector;
+import msi.gama.util.IList;
 import msi.gama.util.IMap;
 import msi.gaml.operators.Maths;
+import msi.gaml.types.Types;
 
 /**
  * A QuadTree allows to quickly find an object on a two-dimensional space.
@@ -37,6 +44,10 @@ import msi.gaml.operators.Maths;
  * the rectangle of its parent node into four smaller rectangles covering the upper left, upper right, lower left and
  * lower right quadrant of the parent rectangle.
  *
+ * When the tree is declared as parallel, each node is protected by its own lock, only held while its own objects
+ * (or its children) are modified: agents can then be added, moved and removed concurrently (for instance by agents
+ * of species scheduled in parallel) without any global contention, and queries can run at the same time.
+ *
  * @author Werner Randelshofer, adapted by Alexis Drogoul for GAMA
  * @version $Id: QuadTree.java 717 2010-11-21 12:30:57Z rawcoder $
  */
@@ -141,8 +152,11 @@ public class GamaQuadTree implements ISpatialIndex {
 		final Envelope3D env = Envelope3D.of(source.getEnvelope());
 		env.expandBy(exp);
 		try {
-			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
-			in_square.removeAll(alreadyChosen);
+			final Collection<IAgent> in_square = new ArrayList<>(findIntersects(scope, source, env, f));
+			if (!alreadyChosen.isEmpty()) {
+				final Set<IAgent> chosen = new HashSet<>(alreadyChosen);
+				in_square.removeIf(chosen::contains);
+			}
 			if (in_square.isEmpty()) { return GamaListFactory.create(); }
 
 			if (in_square.size() <= number) { return in_square; }
@@ -182,6 +196,74 @@ public class GamaQuadTree implements ISpatialIndex {
 		return findIntersects(scope, source, envelope, f);
 	}
 
+	/**
+	 * Best-first traversal of the tree: nodes and agents are visited in the order of their distance to the source (the
+	 * distance to their bounds for the nodes, which is a lower bound of the distance of the agents they contain), so
+	 * that the search stops as soon as 'number' agents have been found. Ties between agents are broken using the GAMA
+	 * random procedures (see Issue 722)
+	 */
+	@Override
+	public Collection<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		final IList<IAgent> result = GamaListFactory.create(Types.AGENT);
+		if (number <= 0) { return result; }
+		final Envelope3D env = source.getEnvelope();
+		final RandomUtils random = scope.getRandom();
+		final PriorityQueue<Candidate> queue = new PriorityQueue<>();
+		final Set<IAgent> visited = new HashSet<>(alreadyChosen);
+		queue.add(new Candidate(root, null, root.bounds.distance(env), 0d));
+		while (!queue.isEmpty()) {
+			final Candidate c = queue.poll();
+			if (c.agent != null) {
+				result.add(c.agent);
+				if (result.size() == number) {
+					break;
+				}
+				continue;
+			}
+			final IMap<IAgent, Envelope3D> map = c.node.objects;
+			if (map != null) {
+				for (final IAgent a : map.keySet()) {
+					if (a == null || a.dead() || !visited.add(a) || !f.accept(scope, source, a)) {
+						continue;
+					}
+					queue.add(new Candidate(null, a, source.euclidianDistanceTo(a), random.next()));
+				}
+			}
+			final QuadNode[] children = c.node.nodes;
+			if (children != null) {
+				for (final QuadNode node : children) {
+					queue.add(new Candidate(node, null, node.bounds.distance(env), 0d));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static class Candidate implements Comparable<Candidate> {
+
+		final QuadNode node;
+		final IAgent agent;
+		final double distance, tie;
+
+		Candidate(final QuadNode node, final IAgent agent, final double distance, final double tie) {
+			this.node = node;
+			this.agent = agent;
+			this.distance = distance;
+			this.tie = tie;
+		}
+
+		@Override
+		public int compareTo(final Candidate o) {
+			final int result = Double.compare(distance, o.distance);
+			if (result != 0) { return result; }
+			// Nodes first, as they may contain agents at the same distance
+			if (node != null) { return o.node != null ? 0 : -1; }
+			if (o.node != null) { return 1; }
+			return Double.compare(tie, o.tie);
+		}
+	}
+
 	@Override
 	public Collection<IAgent> allAgents() {
 		try (final ICollector<IAgent> result = Collector.getOrderedSet()) {
@@ -197,7 +279,7 @@ public class GamaQuadTree implements ISpatialIndex {
 		private volatile QuadNode[] nodes = null;
 		// ** Addresses part of Issue 722 -- Need to keep the agents ordered
 		// (by insertion order) **
-		private IMap<IAgent, Envelope3D> objects;
+		private volatile IMap<IAgent, Envelope3D> objects;
 		private final boolean canSplit;
 
 		public QuadNode(final Envelope bounds) {
@@ -246,25 +328,41 @@ public class GamaQuadTree implements ISpatialIndex {
 		}
 
 		public void remove(final Coordinate p, final IShape a) {
-			if (nodes == null) {
-				if (objects != null) {
-					final Envelope3D env = objects.remove(a);
-					if (env != null) {
-						env.dispose();
+			final QuadNode[] children = nodes;
+			if (children == null) {
+				if (parallel) {
+					synchronized (this) {
+						if (nodes == null) {
+							removeLocally(a, true);
+							return;
+						}
 					}
+					// The node has been split in the meantime
+					remove(p, a);
+				} else {
+					removeLocally(a, true);
 				}
 			} else {
-				nodes[quadrant(p)].remove(p, a);
+				children[quadrant(p)].remove(p, a);
 			}
 		}
 
 		public void remove(final Envelope env, final IShape a) {
-			if (nodes == null) {
-				if (objects != null) {
-					objects.remove(a);
+			final QuadNode[] children = nodes;
+			if (children == null) {
+				if (parallel) {
+					synchronized (this) {
+						if (nodes == null) {
+							removeLocally(a, false);
+							return;
+						}
+					}
+					remove(env, a);
+				} else {
+					removeLocally(a, false);
 				}
 			} else {
-				for (final QuadNode node : nodes) {
+				for (final QuadNode node : children) {
 					if (node.bounds.intersects(env)) {
 						node.remove(env, a);
 					}
@@ -272,72 +370,114 @@ public class GamaQuadTree implements ISpatialIndex {
 			}
 		}
 
+		private void removeLocally(final IShape a, final boolean dispose) {
+			final IMap<IAgent, Envelope3D> map = objects;
+			if (map != null) {
+				final Envelope3D env = map.remove(a);
+				// Envelopes of non-point agents are shared between the nodes they intersect
+				if (dispose && env != null) {
+					env.dispose();
+				}
+			}
+		}
+
 		public boolean shouldSplit() {
 			return canSplit && nodes == null && objects != null && objects.size() >= maxCapacity;
 		}
 
 		public void add(final Coordinate p, final IAgent a) {
-			if (shouldSplit()) {
-				split();
-			}
 			if (nodes == null) {
-				getOrCreateObjects().put(a, Envelope3D.of(p));
-			} else {
-				nodes[quadrant(p)].add(p, a);
+				if (parallel) {
+					synchronized (this) {
+						if (addLocally(a, p, null)) { return; }
+					}
+				} else if (addLocally(a, p, null)) { return; }
 			}
+			nodes[quadrant(p)].add(p, a);
 		}
 
 		public void add(final Envelope3D env, final IAgent a) {
-			if (shouldSplit()) {
-				split();
-			}
 			if (nodes == null) {
-				getOrCreateObjects().put(a, env);
-			} else {
-				for (final QuadNode node : nodes) {
-					if (node.bounds.intersects(env)) {
-						node.add(env, a);
+				if (parallel) {
+					synchronized (this) {
+						if (addLocally(a, null, env)) { return; }
 					}
+				} else if (addLocally(a, null, env)) { return; }
+			}
+			for (final QuadNode node : nodes) {
+				if (node.bounds.intersects(env)) {
+					node.add(env, a);
 				}
 			}
 		}
 
+		/**
+		 * Adds the agent to the objects of this node, splitting it if necessary, and returns true. Returns false if the
+		 * node has children, in which case the agent must be added to them. Called under the lock of the node when the
+		 * tree is parallel
+		 */
+		private boolean addLocally(final IAgent a, final Coordinate p, final Envelope3D env) {
+			if (shouldSplit()) {
+				split();
+			}
+			if (nodes != null) { return false; }
+			getOrCreateObjects().put(a, p == null ? env : Envelope3D.of(p));
+			return true;
+		}
+
 		int quadrant(final Coordinate p) {
 			final boolean north = p.y >= bounds.getMinY() && p.y < halfy;
 			final boolean west = p.x >= bounds.getMinX() && p.x < halfx;
 			return north ? west ? NW : NE : west ? SW : SE;
 		}
 
+		/**
+		 * Distributes the objects of this node into four new children. The children are only published (in 'nodes')
+		 * once they have received all the objects, so that concurrent queries always find the agents either here or in
+		 * the children.
+		 */
 		public void split() {
 			final double maxx = bounds.getMaxX();
 			final double minx = bounds.getMinX();
 			final double miny = bounds.getMinY();
 			final double maxy = bounds.getMaxY();
-			nodes = new QuadNode[] { new QuadNode(new Envelope(minx, halfx, miny, halfy)),
+			final QuadNode[] children = new QuadNode[] { new QuadNode(new Envelope(minx, halfx, miny, halfy)),
 					new QuadNode(new Envelope(halfx, maxx, miny, halfy)),
 					new QuadNode(new Envelope(minx, halfx, halfy, maxy)),
 					new QuadNode(new Envelope(halfx, maxx, halfy, maxy)) };
-			if (objects != null) {
-				for (final Map.Entry<IAgent, Envelope3D> entry : objects.entrySet()) {
+			final IMap<IAgent, Envelope3D> map = objects;
+			if (map != null) {
+				for (final Map.Entry<IAgent, Envelope3D> entry : map.entrySet()) {
 					final IAgent agent = entry.getKey();
 					if (agent != null && !agent.dead()) {
-						final IShape g = agent.getGeometry();
-						if (g.isPoint()) {
-							add((Coordinate) g.getLocation(), agent);
+						// The stored envelope is used rather than the current geometry of the agent, which, in
+						// parallel, can have been moved by another thread that has not yet removed it from the tree
+						final Envelope3D env = entry.getValue();
+						if (isPoint(env)) {
+							final Coordinate p = env.centre();
+							children[quadrant(p)].add(p, agent);
 						} else {
-							add(g.getEnvelope(), agent);
+							for (final QuadNode node : children) {
+								if (node.bounds.intersects(env)) {
+									node.add(env, agent);
+								}
+							}
 						}
 					}
 				}
-				objects.clear();
+			}
+			nodes = children;
+			if (map != null) {
 				objects = null;
+				map.clear();
 			}
 		}
 
 		public void findIntersects(final Envelope r, final Collection<IAgent> result) {
 			if (bounds.intersects(r)) {
-				if (objects != null) {
-					for (final Map.Entry<IAgent, Envelope3D> entry : objects.entrySet()) {
+				final IMap<IAgent, Envelope3D> map = objects;
+				if (map != null) {
+					for (final Map.Entry<IAgent, Envelope3D> entry : map.entrySet()) {
 						final Envelope3D env = entry.getValue();
 						if (env != null && env.intersects(r)) {
 							result.add(entry.getKey());
@@ -345,8 +485,9 @@ public class GamaQuadTree implements ISpatialIndex {
 					}
 				}
 
-				if (nodes != null) {
-					for (final QuadNode node : nodes) {
+				final QuadNode[] children = nodes;
+				if (children != null) {
+					for (final QuadNode node : children) {
 						node.findIntersects(r, result);
 					}
 				}
@@ -0,0 +1,303 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.topology.GamaSpatialHash.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.collect.Ordering;
+import com.vividsolutions.jts.geom.Envelope;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+import msi.gama.util.Collector;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.ICollector;
+import msi.gama.util.IMap;
+
+/**
+ * A spatial index made of a uniform grid of buckets, an alternative to the quadtree for populations of (mostly) point
+ * agents spread over the whole environment. Moving an agent only touches the bucket(s) it leaves and enters, and the
+ * queries by distance visit the buckets in rings around the source, stopping as soon as the remaining rings cannot
+ * contain a closer agent. Agents (or envelopes) lying outside of the bounds of the index are kept in the buckets of
+ * its border, so that the index stays correct (if slower) when the environment grows.
+ *
+ * Used by the populations of species declaring 'spatial_index: "grid"' (see ContinuousTopology)
+ */
+@SuppressWarnings ({ "unchecked", "rawtypes" })
+public class GamaSpatialHash implements ISpatialIndex {
+
+	final double minX, minY, cellSize;
+	final int cols, rows;
+	final boolean parallel;
+	final IMap<IAgent, Envelope3D>[] buckets;
+
+	public static GamaSpatialHash create(final Envelope envelope, final int resolution, final boolean parallel) {
+		final double biggest = Math.max(envelope.getWidth(), envelope.getHeight());
+		final double size = biggest <= 0 ? 1d : biggest / Math.max(1, resolution);
+		return new GamaSpatialHash(envelope, size, parallel);
+	}
+
+	private GamaSpatialHash(final Envelope bounds, final double cellSize, final boolean parallel) {
+		this.minX = bounds.getMinX();
+		this.minY = bounds.getMinY();
+		this.cellSize = cellSize;
+		this.cols = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+		this.rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+		this.parallel = parallel;
+		buckets = new IMap[cols * rows];
+		if (parallel) {
+			// Buckets are created once and for all, so that threads never race to create them
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = GamaMapFactory.concurrentMap();
+			}
+		}
+	}
+
+	int col(final double x) {
+		final int c = (int) Math.floor((x - minX) / cellSize);
+		return c < 0 ? 0 : c >= cols ? cols - 1 : c;
+	}
+
+	int row(final double y) {
+		final int r = (int) Math.floor((y - minY) / cellSize);
+		return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+	}
+
+	private IMap<IAgent, Envelope3D> getOrCreateBucket(final int i) {
+		IMap<IAgent, Envelope3D> bucket = buckets[i];
+		if (bucket == null) {
+			bucket = GamaMapFactory.create();
+			buckets[i] = bucket;
+		}
+		return bucket;
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) { return; }
+		if (agent.isPoint()) {
+			final double x = agent.getLocation().getX();
+			final double y = agent.getLocation().getY();
+			getOrCreateBucket(row(y) * cols + col(x)).put(agent, Envelope3D.of(agent.getLocation()));
+		} else {
+			final Envelope3D env = agent.getEnvelope();
+			final int c0 = col(env.getMinX()), c1 = col(env.getMaxX());
+			final int r0 = row(env.getMinY()), r1 = row(env.getMaxY());
+			for (int r = r0; r <= r1; r++) {
+				for (int c = c0; c <= c1; c++) {
+					getOrCreateBucket(r * cols + c).put(agent, env);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		final Envelope3D current = previous == null ? agent.getEnvelope() : previous;
+		if (current == null) { return; }
+		final int c0 = col(current.getMinX()), c1 = col(current.getMaxX());
+		final int r0 = row(current.getMinY()), r1 = row(current.getMaxY());
+		final boolean isPoint = current.getArea() == 0.0;
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				final IMap<IAgent, Envelope3D> bucket = buckets[r * cols + c];
+				if (bucket != null) {
+					final Envelope3D env = bucket.remove(agent);
+					// Envelopes of non-point agents are shared between the buckets they intersect
+					if (isPoint && env != null) {
+						env.dispose();
+					}
+				}
+			}
+		}
+		current.dispose();
+	}
+
+	/**
+	 * Collects the agents whose envelope intersects r in the buckets of the rectangle [c0,c1] x [r0,r1], skipping
+	 * (if inner is true) the buckets of the rectangle [ic0,ic1] x [ir0,ir1] already visited.
+	 */
+	private void collect(final Envelope r, final int c0, final int c1, final int r0, final int r1, final boolean inner,
+			final int ic0, final int ic1, final int ir0, final int ir1, final Collection<IAgent> result) {
+		for (int row = r0; row <= r1; row++) {
+			for (int col = c0; col <= c1; col++) {
+				if (inner && row >= ir0 && row <= ir1 && col >= ic0 && col <= ic1) {
+					col = ic1;
+					continue;
+				}
+				final IMap<IAgent, Envelope3D> bucket = buckets[row * cols + col];
+				if (bucket == null || bucket.isEmpty()) {
+					continue;
+				}
+				for (final Map.Entry<IAgent, Envelope3D> entry : bucket.entrySet()) {
+					final Envelope3D env = entry.getValue();
+					if (env != null && (r == null || env.intersects(r))) {
+						result.add(entry.getKey());
+					}
+				}
+			}
+		}
+	}
+
+	protected Collection<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
+			final IAgentFilter filter) {
+		// Same contract as the quadtree (Issue 722): no duplicates, results shuffled with the GAMA random procedures
+		try (final ICollector<IAgent> list = Collector.getOrderedSet()) {
+			collect(r, col(r.getMinX()), col(r.getMaxX()), row(r.getMinY()), row(r.getMaxY()), false, 0, 0, 0, 0,
+					list);
+			if (list.isEmpty()) { return GamaListFactory.create(); }
+			filter.filter(scope, source, list);
+			list.shuffleInPlaceWith(scope.getRandom());
+			return list.items();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist);
+		try {
+			final Collection<IAgent> result = findIntersects(scope, source, env, f);
+			if (result.isEmpty()) { return GamaListFactory.create(); }
+			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
+			return result;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		return findIntersects(scope, source, envelope, f);
+	}
+
+	/**
+	 * Visits the buckets in rings around the envelope of the source, until the agent(s) found are closer than any agent
+	 * that could be found in the next rings, or until the rings are farther than dist. Only the candidates within dist
+	 * of the source are retained.
+	 */
+	private void searchRings(final IScope scope, final IShape source, final double dist, final IAgentFilter f,
+			final int number, final Collection<IAgent> alreadyChosen, final Collection<IAgent> result) {
+		final Envelope3D env = source.getEnvelope();
+		final int sc0 = col(env.getMinX()), sc1 = col(env.getMaxX());
+		final int sr0 = row(env.getMinY()), sr1 = row(env.getMaxY());
+		final int maxRing = Math.max(Math.max(sc0, cols - 1 - sc1), Math.max(sr0, rows - 1 - sr1));
+		try (final ICollector<IAgent> ring = Collector.getOrderedSet()) {
+			for (int k = 0; k <= maxRing; k++) {
+				collect(null, Math.max(0, sc0 - k), Math.min(cols - 1, sc1 + k), Math.max(0, sr0 - k),
+						Math.min(rows - 1, sr1 + k), k > 0, sc0 - k + 1, sc1 + k - 1, sr0 - k + 1, sr1 + k - 1, ring);
+				if (alreadyChosen != null) {
+					ring.removeAll(alreadyChosen);
+				}
+				if (!ring.isEmpty()) {
+					f.filter(scope, source, ring);
+					ring.shuffleInPlaceWith(scope.getRandom());
+					for (final IAgent a : ring) {
+						if (source.euclidianDistanceTo(a) <= dist) {
+							result.add(a);
+						}
+					}
+					ring.clear();
+				}
+				// Agents in the rings not yet visited are at least k * cellSize away from the source
+				final double bound = k * cellSize;
+				if (bound > dist) { return; }
+				if (result.size() >= number && kthDistance(source, result, number) <= bound) { return; }
+			}
+		}
+	}
+
+	private double kthDistance(final IShape source, final Collection<IAgent> agents, final int number) {
+		if (number == 1) {
+			double min = Double.MAX_VALUE;
+			for (final IAgent a : agents) {
+				min = Math.min(min, source.euclidianDistanceTo(a));
+			}
+			return min;
+		}
+		final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+		return source.euclidianDistanceTo(ordering.leastOf(agents, number).get(number - 1));
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		try (final ICollector<IAgent> candidates = Collector.getOrderedSet()) {
+			searchRings(scope, source, dist, f, number, alreadyChosen, candidates);
+			if (candidates.isEmpty()) { return GamaListFactory.create(); }
+			if (candidates.size() <= number) { return candidates.items(); }
+			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+			return ordering.leastOf(candidates, number);
+		}
+	}
+
+	/**
+	 * The ring search is already a best-first traversal of the buckets: used without bound on the distance
+	 */
+	@Override
+	public Collection<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		if (number <= 0) { return GamaListFactory.create(); }
+		try (final ICollector<IAgent> candidates = Collector.getOrderedSet()) {
+			searchRings(scope, source, Double.MAX_VALUE, f, number, alreadyChosen, candidates);
+			if (candidates.isEmpty()) { return GamaListFactory.create(); }
+			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+			return ordering.leastOf(candidates, number);
+		}
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		try (final ICollector<IAgent> candidates = Collector.getOrderedSet()) {
+			searchRings(scope, source, dist, f, 1, null, candidates);
+			double min_distance = Double.MAX_VALUE;
+			IAgent min_agent = null;
+			for (final IAgent a : candidates) {
+				final double dd = source.euclidianDistanceTo(a);
+				if (dd < min_distance) {
+					min_distance = dd;
+					min_agent = a;
+				}
+			}
+			return min_agent;
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allAgents() {
+		try (final ICollector<IAgent> result = Collector.getOrderedSet()) {
+			collect(null, 0, cols - 1, 0, rows - 1, false, 0, 0, 0, 0, result);
+			return result.items();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		for (final IMap<IAgent, Envelope3D> bucket : buckets) {
+			if (bucket != null) {
+				bucket.clear();
+			}
+		}
+	}
+
+	@Override
+	public boolean isParallel() {
+		return parallel;
+	}
+
+}
@@ -38,6 +38,16 @@ public interface ISpatialIndex {
 	Collection<IAgent> firstAtDistance(IScope scope, final IShape source, final double dist, final IAgentFilter f,
 			int number, Collection<IAgent> alreadyChosen);
 
+	/**
+	 * Returns the 'number' agents closest to the source, accepted by the filter and not already chosen, sorted by
+	 * increasing distance and without any bound on the distance. Indexes that cannot answer this query directly return
+	 * null, in which case the callers fall back on firstAtDistance() with increasing distances
+	 */
+	default Collection<IAgent> nearest(final IScope scope, final IShape source, final IAgentFilter f, final int number,
+			final Collection<IAgent> alreadyChosen) {
+		return null;
+	}
+
 	Collection<IAgent> allInEnvelope(IScope scope, final IShape source, final Envelope envelope, final IAgentFilter f,
 			boolean contained);
 
@@ -30,10 +30,14 @@ import msi.gama.precompiler.GamlAnnotations.variable;
 import msi.gama.precompiler.GamlAnnotations.vars;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IContainer;
 import msi.gama.util.IList;
+import msi.gama.util.IMap;
 import msi.gama.util.path.GamaSpatialPath;
 import msi.gaml.types.IType;
+import msi.gaml.types.Types;
 
 /**
  * Written by drogoul Modified on 4 juil. 2011
@@ -77,6 +81,21 @@ public interface ITopology extends IValue {
 	Collection<IAgent> getNeighborsOf(IScope scope, final IShape source, final Double distance, IAgentFilter filter)
 			throws GamaRuntimeException;
 
+	/**
+	 * Computes the neighbours (as in getNeighborsOf()) of all the sources at once. Topologies able to do better than
+	 * one query per source (see SpatialJoin) redefine it
+	 */
+	default IMap<IAgent, IList<IAgent>> getNeighborsOfAll(final IScope scope, final IList<? extends IAgent> sources,
+			final Double distance, final IAgentFilter filter) throws GamaRuntimeException {
+		final IMap<IAgent, IList<IAgent>> result =
+				GamaMapFactory.create(Types.AGENT, Types.LIST.of(Types.AGENT), sources.size());
+		for (final IAgent source : sources) {
+			result.put(source,
+					GamaListFactory.createWithoutCasting(Types.AGENT, getNeighborsOf(scope, source, distance, filter)));
+		}
+		return result;
+	}
+
 	Collection<IAgent> getAgentsIn(IScope scope, final IShape source, final IAgentFilter f, boolean covered);
 
 	boolean isTorus();
@@ -0,0 +1,187 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.topology.SpatialJoin.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.ForkedScopes;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.types.Types;
+
+/**
+ * Computes the neighbours of a whole set of agents in one pass (a spatial join between the sources and the candidates),
+ * instead of querying the spatial index once per agent. The candidates are hashed once in a uniform grid whose cells
+ * have the size of the distance, so that the neighbours of a source can only be found in the cells covering its
+ * envelope expanded by the distance. Large sets of sources are processed in parallel on the agent executor, each task
+ * using a scope forked from the caller's one (as the filter may evaluate GAML expressions); the results are then
+ * shuffled sequentially, in the order of the sources, with the random generator of the simulation,
+ * so that they do not depend on the scheduling of the threads (see Issue 722). As an agent much larger than the
+ * distance would cover a huge number of cells, the candidates covering more than MAX_CELLS cells are not hashed but
+ * tested by every source, and the neighbours of such sources are queried (sequentially) from the topology instead.
+ */
+public class SpatialJoin {
+
+	// The maximum number of cells covered by an agent in the grid
+	static final int MAX_CELLS = 1024;
+
+	final double minX, minY, cellSize;
+	final Map<Long, List<IAgent>> cells = new HashMap<>();
+	// The candidates which cover too many cells
+	final List<IAgent> large = new ArrayList<>();
+
+	private SpatialJoin(final Envelope3D bounds, final double cellSize) {
+		this.minX = bounds.getMinX();
+		this.minY = bounds.getMinY();
+		this.cellSize = cellSize;
+	}
+
+	long key(final int col, final int row) {
+		return (long) col << 32 | row & 0xFFFFFFFFL;
+	}
+
+	int col(final double x) {
+		return (int) Math.floor((x - minX) / cellSize);
+	}
+
+	int row(final double y) {
+		return (int) Math.floor((y - minY) / cellSize);
+	}
+
+	boolean coversTooManyCells(final Envelope3D env) {
+		final long cols = (long) col(env.getMaxX()) - col(env.getMinX()) + 1;
+		final long rows = (long) row(env.getMaxY()) - row(env.getMinY()) + 1;
+		return cols * rows > MAX_CELLS;
+	}
+
+	private void add(final IAgent a) {
+		final Envelope3D env = a.getEnvelope();
+		if (coversTooManyCells(env)) {
+			large.add(a);
+			return;
+		}
+		for (int r = row(env.getMinY()), r1 = row(env.getMaxY()); r <= r1; r++) {
+			for (int c = col(env.getMinX()), c1 = col(env.getMaxX()); c <= c1; c++) {
+				cells.computeIfAbsent(key(c, r), k -> new ArrayList<>()).add(a);
+			}
+		}
+	}
+
+	/**
+	 * The neighbours of the source found in the grid, or null if the source covers too many cells
+	 */
+	private List<IAgent> neighborsOf(final IScope scope, final IAgent source, final double distance,
+			final IAgentFilter filter) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(distance);
+		// Ordered set, as non-point candidates can be found in several cells
+		final Set<IAgent> found = new LinkedHashSet<>();
+		try {
+			if (coversTooManyCells(env)) { return null; }
+			for (int r = row(env.getMinY()), r1 = row(env.getMaxY()); r <= r1; r++) {
+				for (int c = col(env.getMinX()), c1 = col(env.getMaxX()); c <= c1; c++) {
+					final List<IAgent> cell = cells.get(key(c, r));
+					if (cell == null) {
+						continue;
+					}
+					for (final IAgent a : cell) {
+						if (a != source && !found.contains(a) && filter.accept(scope, source, a)
+								&& source.euclidianDistanceTo(a) <= distance) {
+							found.add(a);
+						}
+					}
+				}
+			}
+			for (final IAgent a : large) {
+				if (a != source && filter.accept(scope, source, a) && source.euclidianDistanceTo(a) <= distance) {
+					found.add(a);
+				}
+			}
+		} finally {
+			env.dispose();
+		}
+		return new ArrayList<>(found);
+	}
+
+	/**
+	 * Returns a map associating each of the sources with the list of the candidates (accepted by the filter) situated
+	 * at a distance lower or equal to distance, in a continuous, non-toroidal, environment. The neighbours of the
+	 * sources too large for the grid are queried from the topology
+	 */
+	public static IMap<IAgent, IList<IAgent>> neighborsOf(final IScope scope, final ITopology topology,
+			final List<? extends IAgent> sources, final Iterable<? extends IAgent> candidates, final double distance,
+			final IAgentFilter filter) {
+		final IMap<IAgent, IList<IAgent>> result =
+				GamaMapFactory.create(Types.AGENT, Types.LIST.of(Types.AGENT), sources.size());
+		if (sources.isEmpty()) { return result; }
+		// The grid is unbounded (cells are hashed), so any origin will do. Cells smaller than the distance would only
+		// multiply the number of cells visited by each source
+		final SpatialJoin join = new SpatialJoin(sources.get(0).getEnvelope(), distance > 0 ? distance : 1d);
+		for (final IAgent a : candidates) {
+			if (a != null && !a.dead()) {
+				join.add(a);
+			}
+		}
+		final int n = sources.size();
+		final Object[] neighbors = new Object[n];
+		if (n > GamaExecutorService.CONCURRENCY_THRESHOLD.getValue()) {
+			final int threads = GamaExecutorService.AGENT_PARALLEL_EXECUTOR.getParallelism();
+			final int chunk = Math.max(1, n / (threads * 4));
+			final ForkedScopes scopes = new ForkedScopes(scope);
+			final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (int from = 0; from < n; from += chunk) {
+				final int start = from, end = Math.min(n, from + chunk);
+				tasks.add(ForkJoinTask.adapt(() -> {
+					final IScope forked = scopes.acquire();
+					try {
+						for (int i = start; i < end; i++) {
+							neighbors[i] = join.neighborsOf(forked, sources.get(i), distance, filter);
+						}
+					} finally {
+						scopes.release(forked);
+					}
+				}));
+			}
+			GamaExecutorService.executeThreaded(() -> ForkJoinTask.invokeAll(tasks));
+		} else {
+			for (int i = 0; i < n; i++) {
+				neighbors[i] = join.neighborsOf(scope, sources.get(i), distance, filter);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			final IAgent source = sources.get(i);
+			if (neighbors[i] == null) {
+				result.put(source, GamaListFactory.createWithoutCasting(Types.AGENT,
+						topology.getNeighborsOf(scope, source, distance, filter)));
+				continue;
+			}
+			@SuppressWarnings ("unchecked") final IList<IAgent> list =
+					GamaListFactory.createWithoutCasting(Types.AGENT, (List<IAgent>) neighbors[i]);
+			scope.getRandom().shuffleInPlace(list);
+			result.put(source, list);
+		}
+		return result;
+	}
+
+}
@@ -11,13 +11,24 @@
 package msi.gama.metamodel.topology.continuous;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.AbstractTopology;
+import msi.gama.metamodel.topology.GamaSpatialHash;
+import msi.gama.metamodel.topology.ISpatialIndex;
 import msi.gama.metamodel.topology.ITopology;
+import msi.gama.metamodel.topology.SpatialJoin;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.operators.Cast;
 import msi.gaml.operators.Maths;
 import msi.gaml.types.Types;
 
@@ -40,6 +51,38 @@ public class ContinuousTopology extends AbstractTopology {
 		places = GamaListFactory.wrap(Types.GEOMETRY, environment);
 	}
 
+	/**
+	 * Species declaring 'spatial_index: "grid"' get their own uniform grid index, hosted in the compound index of the
+	 * simulation
+	 */
+	@Override
+	public void initialize(final IScope scope, final IPopulation<? extends IAgent> pop) throws GamaRuntimeException {
+		final IExpression kind = pop.getSpecies().getFacet("spatial_index");
+		if (kind != null && "grid".equals(Cast.asString(scope, kind.value(scope)))) {
+			final ISpatialIndex index = getSpatialIndex();
+			if (index instanceof ISpatialIndex.Compound) {
+				final ISpatialIndex.Compound compound = (ISpatialIndex.Compound) index;
+				compound.remove(pop);
+				compound.add(GamaSpatialHash.create(root.getEnvironment().getEnvelope(),
+						GamaPreferences.External.SPATIAL_HASH_RESOLUTION.getValue(), index.isParallel()), pop);
+			}
+		}
+		super.initialize(scope, pop);
+	}
+
+	/**
+	 * In a continuous, non toroidal, environment, the neighbours of all the sources are computed by a single spatial join
+	 * with the agents of the filter
+	 */
+	@Override
+	public IMap<IAgent, IList<IAgent>> getNeighborsOfAll(final IScope scope, final IList<? extends IAgent> sources,
+			final Double distance, final IAgentFilter filter) throws GamaRuntimeException {
+		if (isTorus() || filter.getSpecies() == null && !filter.hasAgentList()) {
+			return super.getNeighborsOfAll(scope, sources, distance, filter);
+		}
+		return SpatialJoin.neighborsOf(scope, this, sources, filter.getAgents(scope).iterable(scope), distance, filter);
+	}
+
 	/**
 	 * @see msi.gama.interfaces.IValue#stringValue()
 	 */
@@ -0,0 +1,486 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.topology.graph.ContractionHierarchy.java, in plugin msi.gama.core, is part of the source code of
+ * the GAMA modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.graph;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+
+/**
+ * A contraction hierarchy (Geisberger et al., "Contraction Hierarchies: Faster and Simpler Hierarchical Routing in Road
+ * Networks", 2008) built once from the compact form of a graph (see GraphCSR). The vertices are contracted one after
+ * the other, in the order given by a lazily updated priority (edge difference + number of contracted neighbours), and
+ * shortcuts are added whenever no witness path is found. Queries are then a bidirectional Dijkstra search restricted to the
+ * arcs going "upwards" in the hierarchy, which only settles a few hundred vertices on road networks; the shortcuts of
+ * the path found are finally unpacked into the original edges.
+ * <p>
+ * The hierarchy is immutable once built and can be queried concurrently (each thread uses its own search space). It
+ * does not follow the changes of the graph: the graph throws it away whenever its structure or its weights change and
+ * builds a new one at the next query.
+ */
+public class ContractionHierarchy<V, E> {
+
+	/**
+	 * The maximum number of vertices settled by a witness search before a shortcut is added anyway, when estimating the
+	 * priority of a vertex and when actually contracting it
+	 */
+	static final int ESTIMATE_SETTLE_LIMIT = 40, CONTRACT_SETTLE_LIMIT = 200;
+
+	final GraphCSR<V, E> graph;
+	final int nbVertices;
+
+	// The arcs, original (with their edge) or shortcuts (with the two arcs they replace)
+	int nbArcs;
+	int[] arcFrom, arcTo, arcFirst, arcSecond;
+	double[] arcWeight;
+	Object[] arcEdge;
+
+	// The upward arcs, in a compressed (CSR) form: the arcs leaving v towards higher vertices, and the arcs reaching v
+	// from higher vertices
+	int[] upOffsets, upArcs, downOffsets, downArcs;
+
+	private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+	public ContractionHierarchy(final GraphCSR<V, E> graph) {
+		this.graph = graph;
+		nbVertices = graph.getNumberOfVertices();
+		final int capacity = graph.getNumberOfArcs() * 3 / 2 + 16;
+		arcFrom = new int[capacity];
+		arcTo = new int[capacity];
+		arcFirst = new int[capacity];
+		arcSecond = new int[capacity];
+		arcWeight = new double[capacity];
+		arcEdge = new Object[capacity];
+		for (int v = 0; v < nbVertices; v++) {
+			for (int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+				addArc(v, graph.targets[i], graph.weights[i], graph.edges[i], -1, -1);
+			}
+		}
+		new Contraction().run();
+	}
+
+	int addArc(final int from, final int to, final double weight, final Object edge, final int first,
+			final int second) {
+		if (nbArcs == arcFrom.length) {
+			final int capacity = nbArcs * 3 / 2 + 16;
+			arcFrom = Arrays.copyOf(arcFrom, capacity);
+			arcTo = Arrays.copyOf(arcTo, capacity);
+			arcFirst = Arrays.copyOf(arcFirst, capacity);
+			arcSecond = Arrays.copyOf(arcSecond, capacity);
+			arcWeight = Arrays.copyOf(arcWeight, capacity);
+			arcEdge = Arrays.copyOf(arcEdge, capacity);
+		}
+		arcFrom[nbArcs] = from;
+		arcTo[nbArcs] = to;
+		arcWeight[nbArcs] = weight;
+		arcEdge[nbArcs] = edge;
+		arcFirst[nbArcs] = first;
+		arcSecond[nbArcs] = second;
+		return nbArcs++;
+	}
+
+	public int getNumberOfShortcuts() {
+		int result = 0;
+		for (int a = 0; a < nbArcs; a++) {
+			if (arcEdge[a] == null) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the list of the edges of a shortest path between source and target, or an empty list if there is none (or
+	 * if one of them does not belong to the graph when the hierarchy was built)
+	 */
+	public IList<E> search(final V source, final V target) {
+		final IList<E> result = GamaListFactory.create();
+		final int s = graph.indexOf(source);
+		final int t = graph.indexOf(target);
+		if (s < 0 || t < 0 || s == t) { return result; }
+		final Search search = searches.get();
+		final int meeting = search.run(s, t);
+		if (meeting < 0) { return result; }
+		// Arcs from the source to the meeting vertex, in reverse order, then from the meeting vertex to the target
+		int[] arcs = new int[64];
+		int size = 0;
+		for (int v = meeting; v != s; v = arcFrom[search.forwardParent[v]]) {
+			if (size == arcs.length) {
+				arcs = Arrays.copyOf(arcs, size * 2);
+			}
+			arcs[size++] = search.forwardParent[v];
+		}
+		for (int i = size - 1; i >= 0; i--) {
+			unpack(arcs[i], result);
+		}
+		for (int v = meeting; v != t; v = arcTo[search.backwardParent[v]]) {
+			unpack(search.backwardParent[v], result);
+		}
+		return result;
+	}
+
+	@SuppressWarnings ("unchecked")
+	private void unpack(final int arc, final IList<E> result) {
+		int[] stack = new int[16];
+		int size = 0;
+		stack[size++] = arc;
+		while (size > 0) {
+			final int a = stack[--size];
+			if (arcEdge[a] != null) {
+				result.add((E) arcEdge[a]);
+			} else {
+				if (size + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				// Pushed in reverse order so that the first half is unpacked first
+				stack[size++] = arcSecond[a];
+				stack[size++] = arcFirst[a];
+			}
+		}
+	}
+
+	/**
+	 * The search space of a query. The distances are reset lazily, using a stamp per vertex, so that a query only costs
+	 * the vertices it visits
+	 */
+	class Search {
+
+		final double[] forwardDistance = new double[nbVertices];
+		final double[] backwardDistance = new double[nbVertices];
+		final int[] forwardParent = new int[nbVertices];
+		final int[] backwardParent = new int[nbVertices];
+		final int[] forwardStamp = new int[nbVertices];
+		final int[] backwardStamp = new int[nbVertices];
+		final VertexHeap forward = new VertexHeap();
+		final VertexHeap backward = new VertexHeap();
+		int stamp;
+
+		double forwardDistance(final int v) {
+			return forwardStamp[v] == stamp ? forwardDistance[v] : Double.MAX_VALUE;
+		}
+
+		double backwardDistance(final int v) {
+			return backwardStamp[v] == stamp ? backwardDistance[v] : Double.MAX_VALUE;
+		}
+
+		/**
+		 * Returns the vertex where the best forward and backward paths meet, or -1 if target cannot be reached
+		 */
+		int run(final int s, final int t) {
+			stamp++;
+			forward.clear();
+			backward.clear();
+			forwardStamp[s] = stamp;
+			forwardDistance[s] = 0;
+			backwardStamp[t] = stamp;
+			backwardDistance[t] = 0;
+			forward.push(s, 0);
+			backward.push(t, 0);
+			double best = Double.MAX_VALUE;
+			int meeting = -1;
+			while (!forward.isEmpty() && forward.peekKey() < best
+					|| !backward.isEmpty() && backward.peekKey() < best) {
+				if (!forward.isEmpty() && forward.peekKey() < best) {
+					final double d = forward.peekKey();
+					final int v = forward.pop();
+					if (d <= forwardDistance[v]) {
+						final double total = d + backwardDistance(v);
+						if (total < best) {
+							best = total;
+							meeting = v;
+						}
+						for (int i = upOffsets[v], end = upOffsets[v + 1]; i < end; i++) {
+							final int a = upArcs[i];
+							final int w = arcTo[a];
+							final double nd = d + arcWeight[a];
+							if (nd < forwardDistance(w)) {
+								forwardStamp[w] = stamp;
+								forwardDistance[w] = nd;
+								forwardParent[w] = a;
+								forward.push(w, nd);
+							}
+						}
+					}
+				}
+				if (!backward.isEmpty() && backward.peekKey() < best) {
+					final double d = backward.peekKey();
+					final int v = backward.pop();
+					if (d <= backwardDistance[v]) {
+						final double total = d + forwardDistance(v);
+						if (total < best) {
+							best = total;
+							meeting = v;
+						}
+						for (int i = downOffsets[v], end = downOffsets[v + 1]; i < end; i++) {
+							final int a = downArcs[i];
+							final int u = arcFrom[a];
+							final double nd = d + arcWeight[a];
+							if (nd < backwardDistance(u)) {
+								backwardStamp[u] = stamp;
+								backwardDistance[u] = nd;
+								backwardParent[u] = a;
+								backward.push(u, nd);
+							}
+						}
+					}
+				}
+			}
+			return meeting;
+		}
+	}
+
+	/**
+	 * The preprocessing: contracts all the vertices and builds the upward arcs
+	 */
+	class Contraction {
+
+		final int[][] outArcs = new int[nbVertices][];
+		final int[][] inArcs = new int[nbVertices][];
+		final int[] outSizes = new int[nbVertices];
+		final int[] inSizes = new int[nbVertices];
+		final boolean[] contracted = new boolean[nbVertices];
+		final int[] contractedNeighbours = new int[nbVertices];
+		final int[] levels = new int[nbVertices];
+		final int[] priorities = new int[nbVertices];
+		final int[] updates = new int[nbVertices];
+		final int[] rank = new int[nbVertices];
+
+		// The witness searches
+		final double[] distance = new double[nbVertices];
+		final int[] stamps = new int[nbVertices];
+		final int[] targets = new int[nbVertices];
+		final VertexHeap heap = new VertexHeap();
+		int stamp, target;
+
+		Contraction() {
+			for (int a = 0; a < nbArcs; a++) {
+				link(a);
+			}
+		}
+
+		void link(final int a) {
+			final int from = arcFrom[a], to = arcTo[a];
+			if (outArcs[from] == null || outSizes[from] == outArcs[from].length) {
+				outArcs[from] = outArcs[from] == null ? new int[4] : Arrays.copyOf(outArcs[from], outSizes[from] * 2);
+			}
+			outArcs[from][outSizes[from]++] = a;
+			if (inArcs[to] == null || inSizes[to] == inArcs[to].length) {
+				inArcs[to] = inArcs[to] == null ? new int[4] : Arrays.copyOf(inArcs[to], inSizes[to] * 2);
+			}
+			inArcs[to][inSizes[to]++] = a;
+		}
+
+		/**
+		 * Dijkstra from u among the vertices not yet contracted, ignoring v, until all the targets or all the vertices
+		 * closer than max are settled (or the limit of settled vertices is reached)
+		 */
+		void witnessSearch(final int u, final int v, final double max, final int limit, final int nbTargets) {
+			int remaining = nbTargets;
+			stamp++;
+			heap.clear();
+			stamps[u] = stamp;
+			distance[u] = 0;
+			heap.push(u, 0);
+			int settled = 0;
+			while (!heap.isEmpty() && settled < limit) {
+				final double d = heap.peekKey();
+				if (d > max) {
+					break;
+				}
+				final int x = heap.pop();
+				if (d > distance[x]) {
+					continue;
+				}
+				settled++;
+				if (targets[x] == target && --remaining == 0) {
+					break;
+				}
+				for (int i = 0; i < outSizes[x]; i++) {
+					final int a = outArcs[x][i];
+					final int y = arcTo[a];
+					if (y == v || contracted[y]) {
+						continue;
+					}
+					final double nd = d + arcWeight[a];
+					if (stamps[y] != stamp || nd < distance[y]) {
+						stamps[y] = stamp;
+						distance[y] = nd;
+						heap.push(y, nd);
+					}
+				}
+			}
+		}
+
+		double witnessDistance(final int w) {
+			return stamps[w] == stamp ? distance[w] : Double.MAX_VALUE;
+		}
+
+		/**
+		 * Computes (and adds if add is true) the shortcuts needed to contract v. Returns their number
+		 */
+		int contract(final int v, final boolean add) {
+			int shortcuts = 0;
+			for (int i = 0; i < inSizes[v]; i++) {
+				final int in = inArcs[v][i];
+				final int u = arcFrom[in];
+				if (contracted[u]) {
+					continue;
+				}
+				double max = -1;
+				int nbTargets = 0;
+				target++;
+				for (int j = 0; j < outSizes[v]; j++) {
+					final int out = outArcs[v][j];
+					final int w = arcTo[out];
+					if (!contracted[w] && w != u) {
+						max = Math.max(max, arcWeight[in] + arcWeight[out]);
+						if (targets[w] != target) {
+							targets[w] = target;
+							nbTargets++;
+						}
+					}
+				}
+				if (max < 0) {
+					continue;
+				}
+				witnessSearch(u, v, max, add ? CONTRACT_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT, nbTargets);
+				for (int j = 0; j < outSizes[v]; j++) {
+					final int out = outArcs[v][j];
+					final int w = arcTo[out];
+					if (contracted[w] || w == u) {
+						continue;
+					}
+					final double viaV = arcWeight[in] + arcWeight[out];
+					if (witnessDistance(w) > viaV) {
+						shortcuts++;
+						if (add) {
+							link(addArc(u, w, viaV, null, in, out));
+						}
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		int degree(final int v) {
+			int result = 0;
+			for (int i = 0; i < outSizes[v]; i++) {
+				if (!contracted[arcTo[outArcs[v][i]]]) {
+					result++;
+				}
+			}
+			for (int i = 0; i < inSizes[v]; i++) {
+				if (!contracted[arcFrom[inArcs[v][i]]]) {
+					result++;
+				}
+			}
+			return result;
+		}
+
+		int priority(final int v) {
+			return 2 * (contract(v, false) - degree(v)) + contractedNeighbours[v] + levels[v];
+		}
+
+		/**
+		 * Removes the arc a from the arcs of v
+		 */
+		void unlink(final int[] arcs, final int[] sizes, final int v, final int a) {
+			for (int i = 0; i < sizes[v]; i++) {
+				if (arcs[i] == a) {
+					arcs[i] = arcs[--sizes[v]];
+					return;
+				}
+			}
+		}
+
+		void run() {
+			final PriorityQueue<long[]> queue = new PriorityQueue<>(Math.max(1, nbVertices),
+					(a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+			for (int v = 0; v < nbVertices; v++) {
+				priorities[v] = priority(v);
+				queue.add(new long[] { priorities[v], v });
+			}
+			int order = 0;
+			while (!queue.isEmpty()) {
+				final long[] next = queue.poll();
+				final int v = (int) next[1];
+				if (contracted[v] || next[0] != priorities[v]) {
+					continue;
+				}
+				// Lazy update: the priority of v may have grown since it was computed
+				final int p = priority(v);
+				if (!queue.isEmpty() && p > queue.peek()[0]) {
+					priorities[v] = p;
+					queue.add(new long[] { p, v });
+					continue;
+				}
+				contract(v, true);
+				contracted[v] = true;
+				rank[v] = order++;
+				// The arcs of v are removed from the lists of its neighbours, whose priorities are then updated
+				for (int i = 0; i < outSizes[v]; i++) {
+					final int w = arcTo[outArcs[v][i]];
+					unlink(inArcs[w], inSizes, w, outArcs[v][i]);
+					neighbourContracted(queue, v, w);
+				}
+				for (int i = 0; i < inSizes[v]; i++) {
+					final int u = arcFrom[inArcs[v][i]];
+					unlink(outArcs[u], outSizes, u, inArcs[v][i]);
+					neighbourContracted(queue, v, u);
+				}
+			}
+			buildUpwardArcs();
+		}
+
+		void neighbourContracted(final PriorityQueue<long[]> queue, final int v, final int w) {
+			// Undirected graphs have the same neighbours in both directions
+			if (contracted[w] || updates[w] == v + 1) { return; }
+			updates[w] = v + 1;
+			contractedNeighbours[w]++;
+			levels[w] = Math.max(levels[w], levels[v] + 1);
+			final int p = priority(w);
+			if (p != priorities[w]) {
+				priorities[w] = p;
+				queue.add(new long[] { p, w });
+			}
+		}
+
+		void buildUpwardArcs() {
+			upOffsets = new int[nbVertices + 1];
+			downOffsets = new int[nbVertices + 1];
+			for (int a = 0; a < nbArcs; a++) {
+				if (rank[arcTo[a]] > rank[arcFrom[a]]) {
+					upOffsets[arcFrom[a] + 1]++;
+				} else {
+					downOffsets[arcTo[a] + 1]++;
+				}
+			}
+			for (int v = 0; v < nbVertices; v++) {
+				upOffsets[v + 1] += upOffsets[v];
+				downOffsets[v + 1] += downOffsets[v];
+			}
+			upArcs = new int[upOffsets[nbVertices]];
+			downArcs = new int[downOffsets[nbVertices]];
+			final int[] upFill = Arrays.copyOf(upOffsets, nbVertices);
+			final int[] downFill = Arrays.copyOf(downOffsets, nbVertices);
+			for (int a = 0; a < nbArcs; a++) {
+				if (rank[arcTo[a]] > rank[arcFrom[a]]) {
+					upArcs[upFill[arcFrom[a]]++] = a;
+				} else {
+					downArcs[downFill[arcTo[a]]++] = a;
+				}
+			}
+		}
+	}
+
+}
@@ -21,6 +21,7 @@ import org.jgrapht.Graphs;
 import com.vividsolutions.jts.geom.Coordinate;
 
 import msi.gama.common.geometry.GeometryUtils;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.common.util.StringUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
@@ -54,6 +55,7 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 	 */
 	private ITopology topology;
 	private double tolerance = 0;
+	private volatile GraphSpatialIndex spatialIndex;
 	private final Map<Integer, IShape> verticesBuilt; // only used for
 														// optimization
 														// purpose of
@@ -87,6 +89,7 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 			final IType edgeType) {
 		this(scope, nodeType, edgeType);
 		init(scope, edgesOrVertices, byEdge, directed, rel, edgesSpecies);
+		freezeIfLarge();
 	}
 
 	public GamaSpatialGraph(final IContainer edgesOrVertices, final boolean byEdge, final boolean directed,
@@ -95,11 +98,13 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 		this(scope, nodeType, edgeType);
 		this.tolerance = tolerance;
 		init(scope, edgesOrVertices, byEdge, directed, rel, edgesSpecies, tolerance);
+		freezeIfLarge();
 	}
 
 	public GamaSpatialGraph(final IContainer edges, final IContainer vertices, final IScope scope) {
 		this(scope, vertices.getGamlType().getContentType(), edges.getGamlType().getContentType());
 		init(scope, edges, vertices);
+		freezeIfLarge();
 	}
 
 	public GamaSpatialGraph(final IScope scope, final IType nodeType, final IType edgeType) {
@@ -107,6 +112,36 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 		verticesBuilt = new HashMap();
 	}
 
+	/**
+	 * Returns the spatial index of the vertices and edges of the graph, building it at the first call. It then follows
+	 * the changes of the graph as one of its listeners
+	 */
+	public GraphSpatialIndex getSpatialIndex() {
+		GraphSpatialIndex result = spatialIndex;
+		if (result == null) {
+			synchronized (this) {
+				result = spatialIndex;
+				if (result == null) {
+					result = new GraphSpatialIndex(this);
+					addListener(result);
+					spatialIndex = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Large road networks are usually built once and then only used to compute paths: they are frozen as soon as they
+	 * are built (see the preference "pref_graph_compact_threshold")
+	 */
+	protected void freezeIfLarge() {
+		final int threshold = GamaPreferences.External.GRAPH_COMPACT_THRESHOLD.getValue();
+		if (threshold > 0 && edgeMap.size() >= threshold) {
+			freeze();
+		}
+	}
+
 	@Override
 	public GamaSpatialGraph copy(final IScope scope) {
 		final GamaSpatialGraph g = new GamaSpatialGraph(GamaListFactory.EMPTY_LIST, true, directed, vertexRelation,
@@ -0,0 +1,305 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.topology.graph.GraphCSR.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+import msi.gama.util.graph.GamaGraph;
+import msi.gama.util.graph._Edge;
+
+/**
+ * An immutable copy of the structure of a graph in the compressed sparse row (CSR) form: vertices are numbered from 0
+ * to n-1 and the arcs leaving vertex v are stored, in primitive arrays, between offsets[v] and offsets[v+1] (undirected
+ * edges give one arc in each direction). It is built once the construction of a (large) graph is done (see
+ * GamaGraph.freeze()), and lets the path finders run on arrays of ints and doubles instead of following the maps of
+ * _Vertex and _Edge. It does not follow the changes of the graph, which throws it away and builds a new one when
+ * needed.
+ * <p>
+ * The searches are A* searches, using as heuristic the euclidian distance between the vertices (if they are
+ * geometries) multiplied by the lowest ratio between the weight and the length of the edges, so that it stays
+ * admissible whatever the weights. They can run concurrently, each thread using its own search space. A source can
+ * also be routed to several targets at once by a single Dijkstra search, which stops once all of them are reached.
+ */
+public class GraphCSR<V, E> {
+
+	final V[] vertices;
+	final Map<V, Integer> indices;
+	final int[] offsets, targets;
+	final double[] weights;
+	final Object[] edges;
+	final double[] x, y;
+	final double heuristicFactor;
+
+	private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+	@SuppressWarnings ("unchecked")
+	public GraphCSR(final GamaGraph<V, E> graph) {
+		final Map<V, ?> map = graph._internalVertexMap();
+		final int n = map.size();
+		vertices = (V[]) map.keySet().toArray();
+		indices = new HashMap<>(n * 2);
+		for (int i = 0; i < n; i++) {
+			indices.put(vertices[i], i);
+		}
+		final boolean directed = graph.isDirected();
+		final Map<E, _Edge<V, E>> edgeMap = graph._internalEdgeMap();
+		// First pass: the number of arcs leaving each vertex
+		offsets = new int[n + 1];
+		for (final _Edge<V, E> edge : edgeMap.values()) {
+			final Integer s = indices.get(edge.getSource());
+			final Integer t = indices.get(edge.getTarget());
+			if (s == null || t == null || s.equals(t)) {
+				continue;
+			}
+			offsets[s + 1]++;
+			if (!directed) {
+				offsets[t + 1]++;
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		// Second pass: the arcs themselves
+		final int m = offsets[n];
+		targets = new int[m];
+		weights = new double[m];
+		edges = new Object[m];
+		final int[] fill = new int[n];
+		System.arraycopy(offsets, 0, fill, 0, n);
+		for (final Map.Entry<E, _Edge<V, E>> entry : edgeMap.entrySet()) {
+			final _Edge<V, E> edge = entry.getValue();
+			final Integer s = indices.get(edge.getSource());
+			final Integer t = indices.get(edge.getTarget());
+			if (s == null || t == null || s.equals(t)) {
+				continue;
+			}
+			final double w = edge.getWeight();
+			int i = fill[s]++;
+			targets[i] = t;
+			weights[i] = w;
+			edges[i] = entry.getKey();
+			if (!directed) {
+				i = fill[t]++;
+				targets[i] = s;
+				weights[i] = w;
+				edges[i] = entry.getKey();
+			}
+		}
+		// The coordinates of the vertices, if they are geometries, for the heuristic
+		if (n > 0 && vertices[0] instanceof IShape) {
+			x = new double[n];
+			y = new double[n];
+			for (int v = 0; v < n; v++) {
+				final IShape shape = (IShape) vertices[v];
+				x[v] = shape.getLocation().getX();
+				y[v] = shape.getLocation().getY();
+			}
+			double factor = Double.MAX_VALUE;
+			for (int v = 0; v < n && factor > 0; v++) {
+				for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+					final double length = distance(v, targets[i]);
+					if (length > 0) {
+						factor = Math.min(factor, weights[i] / length);
+					}
+				}
+			}
+			heuristicFactor = factor == Double.MAX_VALUE ? 0 : Math.max(0, factor);
+		} else {
+			x = null;
+			y = null;
+			heuristicFactor = 0;
+		}
+	}
+
+	double distance(final int v, final int w) {
+		final double dx = x[v] - x[w];
+		final double dy = y[v] - y[w];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	double estimate(final int v, final int target) {
+		return heuristicFactor == 0 ? 0 : heuristicFactor * distance(v, target);
+	}
+
+	public int getNumberOfVertices() {
+		return vertices.length;
+	}
+
+	public int getNumberOfArcs() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the index of the vertex in the arrays, or -1 if it did not belong to the graph when it was frozen
+	 */
+	public int indexOf(final Object vertex) {
+		final Integer i = indices.get(vertex);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Returns the vertex of the graph equal to the one passed, or null if there is none
+	 */
+	public V getVertex(final Object vertex) {
+		final int i = indexOf(vertex);
+		return i < 0 ? null : vertices[i];
+	}
+
+	/**
+	 * Returns the list of the edges of a shortest path between source and target, or an empty list if there is none
+	 */
+	public IList<E> search(final V source, final V target) {
+		final int s = indexOf(source);
+		final int t = indexOf(target);
+		if (s < 0 || t < 0 || s == t) { return GamaListFactory.create(); }
+		final Search search = searches.get();
+		if (!search.run(s, t)) { return GamaListFactory.create(); }
+		return pathTo(search, s, t);
+	}
+
+	/**
+	 * Returns, for each of the targets (in the same order), the list of the edges of a shortest path from the source,
+	 * or an empty list if there is none. All the paths come from the same search
+	 */
+	public List<IList<E>> searchAll(final V source, final List<V> targets) {
+		final int n = targets.size();
+		final int s = indexOf(source);
+		final int[] t = new int[n];
+		for (int i = 0; i < n; i++) {
+			t[i] = indexOf(targets.get(i));
+		}
+		final Search search = searches.get();
+		if (s >= 0) {
+			search.runAll(s, t);
+		}
+		final List<IList<E>> result = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			// The search only stops once the targets it can reach are all settled
+			final boolean reached = s >= 0 && t[i] >= 0 && t[i] != s && search.distance(t[i]) < Double.MAX_VALUE;
+			result.add(reached ? pathTo(search, s, t[i]) : GamaListFactory.create());
+		}
+		return result;
+	}
+
+	@SuppressWarnings ("unchecked")
+	private IList<E> pathTo(final Search search, final int s, final int t) {
+		final IList<E> result = GamaListFactory.create();
+		int size = 0;
+		for (int v = t; v != s; v = search.parents[v]) {
+			size++;
+		}
+		final Object[] path = new Object[size];
+		for (int v = t; v != s; v = search.parents[v]) {
+			path[--size] = edges[search.arcs[v]];
+		}
+		for (final Object e : path) {
+			result.add((E) e);
+		}
+		return result;
+	}
+
+	/**
+	 * The search space of a query. The distances are reset lazily, using a stamp per vertex, so that a query only costs
+	 * the vertices it visits
+	 */
+	class Search {
+
+		final double[] distances = new double[vertices.length];
+		final int[] parents = new int[vertices.length];
+		final int[] arcs = new int[vertices.length];
+		final int[] stamps = new int[vertices.length];
+		final boolean[] closed = new boolean[vertices.length];
+		final int[] targetStamps = new int[vertices.length];
+		final VertexHeap heap = new VertexHeap();
+		int stamp;
+
+		double distance(final int v) {
+			return stamps[v] == stamp ? distances[v] : Double.MAX_VALUE;
+		}
+
+		boolean run(final int s, final int t) {
+			stamp++;
+			heap.clear();
+			stamps[s] = stamp;
+			distances[s] = 0;
+			closed[s] = false;
+			heap.push(s, estimate(s, t));
+			while (!heap.isEmpty()) {
+				final int v = heap.pop();
+				if (closed[v]) {
+					continue;
+				}
+				if (v == t) { return true; }
+				closed[v] = true;
+				final double d = distances[v];
+				for (int i = offsets[v], end = offsets[v + 1]; i < end; i++) {
+					final int w = targets[i];
+					final double nd = d + weights[i];
+					if (nd < distance(w)) {
+						stamps[w] = stamp;
+						distances[w] = nd;
+						closed[w] = false;
+						parents[w] = v;
+						arcs[w] = i;
+						heap.push(w, nd + estimate(w, t));
+					}
+				}
+			}
+			return false;
+		}
+
+		void runAll(final int s, final int[] ts) {
+			stamp++;
+			heap.clear();
+			int remaining = 0;
+			for (final int t : ts) {
+				if (t >= 0 && t != s && targetStamps[t] != stamp) {
+					targetStamps[t] = stamp;
+					remaining++;
+				}
+			}
+			stamps[s] = stamp;
+			distances[s] = 0;
+			closed[s] = false;
+			heap.push(s, 0);
+			while (remaining > 0 && !heap.isEmpty()) {
+				final int v = heap.pop();
+				if (closed[v]) {
+					continue;
+				}
+				closed[v] = true;
+				if (targetStamps[v] == stamp) {
+					remaining--;
+				}
+				final double d = distances[v];
+				for (int i = offsets[v], end = offsets[v + 1]; i < end; i++) {
+					final int w = targets[i];
+					final double nd = d + weights[i];
+					if (nd < distance(w)) {
+						stamps[w] = stamp;
+						distances[w] = nd;
+						closed[w] = false;
+						parents[w] = v;
+						arcs[w] = i;
+						heap.push(w, nd);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.topology.graph.GraphSpatialIndex.java, in plugin msi.gama.core, is part of the source code of the
+ * GAMA modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.graph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.shape.ILocation;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.runtime.IScope;
+import msi.gama.util.graph.GraphEvent;
+import msi.gama.util.graph.IGraphEventListener;
+
+/**
+ * A spatial index on the vertices and the edges of a spatial graph, used to "snap" the source and the target of the
+ * paths to the graph (i.e. to find the vertex at the location of a point, or the edge closest to it) without scanning
+ * all the vertices or all the edges. It listens to the graph, so as to follow the addition and the removal of its
+ * vertices and edges.
+ */
+public class GraphSpatialIndex implements IGraphEventListener {
+
+	private final GamaSpatialGraph graph;
+	private Quadtree vertices;
+	private Quadtree edges;
+	// The envelopes used to insert the objects, necessary to remove them
+	private final Map<IShape, Envelope> vertexEnvelopes = new HashMap<>();
+	private final Map<IShape, Envelope> edgeEnvelopes = new HashMap<>();
+	private final Envelope bounds = new Envelope();
+
+	public GraphSpatialIndex(final GamaSpatialGraph graph) {
+		this.graph = graph;
+		build();
+	}
+
+	private void build() {
+		vertices = new Quadtree();
+		edges = new Quadtree();
+		vertexEnvelopes.clear();
+		edgeEnvelopes.clear();
+		bounds.setToNull();
+		for (final IShape v : graph.getVertexMap().keySet()) {
+			insert(vertices, vertexEnvelopes, v);
+		}
+		for (final Object e : graph.edgeSet()) {
+			insert(edges, edgeEnvelopes, (IShape) e);
+		}
+	}
+
+	private void insert(final Quadtree index, final Map<IShape, Envelope> envelopes, final IShape shape) {
+		if (shape == null || envelopes.containsKey(shape)) { return; }
+		final Envelope env = new Envelope(shape.getEnvelope());
+		envelopes.put(shape, env);
+		index.insert(env, shape);
+		bounds.expandToInclude(env);
+	}
+
+	private void remove(final Quadtree index, final Map<IShape, Envelope> envelopes, final Object shape) {
+		final Envelope env = envelopes.remove(shape);
+		if (env != null) {
+			index.remove(env, shape);
+		}
+	}
+
+	@Override
+	public synchronized void receiveEvent(final IScope scope, final GraphEvent event) {
+		switch (event.eventType) {
+			case VERTEX_ADDED:
+				if (event.vertex instanceof IShape) {
+					insert(vertices, vertexEnvelopes, (IShape) event.vertex);
+				}
+				break;
+			case VERTEX_REMOVED:
+				remove(vertices, vertexEnvelopes, event.vertex);
+				break;
+			case VERTEX_CHANGED:
+				remove(vertices, vertexEnvelopes, event.vertex);
+				if (event.vertex instanceof IShape) {
+					insert(vertices, vertexEnvelopes, (IShape) event.vertex);
+				}
+				break;
+			case EDGE_ADDED:
+				if (event.edge instanceof IShape) {
+					insert(edges, edgeEnvelopes, (IShape) event.edge);
+				}
+				break;
+			case EDGE_REMOVED:
+				remove(edges, edgeEnvelopes, event.edge);
+				break;
+			case EDGE_CHANGED:
+				remove(edges, edgeEnvelopes, event.edge);
+				if (event.edge instanceof IShape) {
+					insert(edges, edgeEnvelopes, (IShape) event.edge);
+				}
+				break;
+			case GRAPH_CLEARED:
+			case GRAPH_CHANGED:
+				build();
+				break;
+		}
+	}
+
+	/**
+	 * Returns a vertex situated at the location (within the tolerance of the preference "pref_point_tolerance") and
+	 * accepted by the condition, or null if there is none
+	 */
+	public synchronized IShape vertexAt(final ILocation location, final Predicate<IShape> condition) {
+		final double tolerance = Math.max(GamaPreferences.External.TOLERANCE_POINTS.getValue(), 0d);
+		final Envelope env = new Envelope(location.getX(), location.getX(), location.getY(), location.getY());
+		env.expandBy(tolerance + Math.ulp(Math.max(Math.abs(location.getX()), Math.abs(location.getY()))));
+		for (final Object v : vertices.query(env)) {
+			if (condition.test((IShape) v)) { return (IShape) v; }
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the edge closest to the shape, or null if the graph has no edges. The search looks at the edges in a
+	 * window centred on the shape, which is doubled until the closest edge found lies inside it
+	 */
+	public synchronized IShape closestEdgeTo(final IShape shape) {
+		if (edgeEnvelopes.isEmpty()) { return null; }
+		final Envelope target = new Envelope(shape.getEnvelope());
+		// Starts with a window containing a few edges on average
+		double radius = Math.max(bounds.getWidth(), bounds.getHeight()) / Math.sqrt(edgeEnvelopes.size()) * 2;
+		if (radius <= 0) {
+			radius = 1;
+		}
+		final double max = Math.max(bounds.getWidth(), bounds.getHeight()) + bounds.distance(target);
+		while (true) {
+			final Envelope window = new Envelope(target);
+			window.expandBy(radius);
+			final List<?> candidates = radius > max ? edges.queryAll() : edges.query(window);
+			IShape closest = null;
+			double distMin = Double.MAX_VALUE;
+			for (final Object o : candidates) {
+				final IShape e = (IShape) o;
+				final double d = e.euclidianDistanceTo(shape);
+				if (d < distMin) {
+					distMin = d;
+					closest = e;
+				}
+			}
+			// The quadtree may return edges outside the window, but any edge closer than the one found intersects it
+			if (closest != null && distMin <= radius || radius > max) { return closest; }
+			radius *= 2;
+		}
+	}
+
+}
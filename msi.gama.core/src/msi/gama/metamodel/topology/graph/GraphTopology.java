@@ -15,8 +15,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
 
 import com.google.common.collect.Ordering;
 
@@ -28,14 +32,16 @@ import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.AbstractTopology;
 import msi.gama.metamodel.topology.ITopology;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
-import msi.gama.metamodel.topology.filter.In;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.Collector;
 import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaPair;
 import msi.gama.util.ICollector;
 import msi.gama.util.IContainer;
 import msi.gama.util.IList;
+import msi.gama.util.graph.IGraph;
 import msi.gama.util.path.GamaPath;
 import msi.gama.util.path.GamaSpatialPath;
 import msi.gama.util.path.IPath;
@@ -105,106 +111,60 @@ public class GraphTopology extends AbstractTopology {
 		IShape sourceN = source;
 		IShape targetN = target;
 		boolean targetNode = graph.getVertexMap().containsKey(target);
-		final boolean isAgentVertex = graph.isEmpty(scope) ? false : graph.getVertices().get(0) instanceof IAgent;
+		// Reads the vertices directly, as getVertices() and isEmpty() increment the version of the graph (and empty its
+		// cache of shortest paths)
+		final boolean isAgentVertex = graph.getVertexMap().isEmpty() ? false
+				: graph.getVertexMap().keySet().iterator().next() instanceof IAgent;
 		final boolean targetNSame = isAgentVertex == target instanceof IAgent;
 		final boolean sourceNSame = isAgentVertex == source instanceof IAgent;
 		boolean sourceNode = graph.getVertexMap().containsKey(source);
 		final boolean optimizedClosestTo = GamaPreferences.External.PATH_COMPUTATION_OPTIMIZATION.getValue();
 
+		final GraphSpatialIndex index = graph.getSpatialIndex();
 		if (sourceNode && GamaPreferences.External.TOLERANCE_POINTS.getValue() > 0.0) {
-			for (final IShape v : graph.getVertexMap().keySet()) {
-				if (v.equals(source)) {
-					sourceN = v;
-					break;
-				}
+			final IShape v = index.vertexAt(source.getLocation(), s -> s.equals(source));
+			if (v != null) {
+				sourceN = v;
 			}
 		}
 		if (targetNode && GamaPreferences.External.TOLERANCE_POINTS.getValue() > 0.0) {
-			for (final IShape v : graph.getVertexMap().keySet()) {
-				if (v.equals(target)) {
-					targetN = v;
-					break;
-				}
+			final IShape v = index.vertexAt(target.getLocation(), t -> t.equals(target));
+			if (v != null) {
+				targetN = v;
 			}
 		}
 		if (!sourceNSame && !sourceNode || !targetNSame && !targetNode) {
-			for (final Object ed : graph.getVertices()) {
-				if (((IShape) ed).getLocation().equals(source.getLocation())) {
-					sourceN = (IShape) ed;
-					sourceNode = true;
-				}
-				if (((IShape) ed).getLocation().equals(target.getLocation())) {
-					targetN = (IShape) ed;
-					targetNode = true;
-				}
-				if (sourceNode && targetNode) {
-					break;
-				}
+			final IShape vs = index.vertexAt(source.getLocation(), s -> s.getLocation().equals(source.getLocation()));
+			if (vs != null) {
+				sourceN = vs;
+				sourceNode = true;
+			}
+			final IShape vt = index.vertexAt(target.getLocation(), t -> t.getLocation().equals(target.getLocation()));
+			if (vt != null) {
+				targetN = vt;
+				targetNode = true;
 			}
-
 		}
 		if (sourceNode && targetNode) {
 			return (GamaSpatialPath) graph.computeShortestPathBetween(scope, sourceN, targetN);
 		}
 
 		IShape edgeS = null, edgeT = null;
-		final boolean optimization = graph.edgeSet().size() > 1000;
-
-		final double dist =
-				optimization ? Math.sqrt(scope.getSimulation().getArea()) / graph.edgeSet().size() * 100 : -1;
 
 		if (graph.isAgentEdge()) {
-			final IAgentFilter filter = In.edgesOf(getPlaces());
-
 			if (!sourceNode) {
 				edgeS = getPathEdge(scope, source);
 				if (edgeS == null) {
-					if (optimizedClosestTo) {
-						edgeS = optimizedClosestTo(source, getPlaces().getEdges());
-					} else if (optimization) {
-						final Collection<IAgent> ags = scope.getSimulation().getAgent().getTopology()
-								.getNeighborsOf(scope, source, dist, filter);
-						if (!ags.isEmpty()) {
-							double distMin = Double.MAX_VALUE;
-							for (final IAgent e : ags) {
-								final double d = source.euclidianDistanceTo(e);
-								if (d < distMin) {
-									edgeS = e;
-									distMin = d;
-								}
-							}
-						}
-					}
-					if (edgeS == null) {
-						edgeS = scope.getSimulation().getAgent().getTopology().getAgentClosestTo(scope, source, filter);
-					}
+					edgeS = optimizedClosestTo ? optimizedClosestTo(source, getPlaces().getEdges())
+							: index.closestEdgeTo(source);
 				}
 				// We avoid computing the target if we cannot find any source.
 				if (edgeS == null) { return null; }
 			}
 			if (!targetNode) {
 				// edgeT = getPathEdge(scope, target);
-
-				if (optimizedClosestTo) {
-					edgeT = optimizedClosestTo(target, getPlaces().getEdges());
-				} else if (optimization) {
-					final Collection<IAgent> ags =
-							scope.getSimulation().getAgent().getTopology().getNeighborsOf(scope, target, dist, filter);
-					if (!ags.isEmpty()) {
-						double distMin = Double.MAX_VALUE;
-						for (final IAgent e : ags) {
-							final double d = target.euclidianDistanceTo(e);
-							if (d < distMin) {
-								edgeT = e;
-								distMin = d;
-							}
-						}
-					}
-				}
-				if (edgeT == null) {
-					edgeT = scope.getSimulation().getAgent().getTopology().getAgentClosestTo(scope, target, filter);
-				}
-
+				edgeT = optimizedClosestTo ? optimizedClosestTo(target, getPlaces().getEdges())
+						: index.closestEdgeTo(target);
 				if (edgeT == null) { return null; }
 			}
 		} else {
@@ -217,7 +177,14 @@ public class GraphTopology extends AbstractTopology {
 			/*
 			 * edgeT = getPathEdge(scope, target); if (edgeT != null) distTMin = 0;
 			 */
-			if (distSMin > 0 && !sourceNode || distTMin > 0 && !targetNode) {
+			if (!optimizedClosestTo) {
+				if (!sourceNode && distSMin > 0) {
+					edgeS = index.closestEdgeTo(source);
+				}
+				if (!targetNode) {
+					edgeT = index.closestEdgeTo(target);
+				}
+			} else if (distSMin > 0 && !sourceNode || distTMin > 0 && !targetNode) {
 
 				for (final Object e : graph.getEdges()) {
 					final IShape edge = (IShape) e;
@@ -680,6 +647,110 @@ public class GraphTopology extends AbstractTopology {
 		return pathBetween(scope, (IShape) source, (IShape) target);
 	}
 
+	/**
+	 * Computes the shortest paths between a list of origin/destination pairs, returned in the same order as the pairs
+	 * (null when no path can be found). The pairs whose origin and destination are both vertices of the graph are
+	 * grouped by origin, so that each origin is routed to all its destinations by a single search; the other pairs
+	 * are computed one by one, as in pathBetween(). If there are many pairs, the searches on the compact copy of the
+	 * graph run in parallel on the agent executor: they neither use the scope nor modify the graph. Everything else
+	 * (the other algorithms, the cache of the graph, the creation of the paths) is done sequentially.
+	 */
+	public IList<GamaSpatialPath> pathsBetween(final IScope scope, final List<? extends GamaPair> pairs) {
+		final GamaSpatialGraph graph = (GamaSpatialGraph) getPlaces();
+		final int n = pairs.size();
+		final GamaSpatialPath[] paths = new GamaSpatialPath[n];
+		final Map<IShape, List<Integer>> byOrigin = new LinkedHashMap<>();
+		final List<Integer> others = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			final IShape source = (IShape) pairs.get(i).key;
+			final IShape target = (IShape) pairs.get(i).value;
+			if (source == null || target == null) {
+				continue;
+			}
+			if (graph.getVertexMap().containsKey(source) && graph.getVertexMap().containsKey(target)) {
+				byOrigin.computeIfAbsent(source, s -> new ArrayList<>()).add(i);
+			} else {
+				others.add(i);
+			}
+		}
+		// For each origin: its targets, their routes and the positions of the routes to search
+		final List<IShape> sources = new ArrayList<>();
+		final List<List<IShape>> targetsOf = new ArrayList<>();
+		final List<List<IList<IShape>>> routesOf = new ArrayList<>();
+		final List<List<Integer>> missingOf = new ArrayList<>();
+		final boolean search = graph.searchesAllRoutes();
+		for (final Map.Entry<IShape, List<Integer>> entry : byOrigin.entrySet()) {
+			final List<Integer> indices = entry.getValue();
+			final List<IShape> targets = new ArrayList<>(indices.size());
+			for (final int i : indices) {
+				targets.add((IShape) pairs.get(i).value);
+			}
+			final List<IList<IShape>> routes;
+			if (search) {
+				routes = new ArrayList<>(Collections.nCopies(targets.size(), (IList<IShape>) null));
+				missingOf.add(graph.fillKnownRoutes(scope, entry.getKey(), targets, routes));
+			} else {
+				routes = graph.computeBestRoutesFrom(scope, entry.getKey(), targets);
+				missingOf.add(Collections.emptyList());
+			}
+			sources.add(entry.getKey());
+			targetsOf.add(targets);
+			routesOf.add(routes);
+		}
+		final int m = sources.size();
+		final Object[] found = new Object[m];
+		final IntConsumer searchFrom = k -> {
+			final List<Integer> missing = missingOf.get(k);
+			if (missing.isEmpty()) { return; }
+			final List<IShape> targets = new ArrayList<>(missing.size());
+			for (final int j : missing) {
+				targets.add(targetsOf.get(k).get(j));
+			}
+			found[k] = graph.searchRoutes(sources.get(k), targets);
+		};
+		if (search && n > GamaExecutorService.CONCURRENCY_THRESHOLD.getValue() && m > 1) {
+			final int threads = GamaExecutorService.AGENT_PARALLEL_EXECUTOR.getParallelism();
+			final int chunk = Math.max(1, m / (threads * 4));
+			final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (int from = 0; from < m; from += chunk) {
+				final int start = from, end = Math.min(m, from + chunk);
+				tasks.add(ForkJoinTask.adapt(() -> {
+					for (int k = start; k < end; k++) {
+						searchFrom.accept(k);
+					}
+				}));
+			}
+			GamaExecutorService.executeThreaded(() -> ForkJoinTask.invokeAll(tasks));
+		} else {
+			for (int k = 0; k < m; k++) {
+				searchFrom.accept(k);
+			}
+		}
+		for (int k = 0; k < m; k++) {
+			final List<IList<IShape>> routes = routesOf.get(k);
+			if (found[k] != null) {
+				final List<Integer> missing = missingOf.get(k);
+				final List<IList<IShape>> searched = (List<IList<IShape>>) found[k];
+				final List<IShape> targets = new ArrayList<>(missing.size());
+				for (int j = 0; j < missing.size(); j++) {
+					targets.add(targetsOf.get(k).get(missing.get(j)));
+					routes.set(missing.get(j), searched.get(j));
+				}
+				graph.saveRoutes(sources.get(k), targets, searched);
+			}
+			final List<IPath<IShape, IShape, IGraph<IShape, IShape>>> built =
+					graph.pathsFrom(scope, sources.get(k), targetsOf.get(k), routes);
+			final List<Integer> indices = byOrigin.get(sources.get(k));
+			for (int j = 0; j < indices.size(); j++) {
+				paths[indices.get(j)] = (GamaSpatialPath) built.get(j);
+			}
+		}
+		for (final int i : others) {
+			paths[i] = pathBetween(scope, (IShape) pairs.get(i).key, (IShape) pairs.get(i).value);
+		}
+		return GamaListFactory.createWithoutCasting(Types.PATH, paths);
+	}
+
 	/**
 	 * @see msi.gama.interfaces.IValue#stringValue()
 	 */
@@ -825,25 +896,15 @@ public class GraphTopology extends AbstractTopology {
 		if (sourceNode && targetNode) { return graph.computeKShortestPathsBetween(scope, source, target, k); }
 
 		IShape edgeS = null, edgeT = null;
-
-		final IAgentFilter filter = In.edgesOf(getPlaces());
+		final GraphSpatialIndex index = ((GamaSpatialGraph) graph).getSpatialIndex();
 
 		if (!sourceNode) {
-			if (getPlaces().getEdgeSpecies() != null) {
-				edgeS = getAgentClosestTo(scope, source, filter);
-			} else {
-				edgeS = shapeClosest(this.getPlaces().getEdges(), source);
-			}
-
+			edgeS = index.closestEdgeTo(source);
 			// We avoid computing the target if we cannot find any source.
 			if (edgeS == null) { return null; }
 		}
 		if (!targetNode) {
-			if (getPlaces().getEdgeSpecies() != null) {
-				edgeT = getAgentClosestTo(scope, target, filter);
-			} else {
-				edgeT = shapeClosest(this.getPlaces().getEdges(), target);
-			}
+			edgeT = index.closestEdgeTo(target);
 			if (edgeT == null) { return null; }
 		}
 
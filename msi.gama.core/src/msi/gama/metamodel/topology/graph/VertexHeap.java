@@ -0,0 +1,79 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.topology.graph.VertexHeap.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.graph;
+
+import java.util.Arrays;
+
+/**
+ * A binary heap of vertices with lazy deletion (a vertex can be pushed several times with decreasing keys)
+ */
+final class VertexHeap {
+
+	int[] nodes = new int[64];
+	double[] keys = new double[64];
+	int size;
+
+	void clear() {
+		size = 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	double peekKey() {
+		return keys[0];
+	}
+
+	void push(final int node, final double key) {
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		int i = size++;
+		while (i > 0) {
+			final int parent = (i - 1) / 2;
+			if (keys[parent] <= key) {
+				break;
+			}
+			nodes[i] = nodes[parent];
+			keys[i] = keys[parent];
+			i = parent;
+		}
+		nodes[i] = node;
+		keys[i] = key;
+	}
+
+	int pop() {
+		final int result = nodes[0];
+		final int node = nodes[--size];
+		final double key = keys[size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[child + 1] < keys[child]) {
+				child++;
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			nodes[i] = nodes[child];
+			keys[i] = keys[child];
+			i = child;
+		}
+		nodes[i] = node;
+		keys[i] = key;
+		return result;
+	}
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.stream.Stream;
 
 import com.google.common.collect.Ordering;
@@ -40,6 +41,7 @@ import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.util.JavaUtils;
 import msi.gama.common.util.RandomUtils;
 import msi.gama.metamodel.agent.AbstractAgent;
+import msi.gama.metamodel.agent.AttributeSlots;
 import msi.gama.metamodel.agent.GamlAgent;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.agent.IMacroAgent;
@@ -63,6 +65,7 @@ import msi.gama.util.ICollector;
 import msi.gama.util.IContainer;
 import msi.gama.util.IList;
 import msi.gama.util.file.GamaGridFile;
+import msi.gama.util.file.GridRaster;
 import msi.gama.util.matrix.GamaMatrix;
 import msi.gama.util.matrix.IMatrix;
 import msi.gama.util.path.GamaSpatialPath;
@@ -100,8 +103,16 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 	double cellWidth, cellHeight;
 	public int[] supportImagePixels;
 	public double[] gridValue;
+	protected GridColumns columns;
 	public int nbBands = 1;
 	public List<IList<Double>> bands = null;
+	// The rasters from which the values of the cells are read, row by row, the first time they are needed (null if
+	// the values are all known). The first one gives grid_value and, if bandsOfRasters is true, each of them gives a
+	// band; otherwise the bands are the ones of the first raster
+	private GridRaster[] rasters;
+	private boolean bandsOfRasters;
+	private AtomicIntegerArray rowsRead;
+	private final Object rowsLock = new Object();
 	protected Boolean usesVN = null;
 	protected Boolean isTorus = null;
 	protected Boolean isHexagon = null;
@@ -127,6 +138,11 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		}
 		neighborhood = null;
 		gridValue = null;
+		rasters = null;
+		if (columns != null) {
+			columns.dispose();
+		}
+		columns = null;
 		_clear();
 		matrix = null;
 		diffuser = null;
@@ -173,7 +189,8 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		cellWidth = bounds.getWidth() / numCols;
 		cellHeight = bounds.getHeight() / numRows;
 		precision = bounds.getWidth() / 1000;
-		final int size = gfile.length(scope);
+		final GridRaster raster = gfile.getRaster(scope);
+		final int size = raster == null ? gfile.length(scope) : numRows * numCols;
 		createMatrix(size);
 		supportImagePixels = new int[size];
 		referenceShape = GamaGeometryType.buildRectangle(cellWidth, cellHeight, new GamaPoint(0, 0));
@@ -183,12 +200,16 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		this.isHexagon = false;
 		this.useNeighborsCache = useNeighborsCache;
 		this.optimizer = optimizer;
-		this.nbBands = gfile.nbBands;
+		this.nbBands = raster == null ? gfile.nbBands : raster.getNbBands();
 		if (nbBands > 1) {
 			bands = new ArrayList<>();
 
 		}
-		for (int i = 0; i < size; i++) {
+		// The values are read on demand from the raster, without building the geometries of the cells of the file
+		if (raster != null) {
+			readOnDemand(new GridRaster[] { raster }, false);
+		}
+		for (int i = 0; raster == null && i < size; i++) {
 			final IShape g = gfile.get(scope, i);
 			final Double val = (Double) g.getAttribute("grid_value");
 			if (val != null) {
@@ -223,7 +244,17 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		cellWidth = bounds.getWidth() / numCols;
 		cellHeight = bounds.getHeight() / numRows;
 		precision = bounds.getWidth() / 1000;
-		final int size = gfile.length(scope);
+		// The values are read on demand if all the files can be read this way and have the same dimensions
+		final List<GridRaster> fileRasters = new ArrayList<>();
+		for (final GamaGridFile gfile2 : gfiles) {
+			final GridRaster raster = gfile2.getRaster(scope);
+			if (raster == null || raster.getNbRows() != numRows || raster.getNbCols() != numCols) {
+				fileRasters.clear();
+				break;
+			}
+			fileRasters.add(raster);
+		}
+		final int size = fileRasters.isEmpty() ? gfile.length(scope) : numRows * numCols;
 		createMatrix(size);
 		supportImagePixels = new int[size];
 		referenceShape = GamaGeometryType.buildRectangle(cellWidth, cellHeight, new GamaPoint(0, 0));
@@ -235,7 +266,10 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		this.optimizer = optimizer;
 		this.nbBands = gfiles.size();
 		bands = new ArrayList<>();
-		for (int i = 0; i < size; i++) {
+		if (!fileRasters.isEmpty()) {
+			readOnDemand(fileRasters.toArray(new GridRaster[fileRasters.size()]), true);
+		}
+		for (int i = 0; fileRasters.isEmpty() && i < size; i++) {
 			final IShape g = gfile.get(scope, i);
 			final Double val = (Double) g.getAttribute("grid_value");
 			if (val != null) {
@@ -300,6 +334,68 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		gridValue = new double[size];
 	}
 
+	/**
+	 * Makes the cells read their values (and bands) from the rasters the first time they are needed, row by row
+	 */
+	private void readOnDemand(final GridRaster[] fromRasters, final boolean oneBandPerRaster) {
+		rasters = fromRasters;
+		bandsOfRasters = oneBandPerRaster;
+		rowsRead = new AtomicIntegerArray(numRows);
+		if (bands != null) {
+			bands.addAll(Collections.nCopies(gridValue.length, null));
+		}
+	}
+
+	/**
+	 * Reads the values of the row of the cell from the rasters if they have not been read yet
+	 */
+	private void readRowOf(final int index) {
+		final AtomicIntegerArray read = rowsRead;
+		final int row = index / numCols;
+		if (read == null || read.get(row) == 1) { return; }
+		synchronized (rowsLock) {
+			if (read.get(row) == 1) { return; }
+			for (int col = 0, i = row * numCols; col < numCols; col++, i++) {
+				gridValue[i] = rasters[0].gridValue(col, row);
+				if (bands == null) {
+					continue;
+				}
+				final IList<Double> vals = GamaListFactory.create(Types.FLOAT);
+				if (bandsOfRasters) {
+					for (final GridRaster raster : rasters) {
+						vals.add(raster.gridValue(col, row));
+					}
+				} else {
+					for (final double v : rasters[0].bands(col, row)) {
+						vals.add(v);
+					}
+				}
+				bands.set(i, vals);
+			}
+			read.set(row, 1);
+		}
+	}
+
+	/**
+	 * Reads the values of all the cells which have not been read yet from the rasters
+	 */
+	private void readAllRows() {
+		if (rowsRead == null) { return; }
+		for (int row = 0; row < numRows; row++) {
+			readRowOf(row * numCols);
+		}
+	}
+
+	double valueAt(final int index) {
+		readRowOf(index);
+		return gridValue[index];
+	}
+
+	IList<Double> bandsAt(final int index) {
+		readRowOf(index);
+		return bands.get(index);
+	}
+
 	private void createHexagonsHorizontal(final IScope scope, final boolean partialCells) {
 		final double widthEnv = environmentFrame.getEnvelope().getWidth();
 		final double heightEnv = environmentFrame.getEnvelope().getHeight();
@@ -472,6 +568,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 	@Override
 	public double[] getGridValue() {
+		readAllRows();
 		return gridValue;
 	}
 
@@ -493,7 +590,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 	public double getGridValue(final int col, final int row) {
 		final int index = getPlaceIndexAt(col, row);
-		if (index != -1) { return gridValue[index]; }
+		if (index != -1) { return valueAt(index); }
 		return 0.0;
 	}
 
@@ -1604,6 +1701,9 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 		@Override
 		public IList<G> createAgents(final IScope scope, final IContainer<?, ? extends IShape> geometries) {
+			final IExpression columnar = species.getFacet("columnar");
+			columns = new GridColumns(species, columnar != null && Cast.asBool(scope, columnar.value(scope)),
+					GamaSpatialMatrix.this::getGridValue, matrix.length);
 			for (int i = 0; i < actualNumberOfCells; i++) {
 				final IShape s = matrix[i];
 				final Class javaBase = species.getDescription().getJavaBase();
@@ -1642,13 +1742,21 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 		@Override
 		protected boolean stepAgents(final IScope scope) {
-			return GamaExecutorService.step(scope, matrix, getSpecies());
+			return GamaExecutorService.step(scope, matrix, this);
 		}
 
 		public int getNbCols() {
 			return GamaSpatialMatrix.this.numCols;
 		}
 
+		/**
+		 * Returns the columns in which the numeric attributes of the cells are stored (or only 'grid_value' if the
+		 * grid is not columnar)
+		 */
+		public GridColumns getColumns() {
+			return columns;
+		}
+
 		public int getNbRows() {
 			return GamaSpatialMatrix.this.numRows;
 		}
@@ -1854,7 +1962,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 			@Override
 			public double getValue() {
-				if (gridValue != null) { return gridValue[getIndex()]; }
+				if (gridValue != null) { return valueAt(getIndex()); }
 				return 0d;
 			}
 
@@ -1865,12 +1973,14 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 					bd.add(getValue());
 					return bd;
 				}
-				return bands.get(getIndex());
+				return bandsAt(getIndex());
 			}
 
 			@Override
 			public void setValue(final double d) {
 				if (gridValue != null) {
+					// The row is read first, so that the value is not overwritten when it is read
+					readRowOf(getIndex());
 					gridValue[getIndex()] = d;
 				}
 			}
@@ -1880,6 +1990,34 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 				return GridPopulation.this;
 			}
 
+			@Override
+			public AttributeSlots getAttributeSlots() {
+				// Slots would bypass the columns
+				if (columns != null && columns.isColumnar()) { return null; }
+				return super.getAttributeSlots();
+			}
+
+			@Override
+			public boolean hasAttribute(final String key) {
+				if (columns != null && columns.contains(key)) { return true; }
+				return super.hasAttribute(key);
+			}
+
+			@Override
+			public Object getAttribute(final String key) {
+				if (columns != null && columns.contains(key)) { return columns.get(key, getIndex()); }
+				return super.getAttribute(key);
+			}
+
+			@Override
+			public void setAttribute(final String key, final Object value) {
+				if (columns != null && columns.contains(key)) {
+					columns.set(key, getIndex(), value);
+				} else {
+					super.setAttribute(key, value);
+				}
+			}
+
 			@Override
 			public IList<IAgent> getNeighbors(final IScope scope) {
 				return Cast.asList(scope, getNeighborhood().getNeighborsIn(scope, getIndex(), 1));
@@ -1930,13 +2068,15 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 			@Override
 			public double getValue() {
-				if (gridValue != null) { return gridValue[getIndex()]; }
+				if (gridValue != null) { return valueAt(getIndex()); }
 				return 0d;
 			}
 
 			@Override
 			public void setValue(final double d) {
 				if (gridValue != null) {
+					// The row is read first, so that the value is not overwritten when it is read
+					readRowOf(getIndex());
 					gridValue[getIndex()] = d;
 				}
 			}
@@ -1951,6 +2091,27 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 				return geometry;
 			}
 
+			@Override
+			public boolean hasAttribute(final String key) {
+				if (columns != null && columns.contains(key)) { return true; }
+				return super.hasAttribute(key);
+			}
+
+			@Override
+			public Object getAttribute(final String key) {
+				if (columns != null && columns.contains(key)) { return columns.get(key, getIndex()); }
+				return super.getAttribute(key);
+			}
+
+			@Override
+			public void setAttribute(final String key, final Object value) {
+				if (columns != null && columns.contains(key)) {
+					columns.set(key, getIndex(), value);
+				} else {
+					super.setAttribute(key, value);
+				}
+			}
+
 			@Override
 			public IList<IAgent> getNeighbors(final IScope scope) {
 				return Cast.asList(scope, getNeighborhood().getNeighborsIn(scope, getIndex(), 1));
@@ -2094,7 +2255,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 					bd.add(getValue());
 					return bd;
 				}
-				return bands.get(getIndex());
+				return bandsAt(getIndex());
 			}
 
 		}
@@ -0,0 +1,115 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.metamodel.topology.grid.GridColumns.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.grid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import msi.gama.common.interfaces.IKeyword;
+import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.species.ISpecies;
+import msi.gaml.types.IType;
+import msi.gaml.variables.IVariable;
+
+/**
+ * Class GridColumns. The columnar storage of the numeric attributes of the cells of a grid: each int or float
+ * attribute declared in the grid species is stored in a contiguous array indexed by the index of the cells, instead of
+ * being stored in each cell. The column of 'grid_value' is always available and shares its array with the matrix (which
+ * reads the values of all the cells first if they are read on demand from grid files).
+ *
+ * Only "plain" attributes are stored in columns, i.e. attributes that are not constant, not computed by a function or
+ * by Java helpers, and that declare no on_change, among, min or max facets, so that writing directly in a column (as
+ * the diffusion does) is equivalent to assigning the attribute.
+ */
+public class GridColumns {
+
+	private final Map<String, double[]> floats = new HashMap<>();
+	private final Map<String, int[]> ints = new HashMap<>();
+	private final Supplier<double[]> gridValue;
+	private final boolean columnar;
+
+	/**
+	 * Builds the columns of the grid. If columnar is false, only 'grid_value' is available as a column
+	 */
+	GridColumns(final ISpecies species, final boolean columnar, final Supplier<double[]> gridValue, final int size) {
+		this.gridValue = gridValue;
+		this.columnar = columnar;
+		if (!columnar) { return; }
+		for (final IVariable var : species.getVars()) {
+			final VariableDescription desc = (VariableDescription) var.getDescription();
+			if (!isColumnar(desc)) {
+				continue;
+			}
+			if (desc.getGamlType().id() == IType.FLOAT) {
+				floats.put(var.getName(), new double[size]);
+			} else {
+				ints.put(var.getName(), new int[size]);
+			}
+		}
+	}
+
+	private static boolean isColumnar(final VariableDescription desc) {
+		final int type = desc.getGamlType().id();
+		if (type != IType.INT && type != IType.FLOAT) { return false; }
+		if (desc.isNotModifiable() || desc.getGetter() != null || desc.getSetter() != null) { return false; }
+		return !desc.hasFacet(IKeyword.FUNCTION) && !desc.hasFacet(IKeyword.ON_CHANGE)
+				&& !desc.hasFacet(IKeyword.AMONG) && !desc.hasFacet(IKeyword.MIN) && !desc.hasFacet(IKeyword.MAX);
+	}
+
+	public boolean isColumnar() {
+		return columnar;
+	}
+
+	/**
+	 * Whether the attribute is stored in a column by the cells (always false for 'grid_value', which is accessed by
+	 * the cells through its own getter and setter)
+	 */
+	public boolean contains(final String name) {
+		return floats.containsKey(name) || ints.containsKey(name);
+	}
+
+	public Object get(final String name, final int index) {
+		final double[] f = floats.get(name);
+		if (f != null) { return f[index]; }
+		return ints.get(name)[index];
+	}
+
+	public void set(final String name, final int index, final Object value) {
+		final double[] f = floats.get(name);
+		if (f != null) {
+			f[index] = value instanceof Number ? ((Number) value).doubleValue() : 0d;
+		} else {
+			ints.get(name)[index] = value instanceof Number ? ((Number) value).intValue() : 0;
+		}
+	}
+
+	/**
+	 * Returns the column of the float attribute (or of 'grid_value'), or null if it is not stored in a column
+	 */
+	public double[] floatColumn(final String name) {
+		if (IKeyword.GRID_VALUE.equals(name)) { return gridValue.get(); }
+		return floats.get(name);
+	}
+
+	/**
+	 * Returns the column of the int attribute, or null if it is not stored in a column
+	 */
+	public int[] intColumn(final String name) {
+		return ints.get(name);
+	}
+
+	public void dispose() {
+		floats.clear();
+		ints.clear();
+	}
+
+}
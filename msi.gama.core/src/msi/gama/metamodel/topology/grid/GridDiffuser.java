@@ -17,11 +17,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
 
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.topology.grid.GamaSpatialMatrix.GridPopulation;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.concurrent.GamaExecutorService.Caller;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.operators.Cast;
 import msi.gaml.variables.IVariable;
@@ -201,6 +204,8 @@ public class GridDiffuser {
 	int nbRows, nbCols;
 	double min_value;
 	IPopulation<? extends IAgent> population;
+	// whether the diffusion can be computed in parallel (only if the grid is scheduled in parallel)
+	private boolean parallel;
 
 	public GridDiffuser() {}
 
@@ -222,6 +227,10 @@ public class GridDiffuser {
 		diffuserScope = gridDiff.Scope;
 		avoid_mask = gridDiff.Avoid_mask;
 		if (diffuserScope == null || diffuserScope.interrupted()) { return false; }
+		// Redistributing the values around masked cells writes in the neighbours, which prevents the cells from being
+		// computed independently
+		parallel = !avoid_mask && GamaExecutorService.getParallelism(diffuserScope,
+				population.getSpecies().getConcurrency(), Caller.GRID) > 0;
 
 		if (avoid_mask) {
 			// compute proportion
@@ -233,9 +242,18 @@ public class GridDiffuser {
 			}
 		}
 
+		final GridColumns columns = columnsOf(population);
+		final double[] floats = columns == null ? null : columns.floatColumn(var_diffu);
+		final int[] ints = columns == null || floats != null ? null : columns.intColumn(var_diffu);
 		for (int i = 0; i < input.length; i++) {
-			input[i] = Cast.asFloat(diffuserScope,
-					population.get(diffuserScope, i).getDirectVarValue(diffuserScope, var_diffu));
+			if (floats != null) {
+				input[i] = floats[i];
+			} else if (ints != null) {
+				input[i] = ints[i];
+			} else {
+				input[i] = Cast.asFloat(diffuserScope,
+						population.get(diffuserScope, i).getDirectVarValue(diffuserScope, var_diffu));
+			}
 			if (input[i] < min_value) {
 				input[i] = 0;
 			}
@@ -244,6 +262,14 @@ public class GridDiffuser {
 
 	}
 
+	/**
+	 * Returns the columns of the grid, which allow to read and write the diffused variable without going through the
+	 * cells
+	 */
+	private static GridColumns columnsOf(final IPopulation<? extends IAgent> pop) {
+		return pop instanceof GridPopulation ? ((GridPopulation<? extends IAgent>) pop).getColumns() : null;
+	}
+
 	public void doDiffusion_with_convolution() {
 		// default method : convolution
 
@@ -416,9 +442,228 @@ public class GridDiffuser {
 		}
 	}
 
+	/**
+	 * Parallel version of the convolution, where the grid is cut in tiles of rows computed on the agent executor. The
+	 * cells far enough from the borders (for which no bound checking is necessary) are computed separately, and
+	 * separable kernels (i.e. kernels that are the product of a column and a row) are applied as two 1-D passes.
+	 * Requires that 'avoid_mask' is false.
+	 */
+	public void doDiffusion_with_convolution_in_parallel() {
+		final int kRows = mat_diffu.length;
+		final int kCols = mat_diffu[0].length;
+		if (!is_gradient && mask == null) {
+			final double[][] factors = separate(mat_diffu);
+			if (factors != null) {
+				doSeparableConvolution(factors[0], factors[1]);
+				return;
+			}
+		}
+		final int kCenterX = kCols / 2;
+		final int kCenterY = kRows / 2;
+		final int firstInteriorCol = kCenterX, lastInteriorCol = nbCols - (kCols - kCenterX);
+		final int firstInteriorRow = kCenterY, lastInteriorRow = nbRows - (kRows - kCenterY);
+		forEachTileOfRows((from, to) -> {
+			for (int j = from; j < to; j++) {
+				final boolean interiorRow = j >= firstInteriorRow && j <= lastInteriorRow;
+				for (int i = 0; i < nbCols; i++) {
+					final boolean interior = interiorRow && i >= firstInteriorCol && i <= lastInteriorCol;
+					final int index = j * nbCols + i;
+					double acc = output[index];
+					for (int m = 0; m < kRows; ++m) {
+						final double[] kernelRow = mat_diffu[kRows - m - 1];
+						int jj = j + m - kCenterY;
+						if (!interior) {
+							if (is_torus) {
+								jj = wrap(jj, nbCols);
+							}
+							if (jj < 0 || jj >= nbRows) {
+								continue;
+							}
+						}
+						for (int n = 0; n < kCols; ++n) {
+							int ii = i + n - kCenterX;
+							if (!interior) {
+								if (is_torus) {
+									ii = wrap(ii, nbRows);
+								}
+								if (ii < 0 || ii >= nbCols) {
+									continue;
+								}
+							}
+							if (mask != null && mask[ii][jj] != 1) {
+								continue;
+							}
+							acc = combine(acc, input[jj * nbCols + ii] * kernelRow[kCols - n - 1]);
+						}
+					}
+					output[index] = acc;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Applies a kernel that is the product of 'column' (its rows) and 'row' (its columns) in two passes: the first one
+	 * along the rows of the grid, the second one along its columns. Only valid without mask and gradient.
+	 */
+	private void doSeparableConvolution(final double[] column, final double[] row) {
+		final int kRows = column.length;
+		final int kCols = row.length;
+		final int kCenterX = kCols / 2;
+		final int kCenterY = kRows / 2;
+		final double[] horizontal = new double[input.length];
+		forEachTileOfRows((from, to) -> {
+			for (int j = from; j < to; j++) {
+				for (int i = 0; i < nbCols; i++) {
+					double sum = 0;
+					for (int n = 0; n < kCols; ++n) {
+						int ii = i + n - kCenterX;
+						if (is_torus) {
+							ii = wrap(ii, nbCols);
+						}
+						if (ii >= 0 && ii < nbCols) {
+							sum += input[j * nbCols + ii] * row[kCols - n - 1];
+						}
+					}
+					horizontal[j * nbCols + i] = sum;
+				}
+			}
+		});
+		forEachTileOfRows((from, to) -> {
+			for (int j = from; j < to; j++) {
+				for (int i = 0; i < nbCols; i++) {
+					double sum = 0;
+					for (int m = 0; m < kRows; ++m) {
+						int jj = j + m - kCenterY;
+						if (is_torus) {
+							jj = wrap(jj, nbRows);
+						}
+						if (jj >= 0 && jj < nbRows) {
+							sum += horizontal[jj * nbCols + i] * column[kRows - m - 1];
+						}
+					}
+					final int index = j * nbCols + i;
+					// The center of the kernel always contributes, so the cell always receives a value
+					output[index] = output[index] == -Double.MAX_VALUE ? sum : output[index] + sum;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Parallel version of the dot product, which gathers for each output cell the values scattered by its neighbours
+	 * instead of scattering the value of each input cell. Requires a square grid and 'avoid_mask' to be false.
+	 */
+	public void doDiffusion_with_dotProduct_in_parallel() {
+		final int kRows = mat_diffu.length;
+		final int kCols = mat_diffu[0].length;
+		final int kCenterX = kCols / 2;
+		final int kCenterY = kRows / 2;
+		forEachTileOfRows((from, to) -> {
+			for (int j = from; j < to; j++) {
+				for (int i = 0; i < nbCols; i++) {
+					final int index = j * nbCols + i;
+					double acc = output[index];
+					for (int m = 0; m < kRows; ++m) {
+						int jj = j - m + kCenterY;
+						if (is_torus) {
+							jj = wrap(jj, nbCols);
+						}
+						if (jj < 0 || jj >= nbCols) {
+							continue;
+						}
+						for (int n = 0; n < kCols; ++n) {
+							int ii = i - n + kCenterX;
+							if (is_torus) {
+								ii = wrap(ii, nbRows);
+							}
+							if (ii < 0 || ii >= nbRows || mask != null && mask[ii][jj] != 1) {
+								continue;
+							}
+							acc = combine(acc, input[jj * nbCols + ii] * mat_diffu[m][n]);
+						}
+					}
+					output[index] = acc;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Combines the value already present in an output cell with a new contribution, in the same way as the sequential
+	 * versions
+	 */
+	private double combine(final double current, final double contribution) {
+		if (current == -Double.MAX_VALUE) { return contribution; }
+		if (is_gradient) { return current < contribution ? contribution : current; }
+		return current + contribution;
+	}
+
+	private static int wrap(final int index, final int size) {
+		if (index < 0) { return size + index; }
+		if (index >= size) { return index - size; }
+		return index;
+	}
+
+	/**
+	 * Returns the column and the row of which the kernel is the product, or null if it is not separable
+	 */
+	static double[][] separate(final double[][] kernel) {
+		final int rows = kernel.length;
+		final int cols = kernel[0].length;
+		int pivotRow = -1, pivotCol = -1;
+		double max = 0;
+		for (int m = 0; m < rows; m++) {
+			for (int n = 0; n < cols; n++) {
+				final double abs = Math.abs(kernel[m][n]);
+				if (abs > max) {
+					max = abs;
+					pivotRow = m;
+					pivotCol = n;
+				}
+			}
+		}
+		if (pivotRow < 0) { return null; }
+		final double[] column = new double[rows];
+		final double[] row = kernel[pivotRow].clone();
+		for (int m = 0; m < rows; m++) {
+			column[m] = kernel[m][pivotCol] / kernel[pivotRow][pivotCol];
+		}
+		final double tolerance = max * 1e-12;
+		for (int m = 0; m < rows; m++) {
+			for (int n = 0; n < cols; n++) {
+				if (Math.abs(column[m] * row[n] - kernel[m][n]) > tolerance) { return null; }
+			}
+		}
+		return new double[][] { column, row };
+	}
+
+	@FunctionalInterface
+	private interface TileOfRows {
+		void process(int from, int to);
+	}
+
+	/**
+	 * Cuts the rows of the grid in tiles (several per thread, to balance the load) and processes them in parallel on
+	 * the agent executor
+	 */
+	private void forEachTileOfRows(final TileOfRows tile) {
+		final int threads = GamaExecutorService.AGENT_PARALLEL_EXECUTOR.getParallelism();
+		final int rowsPerTile = Math.max(1, nbRows / (threads * 4));
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (int from = 0; from < nbRows; from += rowsPerTile) {
+			final int start = from, end = Math.min(nbRows, from + rowsPerTile);
+			tasks.add(ForkJoinTask.adapt(() -> tile.process(start, end)));
+		}
+		GamaExecutorService.executeThreaded(() -> ForkJoinTask.invokeAll(tasks));
+	}
+
 	public void finishDiffusion(final IScope scope, final IPopulation<? extends IAgent> pop) {
 		final IVariable v = pop.getVar(var_diffu);
 		if (v == null) { return; }
+		final GridColumns columns = columnsOf(pop);
+		final double[] floats = columns == null ? null : columns.floatColumn(var_diffu);
+		final int[] ints = columns == null || floats != null ? null : columns.intColumn(var_diffu);
 		for (int i = 0; i < output.length; i++) {
 			double valToPut = output[i];
 			if (valToPut == -Double.MAX_VALUE) {
@@ -436,7 +681,13 @@ public class GridDiffuser {
 			} else {
 				valToPut = Math.max(valToPut, min_value);
 			}
-			v.setVal(scope, pop.get(scope, i), valToPut);
+			if (floats != null) {
+				floats[i] = valToPut;
+			} else if (ints != null) {
+				ints[i] = (int) valToPut;
+			} else {
+				v.setVal(scope, pop.get(scope, i), valToPut);
+			}
 		}
 	}
 
@@ -474,7 +725,14 @@ public class GridDiffuser {
 				final boolean success = loadDiffProperties(gridDiffusion);
 				if (success) {
 					if (!use_convolution) {
-						doDiffusion_with_dotProduct();
+						// The parallel version needs a square grid to invert the (toric) scattering of the values
+						if (parallel && nbRows == nbCols) {
+							doDiffusion_with_dotProduct_in_parallel();
+						} else {
+							doDiffusion_with_dotProduct();
+						}
+					} else if (parallel && (!is_torus || nbRows == nbCols)) {
+						doDiffusion_with_convolution_in_parallel();
 					} else {
 						doDiffusion_with_convolution();
 					}
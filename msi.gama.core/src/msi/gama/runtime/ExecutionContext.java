@@ -10,12 +10,12 @@
  ********************************************************************************************************/
 package msi.gama.runtime;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 
 import msi.gama.common.util.PoolUtils;
 import msi.gama.util.GamaMapFactory;
-import msi.gaml.types.Types;
 
 public class ExecutionContext implements IExecutionContext {
 
@@ -37,13 +37,18 @@ public class ExecutionContext implements IExecutionContext {
 		return result;
 	}
 
-	Map<String, Object> local;
+	// The local variables, stored in a frame made of two parallel arrays, which is kept with the context when it
+	// returns to the pool. Their names are compared by identity first, as the names used by the temporary variables
+	// are interned when they are compiled (see TempVariableExpression)
+	String[] names;
+	Object[] values;
+	int size;
 	IExecutionContext outer;
 	IScope scope;
 
 	@Override
 	public void dispose() {
-		local = null;
+		clearLocalVars();
 		outer = null;
 		scope = null;
 		POOL.release(this);
@@ -61,30 +66,54 @@ public class ExecutionContext implements IExecutionContext {
 		return outer;
 	}
 
+	/**
+	 * Returns the slot of the variable in the frame, or -1 if it is not defined in this context
+	 */
+	int slotOf(final String name) {
+		for (int i = 0; i < size; i++) {
+			if (names[i] == name) { return i; }
+		}
+		for (int i = 0; i < size; i++) {
+			if (names[i].equals(name)) { return i; }
+		}
+		return -1;
+	}
+
 	@Override
 	public void setTempVar(final String name, final Object value) {
-		if (local == null || !local.containsKey(name)) {
-			if (outer != null) {
-				outer.setTempVar(name, value);
+		IExecutionContext context = this;
+		// Walks the chain of contexts without recursion as long as they are execution contexts
+		while (context instanceof ExecutionContext) {
+			final ExecutionContext c = (ExecutionContext) context;
+			final int slot = c.slotOf(name);
+			if (slot >= 0) {
+				c.values[slot] = value;
+				return;
 			}
-		} else {
-			local.put(name, value);
+			context = c.outer;
+		}
+		if (context != null) {
+			context.setTempVar(name, value);
 		}
-
 	}
 
 	@Override
 	public Object getTempVar(final String name) {
-		if (local == null || !local.containsKey(name)) { return outer == null ? null : outer.getTempVar(name); }
-		return local.get(name);
+		IExecutionContext context = this;
+		while (context instanceof ExecutionContext) {
+			final ExecutionContext c = (ExecutionContext) context;
+			final int slot = c.slotOf(name);
+			if (slot >= 0) { return c.values[slot]; }
+			context = c.outer;
+		}
+		return context == null ? null : context.getTempVar(name);
 	}
 
-	@SuppressWarnings ("unchecked")
 	@Override
 	public ExecutionContext createCopy() {
 		final ExecutionContext r = create(scope, outer);
-		if (local != null) {
-			r.local = GamaMapFactory.createWithoutCasting(Types.NO_TYPE, Types.NO_TYPE, local, false);
+		for (int i = 0; i < size; i++) {
+			r.putLocalVar(names[i], values[i]);
 		}
 		return r;
 	}
@@ -94,45 +123,74 @@ public class ExecutionContext implements IExecutionContext {
 		return create(this);
 	}
 
+	/**
+	 * Returns a copy of the local variables as a map, which is only used to access them reflectively (by the console,
+	 * to save them, etc.)
+	 */
+	@SuppressWarnings ("unchecked")
 	@Override
 	public Map<? extends String, ? extends Object> getLocalVars() {
-		return local == null ? Collections.EMPTY_MAP : local;
+		if (size == 0) { return Collections.EMPTY_MAP; }
+		final Map<String, Object> result = GamaMapFactory.createUnordered();
+		for (int i = 0; i < size; i++) {
+			result.put(names[i], values[i]);
+		}
+		return result;
 	}
 
 	@Override
 	public void clearLocalVars() {
-		local = null;
+		// The arrays are kept, but must not retain the values
+		for (int i = 0; i < size; i++) {
+			names[i] = null;
+			values[i] = null;
+		}
+		size = 0;
 	}
 
 	@Override
 	public void putLocalVar(final String varName, final Object val) {
-		if (local == null) {
-			local = GamaMapFactory.createUnordered();
+		final int slot = slotOf(varName);
+		if (slot >= 0) {
+			values[slot] = val;
+			return;
+		}
+		if (names == null) {
+			names = new String[4];
+			values = new Object[4];
+		} else if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			values = Arrays.copyOf(values, size * 2);
 		}
-		local.put(varName, val);
+		names[size] = varName;
+		values[size++] = val;
 	}
 
 	@Override
 	public Object getLocalVar(final String string) {
-		if (local == null) { return null; }
-		return local.get(string);
+		final int slot = slotOf(string);
+		return slot < 0 ? null : values[slot];
 	}
 
 	@Override
 	public boolean hasLocalVar(final String name) {
-		if (local == null) { return false; }
-		return local.containsKey(name);
+		return slotOf(name) >= 0;
 	}
 
 	@Override
 	public void removeLocalVar(final String name) {
-		if (local == null) { return; }
-		local.remove(name);
+		final int slot = slotOf(name);
+		if (slot < 0) { return; }
+		size--;
+		System.arraycopy(names, slot + 1, names, slot, size - slot);
+		System.arraycopy(values, slot + 1, values, slot, size - slot);
+		names[size] = null;
+		values[size] = null;
 	}
 
 	@Override
 	public String toString() {
-		return "execution context " + local;
+		return "execution context " + getLocalVars();
 	}
 
 }
\ No newline at end of file
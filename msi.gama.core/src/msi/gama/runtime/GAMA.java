@@ -477,6 +477,11 @@ public class GAMA {
 		return StopWatch.NULL;
 	}
 
+	public static void benchmarkChunking(final ISymbol symbol, final String chunking) {
+		if (benchmarkAgent == null || symbol == null) { return; }
+		benchmarkAgent.recordChunking(symbol.getDescription(), chunking);
+	}
+
 	public static void startBenchmark(final IExperimentPlan experiment) {
 		if (experiment.shouldBeBenchmarked()) {
 			benchmarkAgent = new Benchmark(experiment);
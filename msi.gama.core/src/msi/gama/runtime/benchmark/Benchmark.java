@@ -38,6 +38,10 @@ public class Benchmark extends ConcurrentHashMap<IScope, ScopeRecord> {
 	}
 
 	public final BenchmarkTree tree;
+	/**
+	 * The last chunking chosen by the adaptive scheduler for each species stepped in parallel
+	 */
+	public final ConcurrentHashMap<IBenchmarkable, String> chunkings = new ConcurrentHashMap<>();
 
 	public Benchmark(final IExperimentPlan experiment) {
 		tree = new BenchmarkTree(experiment.getModel().getDescription(), experiment.getDescription());
@@ -47,10 +51,15 @@ public class Benchmark extends ConcurrentHashMap<IScope, ScopeRecord> {
 		return computeIfAbsent(scope, (s) -> new ScopeRecord(s)).getStopWatchFor(symbol).start();
 	}
 
+	public void recordChunking(final IBenchmarkable species, final String chunking) {
+		chunkings.put(species, chunking);
+	}
+
 	public void saveAndDispose(final IExperimentPlan experiment) {
 		new BenchmarkConsolePrinter().print(this);
 		new BenchmarkCSVExporter().save(experiment, this);
 		tree.dispose();
+		chunkings.clear();
 		clear();
 	}
 
@@ -52,6 +52,7 @@ public class BenchmarkCSVExporter {
 			headers.add("Time in ms in " + scopeRecord);
 			headers.add("Invocations in " + scopeRecord);
 		});
+		headers.add("Parallel chunking");
 		contents.add(headers);
 		records.tree.visit(Order.PRE_ORDER, (n) -> {
 			final IBenchmarkable r = n.getData();
@@ -63,6 +64,7 @@ public class BenchmarkCSVExporter {
 				line.add(record1.isUnrecorded() ? "" : String.valueOf(record1.milliseconds));
 				line.add(record1.isUnrecorded() ? "" : String.valueOf(record1.times));
 			});
+			line.add(records.chunkings.getOrDefault(r, ""));
 		});
 
 		try (final CsvWriter writer = new CsvWriter(exportFileName)) {
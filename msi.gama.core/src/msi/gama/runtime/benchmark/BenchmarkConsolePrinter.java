@@ -37,6 +37,13 @@ public class BenchmarkConsolePrinter {
 			});
 			sb.append(Strings.LN);
 		});
+		if (!scopes.chunkings.isEmpty()) {
+			sb.append(S).append("Parallel chunking").append(S);
+			scopes.chunkings.forEach((species, chunking) -> {
+				sb.append(Strings.LN).append(species.getNameForBenchmarks()).append(": ").append(chunking);
+			});
+			sb.append(Strings.LN);
+		}
 		DEBUG.LOG(sb.toString());
 	}
 
@@ -0,0 +1,105 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.runtime.concurrent.AgentCostEstimator.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.CacheBuilder;
+
+import msi.gama.metamodel.population.IPopulation;
+
+/**
+ * Keeps track, for a population, of the average time needed to step one of its agents and derives from it the size of
+ * the chunks used by the adaptive scheduler: chunks are made large enough to amortize the cost of creating and stealing
+ * a task, but small enough so that the pool has several chunks per thread to balance agents of unequal costs. The
+ * estimators are kept per population rather than per species, as the species is shared by the simulations (and by the
+ * hosts of a micro-species), which can be stepped at the same time.
+ */
+public class AgentCostEstimator {
+
+	/**
+	 * The duration (in nanoseconds) we aim for each chunk. Forking and joining a task costs around a microsecond, so
+	 * this keeps the overhead below 1%.
+	 */
+	static final long TARGET_CHUNK_NANOS = 200_000;
+	/**
+	 * The minimum number of chunks given to each thread, so that work-stealing can compensate for agents whose cost
+	 * varies a lot
+	 */
+	static final int CHUNKS_PER_THREAD = 4;
+	/**
+	 * Weight of the last cycle in the moving average of the cost per agent
+	 */
+	static final double SMOOTHING = 0.5;
+
+	private static final Map<IPopulation<?>, AgentCostEstimator> ESTIMATORS =
+			CacheBuilder.newBuilder().weakKeys().<IPopulation<?>, AgentCostEstimator> build().asMap();
+
+	public static AgentCostEstimator of(final IPopulation<?> population) {
+		return ESTIMATORS.computeIfAbsent(population, p -> new AgentCostEstimator());
+	}
+
+	private final LongAdder nanos = new LongAdder(), agents = new LongAdder();
+	private volatile double costPerAgent = -1;
+	// The number of chunks (high bits) and their size (low bits) chosen last, packed so that they are read together
+	private volatile long lastChunking;
+
+	/**
+	 * Called by the tasks after they have stepped a chunk of agents
+	 */
+	void record(final long nbAgents, final long elapsedNanos) {
+		agents.add(nbAgents);
+		nanos.add(elapsedNanos);
+	}
+
+	/**
+	 * Computes the size of the chunks to use for stepping the given number of agents on the given number of threads,
+	 * based on the costs measured during the previous cycles. When nothing has been measured yet, the threshold passed
+	 * is used instead.
+	 */
+	public int chunkSizeFor(final int nbAgents, final int nbThreads, final int threshold) {
+		final int maxChunk = Math.max(1, nbAgents / (Math.max(1, nbThreads) * CHUNKS_PER_THREAD));
+		final double cost = costPerAgent;
+		int chunk;
+		if (cost <= 0) {
+			chunk = Math.min(threshold, maxChunk);
+		} else {
+			chunk = (int) Math.min(maxChunk, Math.ceil(TARGET_CHUNK_NANOS / cost));
+		}
+		chunk = Math.max(1, chunk);
+		lastChunking = (long) ((nbAgents + chunk - 1) / chunk) << 32 | chunk;
+		return chunk;
+	}
+
+	/**
+	 * Integrates the measures gathered during the last step into the moving average and resets them
+	 */
+	public void endOfStep() {
+		final long nb = agents.sumThenReset();
+		final long time = nanos.sumThenReset();
+		if (nb == 0) { return; }
+		final double measured = (double) time / nb;
+		final double previous = costPerAgent;
+		costPerAgent = previous <= 0 ? measured : SMOOTHING * measured + (1 - SMOOTHING) * previous;
+	}
+
+	/**
+	 * A short description of the last chunking chosen, used in the benchmark outputs
+	 */
+	public String describe() {
+		final double cost = costPerAgent;
+		final long chunking = lastChunking;
+		return (chunking >>> 32) + " chunks of " + (int) chunking + " agents"
+				+ (cost <= 0 ? "" : String.format(" (%.2f µs/agent)", cost / 1000d));
+	}
+
+}
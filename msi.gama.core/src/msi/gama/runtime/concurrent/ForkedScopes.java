@@ -0,0 +1,41 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.runtime.concurrent.ForkedScopes.java, in plugin msi.gama.core, is part of the source code of the GAMA
+ * modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import msi.gama.runtime.IScope;
+
+/**
+ * A small pool of scopes forked from a parent scope and shared by all the tasks of one parallel execution. Instead of
+ * copying the parent scope for every sub-task, a task borrows an idle copy and gives it back when it is done, so that
+ * the number of copies is bounded by the number of tasks running at the same time (i.e. roughly the number of threads)
+ * rather than by the number of chunks.
+ */
+public class ForkedScopes {
+
+	private final IScope parent;
+	private final ConcurrentLinkedQueue<IScope> idle = new ConcurrentLinkedQueue<>();
+
+	public ForkedScopes(final IScope parent) {
+		this.parent = parent;
+	}
+
+	public IScope acquire() {
+		final IScope scope = idle.poll();
+		return scope == null ? parent.copy(" - forked - ") : scope;
+	}
+
+	public void release(final IScope scope) {
+		idle.offer(scope);
+	}
+
+}
@@ -29,6 +29,7 @@ import com.google.common.util.concurrent.MoreExecutors;
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.common.preferences.Pref;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
@@ -77,6 +78,10 @@ public abstract class GamaExecutorService {
 	public static final Pref<Integer> CONCURRENCY_THRESHOLD =
 			create("pref_parallel_threshold", "Number under which agents are executed sequentially", 20, IType.INT,
 					true).between(1, null).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+	public static final Pref<Boolean> CONCURRENCY_ADAPTIVE = create("pref_parallel_adaptive",
+			"Adapt the size of parallel chunks to the measured cost of agents", false, IType.BOOL, true)
+					.in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY)
+					.withComment(", if true, the threshold is only used until the cost of agents is known");
 	public static final Pref<Integer> CONCURRENCY_THREADS_NUMBER =
 			create("pref_parallel_threads",
 					"Max. number of threads to use (available processors: " + Runtime.getRuntime().availableProcessors()
@@ -195,17 +200,19 @@ public abstract class GamaExecutorService {
 		AGENT_PARALLEL_EXECUTOR.invoke(ForkJoinTask.adapt(r));
 	}
 
-	public static <A extends IAgent> Boolean step(final IScope scope, final IList<A> pop, final ISpecies species)
+	public static <A extends IAgent> Boolean step(final IScope scope, final IPopulation<A> pop)
 			throws GamaRuntimeException {
+		final ISpecies species = pop.getSpecies();
 		final IExpression schedule = species.getSchedule();
 		final IList<? extends IAgent> agents = schedule == null ? pop : Cast.asList(scope, schedule.value(scope));
 		final int threshold =
 				getParallelism(scope, species.getConcurrency(), species.isGrid() ? Caller.GRID : Caller.SPECIES);
-		return doStep(scope, agents.toArray(new IAgent[agents.size()]), threshold, species);
+		return doStep(scope, agents.toArray(new IAgent[agents.size()]), threshold, pop);
 	}
 
-	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final ISpecies species)
-			throws GamaRuntimeException {
+	public static <A extends IShape> Boolean step(final IScope scope, final A[] array,
+			final IPopulation<? extends IAgent> pop) throws GamaRuntimeException {
+		final ISpecies species = pop.getSpecies();
 		final IExpression schedule = species.getSchedule();
 		final IShape[] scheduledAgents;
 		if (schedule == null) {
@@ -216,16 +223,23 @@ public abstract class GamaExecutorService {
 		}
 		final int threshold =
 				getParallelism(scope, species.getConcurrency(), species.isGrid() ? Caller.GRID : Caller.SPECIES);
-		return doStep(scope, scheduledAgents, threshold, species);
+		return doStep(scope, scheduledAgents, threshold, pop);
 	}
 
 	private static <A extends IShape> Boolean doStep(final IScope scope, final A[] array, final int threshold,
-			final ISpecies species) {
+			final IPopulation<? extends IAgent> pop) {
+		final ISpecies species = pop.getSpecies();
 		try (final StopWatch w = GAMA.benchmark(scope, species)) {
 			int concurrency = threshold;
 			if (array.length <= threshold) {
 				concurrency = 0;
 			}
+			if (concurrency > 0 && CONCURRENCY_ADAPTIVE.getValue()) {
+				final AgentCostEstimator estimator = AgentCostEstimator.of(pop);
+				ParallelAgentRunner.step(scope, array, threshold, estimator);
+				GAMA.benchmarkChunking(species, estimator.describe());
+				return true;
+			}
 			switch (concurrency) {
 				case 0:
 					for (final A aa : array) {
@@ -21,8 +21,9 @@ public class ParallelAgentExecuter extends ParallelAgentRunner<Object> {
 
 	final IExecutable executable;
 
-	public ParallelAgentExecuter(final IScope scope, final IExecutable executable, final Spliterator<IAgent> agents) {
-		super(scope, agents);
+	public ParallelAgentExecuter(final ForkedScopes scopes, final IExecutable executable,
+			final Spliterator<IAgent> agents) {
+		super(scopes, agents, null);
 		this.executable = executable;
 	}
 
@@ -43,7 +44,7 @@ public class ParallelAgentExecuter extends ParallelAgentRunner<Object> {
 
 	@Override
 	ParallelAgentExecuter subTask(final Spliterator<IAgent> sub) {
-		return new ParallelAgentExecuter(originalScope, executable, sub);
+		return new ParallelAgentExecuter(scopes, executable, sub);
 	}
 
 }
\ No newline at end of file
@@ -23,7 +23,8 @@ import msi.gaml.statements.IExecutable;
 public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements IExecutable {
 
 	final Spliterator<IAgent> agents;
-	final IScope originalScope;
+	final ForkedScopes scopes;
+	final AgentCostEstimator estimator;
 
 	public static <T> T execute(final ForkJoinTask<T> task) throws GamaRuntimeException {
 		if (task == null) { return null; }
@@ -32,11 +33,27 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 
 	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final int threshold)
 			throws GamaRuntimeException {
-		final ParallelAgentStepper runner = from(scope, array, threshold);
+		final ParallelAgentStepper runner = from(scope, array, threshold, null);
 		if (array.length <= threshold) { return runner.executeOn(scope); }
 		return execute(runner);
 	}
 
+	/**
+	 * Steps the agents in chunks whose size is computed from the costs measured by the estimator during the previous
+	 * cycles. The costs measured during this step are in turn integrated into the estimator.
+	 */
+	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final int threshold,
+			final AgentCostEstimator estimator) throws GamaRuntimeException {
+		final int chunk = estimator.chunkSizeFor(array.length,
+				GamaExecutorService.AGENT_PARALLEL_EXECUTOR.getParallelism(), threshold);
+		final ParallelAgentStepper runner = from(scope, array, chunk, estimator);
+		try {
+			return execute(runner);
+		} finally {
+			estimator.endOfStep();
+		}
+	}
+
 	public static <A extends IShape> void execute(final IScope scope, final IExecutable executable, final A[] array,
 			final int threshold) throws GamaRuntimeException {
 		final ParallelAgentRunner<?> runner = from(scope, executable, array, threshold);
@@ -48,18 +65,23 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 	}
 
 	private static <A extends IShape> ParallelAgentStepper from(final IScope scope, final A[] array,
-			final int threshold) {
-		return new ParallelAgentStepper(scope, AgentSpliterator.of(array, threshold));
+			final int threshold, final AgentCostEstimator estimator) {
+		return new ParallelAgentStepper(new ForkedScopes(scope), AgentSpliterator.of(array, threshold), estimator);
 	}
 
 	private static <A extends IShape> ParallelAgentExecuter from(final IScope scope, final IExecutable executable,
 			final A[] array, final int threshold) {
-		return new ParallelAgentExecuter(scope, executable, AgentSpliterator.of(array, threshold));
+		return new ParallelAgentExecuter(new ForkedScopes(scope), executable, AgentSpliterator.of(array, threshold));
 	}
 
-	protected <A extends IShape> ParallelAgentRunner(final IScope scope, final Spliterator<IAgent> agents) {
+	/**
+	 * All the sub-tasks of a runner share the same pool of forked scopes and the same (possibly null) estimator
+	 */
+	protected ParallelAgentRunner(final ForkedScopes scopes, final Spliterator<IAgent> agents,
+			final AgentCostEstimator estimator) {
 		this.agents = agents;
-		this.originalScope = scope.copy(" - forked - ");
+		this.scopes = scopes;
+		this.estimator = estimator;
 	}
 
 	abstract ParallelAgentRunner<T> subTask(Spliterator<IAgent> sub);
@@ -69,7 +91,17 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 		final Spliterator<IAgent> sub = agents.trySplit();
 		T result;
 		if (sub == null) {
-			result = executeOn(originalScope);
+			final IScope scope = scopes.acquire();
+			final long size = agents.estimateSize();
+			final long start = estimator == null ? 0 : System.nanoTime();
+			try {
+				result = executeOn(scope);
+			} finally {
+				scopes.release(scope);
+				if (estimator != null) {
+					estimator.record(size, System.nanoTime() - start);
+				}
+			}
 		} else {
 			final ParallelAgentRunner<T> left = subTask(sub);
 			left.fork();
@@ -18,8 +18,9 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
 
 public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 
-	public ParallelAgentStepper(final IScope scope, final Spliterator<IAgent> agents) {
-		super(scope, agents);
+	public ParallelAgentStepper(final ForkedScopes scopes, final Spliterator<IAgent> agents,
+			final AgentCostEstimator estimator) {
+		super(scopes, agents, estimator);
 	}
 
 	@Override
@@ -35,7 +36,7 @@ public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 
 	@Override
 	ParallelAgentRunner<Boolean> subTask(final Spliterator<IAgent> sub) {
-		return new ParallelAgentStepper(originalScope, sub);
+		return new ParallelAgentStepper(scopes, sub, estimator);
 	}
 
 }
\ No newline at end of file
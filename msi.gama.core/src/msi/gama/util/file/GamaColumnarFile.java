@@ -0,0 +1,527 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.util.file.GamaColumnarFile.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling
+ * and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.ILocation;
+import msi.gama.precompiler.GamlAnnotations.doc;
+import msi.gama.precompiler.GamlAnnotations.example;
+import msi.gama.precompiler.GamlAnnotations.file;
+import msi.gama.precompiler.IConcept;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.operators.Cast;
+import msi.gaml.statements.Facets;
+import msi.gaml.types.IContainerType;
+import msi.gaml.types.IType;
+import msi.gaml.types.Types;
+
+/**
+ * A binary file storing tables column by column, written by the save statement (type "columnar") and read back as a
+ * map associating the name of each column to the list of its values. The file is made of row groups (one per execution
+ * of the save statement, i.e. usually one per cycle), appended to each other. In each group, the columns are stored one
+ * after the other, typed (int, float, bool, point; the other values are stored as strings through a dictionary) and
+ * compressed independently.
+ * <p>
+ * Layout (big-endian): the header "GCOL" followed by a version byte, then the row groups. A row group is made of the
+ * number of its rows and of its columns, followed by the columns: name, type (the id of the GAML type), length of the
+ * compressed data and compressed data. The data of a column begins with a flag telling whether some of its values are
+ * nil and, if so, with a bitmap of these values.
+ */
+@file (
+		name = "columnar",
+		extensions = { "gcol" },
+		buffer_type = IType.MAP,
+		buffer_index = IType.STRING,
+		buffer_content = IType.LIST,
+		concept = { IConcept.FILE, IConcept.SAVE_FILE })
+@doc ("Represents binary files storing the attributes of agents column by column, as written by the save statement with the type \"columnar\". Reads them into a map<string, list> associating the name of each column with the list of its values")
+@SuppressWarnings ({ "rawtypes", "unchecked" })
+public class GamaColumnarFile extends GamaFile<IMap<String, IList>, IList> {
+
+	private static final byte[] MAGIC = "GCOL".getBytes(StandardCharsets.US_ASCII);
+	private static final byte VERSION = 2;
+
+	@doc (
+			value = "This file constructor allows to read a columnar file",
+			examples = { @example (
+					value = "file f <- columnar_file(\"agents.gcol\");",
+					isExecutable = false) })
+	public GamaColumnarFile(final IScope scope, final String pathName) throws GamaRuntimeException {
+		super(scope, pathName);
+	}
+
+	@doc (
+			value = "This constructor allows to store a map of columns (lists of values of the same length) in a columnar file (it does not save it). The file can then be saved later using the `save` statement",
+			examples = { @example (
+					value = "file f <- columnar_file(\"agents.gcol\", [\"id\"::[1, 2], \"size\"::[1.5, 2.0]]);",
+					isExecutable = false) })
+	public GamaColumnarFile(final IScope scope, final String pathName, final IMap<String, IList> container) {
+		super(scope, pathName, container);
+	}
+
+	@Override
+	public Envelope3D computeEnvelope(final IScope scope) {
+		return null;
+	}
+
+	@Override
+	public IContainerType getGamlType() {
+		return Types.MAP.of(Types.STRING, Types.LIST);
+	}
+
+	@Override
+	protected void fillBuffer(final IScope scope) throws GamaRuntimeException {
+		if (getBuffer() != null) { return; }
+		final IMap<String, IList> columns = GamaMapFactory.create(Types.STRING, Types.LIST);
+		try (DataInputStream in =
+				new DataInputStream(new BufferedInputStream(new FileInputStream(getFile(scope)), 1 << 16))) {
+			final byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC) || in.readByte() != VERSION) {
+				throw GamaRuntimeException.error(getName(scope) + " is not a columnar file", scope);
+			}
+			int size = 0;
+			while (true) {
+				final int rows;
+				try {
+					rows = in.readInt();
+				} catch (final EOFException e) {
+					break;
+				}
+				final int nbColumns = in.readShort();
+				for (int c = 0; c < nbColumns; c++) {
+					final String name = in.readUTF();
+					final int type = in.readByte();
+					final byte[] data = new byte[in.readInt()];
+					in.readFully(data);
+					IList column = columns.get(name);
+					if (column == null) {
+						// A column absent from the previous groups
+						column = GamaListFactory.create(Types.get(type), size + rows);
+						for (int i = 0; i < size; i++) {
+							column.add(null);
+						}
+						columns.put(name, column);
+					}
+					readColumn(type, rows, inflate(data), column);
+				}
+				size += rows;
+				// The columns absent from this group
+				for (final IList column : columns.values()) {
+					while (column.size() < size) {
+						column.add(null);
+					}
+				}
+			}
+		} catch (final IOException | DataFormatException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+		setBuffer(columns);
+	}
+
+	@Override
+	protected void flushBuffer(final IScope scope, final Facets facets) throws GamaRuntimeException {
+		final IMap<String, IList> map = getBuffer();
+		int rows = 0;
+		for (final IList column : map.values()) {
+			rows = Math.max(rows, column.size());
+		}
+		final RowGroup group = new RowGroup(rows);
+		for (final Map.Entry<String, IList> entry : map.entrySet()) {
+			final IList values = entry.getValue();
+			final int type = values.getGamlType().getContentType().id();
+			final int c = group.addColumn(entry.getKey(), type);
+			for (int i = 0; i < rows; i++) {
+				group.set(c, i, i < values.size() ? values.get(i) : null);
+			}
+		}
+		// The file has already been deleted by save() unless the facet 'rewrite' is false, in which case the group is
+		// appended to it
+		final File file = getFile(scope);
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
+			group.write(out, file.length() == 0);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	private static byte[] inflate(final byte[] data) throws DataFormatException, IOException {
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data);
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+			final byte[] buffer = new byte[1 << 16];
+			while (!inflater.finished()) {
+				final int n = inflater.inflate(buffer);
+				if (n == 0 && inflater.needsInput()) { throw new EOFException("Truncated column"); }
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static void readColumn(final int type, final int rows, final byte[] bytes, final IList column)
+			throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		final int start = column.size();
+		final byte[] nulls = in.readBoolean() ? new byte[(rows + 7) / 8] : null;
+		if (nulls != null) {
+			in.readFully(nulls);
+		}
+		switch (type) {
+			case IType.INT:
+				for (int i = 0; i < rows; i++) {
+					column.add(in.readInt());
+				}
+				break;
+			case IType.FLOAT:
+				for (int i = 0; i < rows; i++) {
+					column.add(in.readDouble());
+				}
+				break;
+			case IType.BOOL:
+				final byte[] bits = new byte[(rows + 7) / 8];
+				in.readFully(bits);
+				for (int i = 0; i < rows; i++) {
+					column.add((bits[i >> 3] & 1 << (i & 7)) != 0);
+				}
+				break;
+			case IType.POINT:
+				for (int i = 0; i < rows; i++) {
+					final double x = in.readDouble(), y = in.readDouble(), z = in.readDouble();
+					column.add(new GamaPoint(x, y, z));
+				}
+				break;
+			default:
+				final String[] dictionary = new String[in.readInt()];
+				for (int i = 0; i < dictionary.length; i++) {
+					final byte[] s = new byte[in.readInt()];
+					in.readFully(s);
+					dictionary[i] = new String(s, StandardCharsets.UTF_8);
+				}
+				for (int i = 0; i < rows; i++) {
+					final int index = in.readInt();
+					column.add(index < 0 ? null : dictionary[index]);
+				}
+		}
+		if (nulls != null) {
+			for (int i = 0; i < rows; i++) {
+				if ((nulls[i >> 3] & 1 << (i & 7)) != 0) {
+					column.set(start + i, null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A row group being written: its columns are filled (by the simulation) with typed values, then compressed and
+	 * written (possibly by another thread, see OutputChannel)
+	 */
+	public static class RowGroup {
+
+		final int rows;
+		final List<String> names = new ArrayList<>();
+		final List<Column> columns = new ArrayList<>();
+
+		public RowGroup(final int rows) {
+			this.rows = rows;
+		}
+
+		/**
+		 * Adds a column whose values are of the type (the id of a GAML type; the values of types other than int,
+		 * float, bool and point are stored as strings) and returns its index
+		 */
+		public int addColumn(final String name, final int type) {
+			final Column column;
+			switch (type) {
+				case IType.INT:
+					column = new IntColumn(rows);
+					break;
+				case IType.FLOAT:
+					column = new FloatColumn(rows);
+					break;
+				case IType.BOOL:
+					column = new BoolColumn(rows);
+					break;
+				case IType.POINT:
+					column = new PointColumn(rows);
+					break;
+				default:
+					column = new StringColumn(rows);
+			}
+			names.add(name);
+			columns.add(column);
+			return columns.size() - 1;
+		}
+
+		public void set(final int column, final int row, final Object value) {
+			columns.get(column).set(row, value);
+		}
+
+		/**
+		 * Writes the group at the end of the stream, preceded by the header of the file if it is the first one
+		 */
+		public void write(final OutputStream stream, final boolean first) throws IOException {
+			final DataOutputStream out = new DataOutputStream(stream);
+			if (first) {
+				out.write(MAGIC);
+				out.writeByte(VERSION);
+			}
+			out.writeInt(rows);
+			out.writeShort(columns.size());
+			final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			try {
+				final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+				final byte[] buffer = new byte[1 << 16];
+				for (int c = 0; c < columns.size(); c++) {
+					final Column column = columns.get(c);
+					raw.reset();
+					column.write(new DataOutputStream(raw));
+					deflater.reset();
+					deflater.setInput(raw.toByteArray());
+					deflater.finish();
+					final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+					while (!deflater.finished()) {
+						compressed.write(buffer, 0, deflater.deflate(buffer));
+					}
+					out.writeUTF(names.get(c));
+					out.writeByte(column.type());
+					out.writeInt(compressed.size());
+					compressed.writeTo(out);
+				}
+			} finally {
+				deflater.end();
+			}
+			out.flush();
+		}
+
+	}
+
+	/**
+	 * A typed column, which records its nil values in a bitmap
+	 */
+	private static abstract class Column {
+
+		final byte[] nulls;
+		boolean hasNulls;
+
+		Column(final int rows) {
+			nulls = new byte[(rows + 7) / 8];
+		}
+
+		abstract int type();
+
+		final void set(final int row, final Object value) {
+			if (value == null) {
+				nulls[row >> 3] |= 1 << (row & 7);
+				hasNulls = true;
+			} else {
+				setValue(row, value);
+			}
+		}
+
+		final void write(final DataOutputStream out) throws IOException {
+			out.writeBoolean(hasNulls);
+			if (hasNulls) {
+				out.write(nulls);
+			}
+			writeValues(out);
+		}
+
+		abstract void setValue(int row, Object value);
+
+		abstract void writeValues(DataOutputStream out) throws IOException;
+	}
+
+	private static class IntColumn extends Column {
+
+		final int[] values;
+
+		IntColumn(final int rows) {
+			super(rows);
+			values = new int[rows];
+		}
+
+		@Override
+		int type() {
+			return IType.INT;
+		}
+
+		@Override
+		void setValue(final int row, final Object value) {
+			values[row] = value instanceof Number ? ((Number) value).intValue() : 0;
+		}
+
+		@Override
+		void writeValues(final DataOutputStream out) throws IOException {
+			for (final int v : values) {
+				out.writeInt(v);
+			}
+		}
+	}
+
+	private static class FloatColumn extends Column {
+
+		final double[] values;
+
+		FloatColumn(final int rows) {
+			super(rows);
+			values = new double[rows];
+		}
+
+		@Override
+		int type() {
+			return IType.FLOAT;
+		}
+
+		@Override
+		void setValue(final int row, final Object value) {
+			values[row] = value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+		}
+
+		@Override
+		void writeValues(final DataOutputStream out) throws IOException {
+			for (final double v : values) {
+				out.writeDouble(v);
+			}
+		}
+	}
+
+	private static class BoolColumn extends Column {
+
+		final byte[] bits;
+
+		BoolColumn(final int rows) {
+			super(rows);
+			bits = new byte[(rows + 7) / 8];
+		}
+
+		@Override
+		int type() {
+			return IType.BOOL;
+		}
+
+		@Override
+		void setValue(final int row, final Object value) {
+			if (Boolean.TRUE.equals(value)) {
+				bits[row >> 3] |= 1 << (row & 7);
+			}
+		}
+
+		@Override
+		void writeValues(final DataOutputStream out) throws IOException {
+			out.write(bits);
+		}
+	}
+
+	private static class PointColumn extends Column {
+
+		final double[] values;
+
+		PointColumn(final int rows) {
+			super(rows);
+			values = new double[rows * 3];
+		}
+
+		@Override
+		int type() {
+			return IType.POINT;
+		}
+
+		@Override
+		void setValue(final int row, final Object value) {
+			if (value instanceof ILocation) {
+				final ILocation p = (ILocation) value;
+				values[row * 3] = p.getX();
+				values[row * 3 + 1] = p.getY();
+				values[row * 3 + 2] = p.getZ();
+			}
+		}
+
+		@Override
+		void writeValues(final DataOutputStream out) throws IOException {
+			for (final double v : values) {
+				out.writeDouble(v);
+			}
+		}
+	}
+
+	private static class StringColumn extends Column {
+
+		final int[] indices;
+		final Map<String, Integer> dictionary = new HashMap<>();
+		final List<String> strings = new ArrayList<>();
+
+		StringColumn(final int rows) {
+			super(rows);
+			indices = new int[rows];
+			Arrays.fill(indices, -1);
+		}
+
+		@Override
+		int type() {
+			return IType.STRING;
+		}
+
+		@Override
+		void setValue(final int row, final Object value) {
+			final String s = value instanceof String ? (String) value : Cast.toGaml(value);
+			indices[row] = dictionary.computeIfAbsent(s, k -> {
+				strings.add(k);
+				return strings.size() - 1;
+			});
+		}
+
+		@Override
+		void writeValues(final DataOutputStream out) throws IOException {
+			out.writeInt(strings.size());
+			for (final String s : strings) {
+				final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			for (final int i : indices) {
+				out.writeInt(i);
+			}
+		}
+	}
+
+}
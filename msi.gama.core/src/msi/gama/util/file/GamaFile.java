@@ -340,6 +340,8 @@ public abstract class GamaFile<Container extends IAddressableContainer & IModifi
 
 	@Override
 	public Container getContents(final IScope scope) throws GamaRuntimeException {
+		// The file may still be written (or even not yet created) by the save statement
+		OutputChannel.flush(scope, getFile(scope));
 		if (buffer == null && !exists(scope)) {
 			throw GamaRuntimeException.error("File " + getFile(scope).getAbsolutePath() + " does not exist", scope);
 		}
@@ -489,6 +491,7 @@ public abstract class GamaFile<Container extends IAddressableContainer & IModifi
 
 		final IExpression exp = saveFacets.getExpr(IKeyword.REWRITE);
 		final boolean overwrite = exp == null || Cast.asBool(scope, exp.value(scope));
+		OutputChannel.close(scope, getFile(scope));
 		if (overwrite && getFile(scope).exists()) {
 			getFile(scope).delete();
 		}
@@ -35,6 +35,7 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import com.vividsolutions.jts.geom.Envelope;
 
 import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.GamaShape;
 import msi.gama.metamodel.shape.ILocation;
@@ -65,6 +66,8 @@ public class GamaGridFile extends GamaGisFile {
 
 	GamaGridReader reader;
 	GridCoverage2D coverage;
+	GridRaster raster;
+	boolean rasterFailed;
 	public int nbBands;
 
 	@Override
@@ -74,7 +77,12 @@ public class GamaGridFile extends GamaGisFile {
 	}
 
 	private GamaGridReader createReader(final IScope scope, final boolean fillBuffer) {
-		if (reader == null) {
+		// A reader created without filling the buffer is replaced when the buffer is required
+		if (reader == null || fillBuffer && getBuffer() == null) {
+			if (!fillBuffer && isLazy(scope)) {
+				reader = new GamaGridReader(scope, raster);
+				return reader;
+			}
 			final File gridFile = getFile(scope);
 			gridFile.setReadable(true);
 			FileInputStream fis = null;
@@ -147,9 +155,19 @@ public class GamaGridFile extends GamaGisFile {
 		IShape geom;
 		Number noData = -9999;
 
+		GamaGridReader(final IScope scope, final GridRaster raster) {
+			numRows = raster.getNbRows();
+			numCols = raster.getNbCols();
+			noData = raster.getNoData();
+			nbBands = raster.getNbBands();
+			initGeometry(scope, raster.getEnvelope());
+		}
+
 		GamaGridReader(final IScope scope, final InputStream fis, final boolean fillBuffer)
 				throws GamaRuntimeException {
-			setBuffer(GamaListFactory.<IShape> create(Types.GEOMETRY));
+			if (fillBuffer) {
+				setBuffer(GamaListFactory.<IShape> create(Types.GEOMETRY));
+			}
 			AbstractGridCoverage2DReader store = null;
 			try {
 				if (fillBuffer) {
@@ -176,23 +194,14 @@ public class GamaGridFile extends GamaGisFile {
 				final GeneralEnvelope genv = store.getOriginalEnvelope();
 				numRows = store.getOriginalGridRange().getHigh(1) + 1;
 				numCols = store.getOriginalGridRange().getHigh(0) + 1;
-				final Envelope3D env = Envelope3D.of(genv.getMinimum(0), genv.getMaximum(0), genv.getMinimum(1), genv.getMaximum(1), 0, 0);
-				computeProjection(scope, env);
+				initGeometry(scope,
+						new Envelope(genv.getMinimum(0), genv.getMaximum(0), genv.getMinimum(1), genv.getMaximum(1)));
+				if (!fillBuffer) { return; }
 				final Envelope envP = gis.getProjectedEnvelope();
 				final double cellHeight = envP.getHeight() / numRows;
 				final double cellWidth = envP.getWidth() / numCols;
-				final IList<IShape> shapes = GamaListFactory.create(Types.GEOMETRY);
 				final double originX = envP.getMinX();
-				final double originY = envP.getMinY();
 				final double maxY = envP.getMaxY();
-				final double maxX = envP.getMaxX();
-				shapes.add(new GamaPoint(originX, originY));
-				shapes.add(new GamaPoint(maxX, originY));
-				shapes.add(new GamaPoint(maxX, maxY));
-				shapes.add(new GamaPoint(originX, maxY));
-				shapes.add(shapes.get(0));
-				geom = GamaGeometryType.buildPolygon(shapes);
-				if (!fillBuffer) { return; }
 
 				final GamaPoint p = new GamaPoint(0, 0);
 				coverage = store.read(null);
@@ -294,6 +303,25 @@ public class GamaGridFile extends GamaGisFile {
 			}
 		}
 
+		/**
+		 * Computes the projection of the file from its envelope (in its own coordinates) and builds its geometry
+		 */
+		private void initGeometry(final IScope scope, final Envelope env) {
+			computeProjection(scope, Envelope3D.of(env.getMinX(), env.getMaxX(), env.getMinY(), env.getMaxY(), 0, 0));
+			final Envelope envP = gis.getProjectedEnvelope();
+			final IList<IShape> shapes = GamaListFactory.create(Types.GEOMETRY);
+			final double originX = envP.getMinX();
+			final double originY = envP.getMinY();
+			final double maxY = envP.getMaxY();
+			final double maxX = envP.getMaxX();
+			shapes.add(new GamaPoint(originX, originY));
+			shapes.add(new GamaPoint(maxX, originY));
+			shapes.add(new GamaPoint(maxX, maxY));
+			shapes.add(new GamaPoint(originX, maxY));
+			shapes.add(shapes.get(0));
+			geom = GamaGeometryType.buildPolygon(shapes);
+		}
+
 	}
 
 	@doc (
@@ -326,7 +354,11 @@ public class GamaGridFile extends GamaGisFile {
 
 	@Override
 	public Envelope3D computeEnvelope(final IScope scope) {
-		fillBuffer(scope);
+		if (isLazy(scope)) {
+			createReader(scope, false);
+		} else {
+			fillBuffer(scope);
+		}
 		return gis.getProjectedEnvelope();
 	}
 
@@ -344,11 +376,41 @@ public class GamaGridFile extends GamaGisFile {
 	}
 
 	public int getNbRows(final IScope scope) {
-		return createReader(scope, true).numRows;
+		return createReader(scope, !isLazy(scope)).numRows;
 	}
 
 	public int getNbCols(final IScope scope) {
-		return createReader(scope, true).numCols;
+		return createReader(scope, !isLazy(scope)).numCols;
+	}
+
+	/**
+	 * Whether the values of the file are read on demand (see the preference "pref_grid_lazy_loading") rather than all
+	 * loaded in its buffer
+	 */
+	public boolean isLazy(final IScope scope) {
+		return getRaster(scope) != null;
+	}
+
+	/**
+	 * Returns the raster giving access to the values of the file without loading them, or null if the lazy loading is
+	 * disabled or the file cannot be read this way (in which case it is read by geotools as a whole)
+	 */
+	public GridRaster getRaster(final IScope scope) {
+		if (raster != null || rasterFailed || !GamaPreferences.External.GRID_LAZY_LOADING.getValue()) { return raster; }
+		try {
+			if (isTiff(scope)) {
+				final CoordinateReferenceSystem crs = getExistingCRS(scope);
+				final GeoTiffReader store = crs == null ? new GeoTiffReader(getFile(scope))
+						: new GeoTiffReader(getFile(scope), new Hints(Hints.DEFAULT_COORDINATE_REFERENCE_SYSTEM, crs));
+				// The image of the coverage is not read here, but tile by tile when the values are accessed
+				raster = new GridRaster.Coverage(store, store.read(null), store.getMetadata().getNoData());
+			} else {
+				raster = new GridRaster.Asc(getFile(scope));
+			}
+		} catch (final Exception e) {
+			rasterFailed = true;
+		}
+		return raster;
 	}
 
 	public boolean isTiff(final IScope scope) {
@@ -357,7 +419,7 @@ public class GamaGridFile extends GamaGisFile {
 
 	@Override
 	public IShape getGeometry(final IScope scope) {
-		return createReader(scope, true).geom;
+		return createReader(scope, !isLazy(scope)).geom;
 	}
 
 	@Override
@@ -439,6 +501,11 @@ public class GamaGridFile extends GamaGisFile {
 			coverage.dispose(true);
 		}
 		coverage = null;
+		if (raster != null) {
+			raster.dispose();
+		}
+		raster = null;
+		rasterFailed = false;
 	}
 
 	public GridCoverage2D getCoverage() {
@@ -446,6 +513,7 @@ public class GamaGridFile extends GamaGisFile {
 	}
 
 	public Double valueOf(final IScope scope, final ILocation loc) {
+		if (isLazy(scope)) { return raster.valueAt(loc.getX(), loc.getY()); }
 		if (getBuffer() == null) {
 			fillBuffer(scope);
 		}
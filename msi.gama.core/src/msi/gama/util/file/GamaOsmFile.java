@@ -13,19 +13,30 @@ package msi.gama.util.file;
 import static org.apache.commons.lang.StringUtils.join;
 import static org.apache.commons.lang.StringUtils.splitByWholeSeparatorPreserveAllTokens;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
 import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.SAXParser;
@@ -46,12 +57,19 @@ import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
 
 import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.geometry.GeometryUtils;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.ext.osmosis.Bound;
 import msi.gama.ext.osmosis.Entity;
 import msi.gama.ext.osmosis.EntityContainer;
+import msi.gama.ext.osmosis.EntityType;
 import msi.gama.ext.osmosis.Node;
 import msi.gama.ext.osmosis.OsmHandler;
 import msi.gama.ext.osmosis.OsmosisReader;
@@ -93,6 +111,10 @@ import ummisco.gama.dev.utils.DEBUG;
 @SuppressWarnings ({ "unchecked", "rawtypes" })
 public class GamaOsmFile extends GamaGisFile {
 
+	static {
+		DEBUG.OFF();
+	}
+
 	final ReferencedEnvelope env = new ReferencedEnvelope();
 	
 	public static class OSMInfo extends GamaFileMetaData {
@@ -244,6 +266,12 @@ public class GamaOsmFile extends GamaGisFile {
 
 	int nbObjects;
 
+	/**
+	 * The extension added to the name of the file to get the name of its binary cache (see readStreaming())
+	 */
+	public static final String CACHE_EXTENSION = ".cache";
+	private static final int CACHE_VERSION = 1;
+
 	/**
 	 * @throws GamaRuntimeException
 	 * @param scope
@@ -285,6 +313,10 @@ public class GamaOsmFile extends GamaGisFile {
 	}
 
 	public void getFeatureIterator(final IScope scope, final boolean returnIt) {
+		if (returnIt && isStreamed(scope)) {
+			setBuffer(readStreaming(scope));
+			return;
+		}
 		final Map<Long, GamaShape> nodesPt = new HashMap<>();
 		final List<Node> nodes = new ArrayList<>();
 		final List<Way> ways = new ArrayList<>();
@@ -297,7 +329,6 @@ public class GamaOsmFile extends GamaGisFile {
 			@Override
 			public void process(final EntityContainer entityContainer) {
 				final Entity entity = entityContainer.getEntity();
-				final boolean toFilter = filteringOptions != null && !filteringOptions.isEmpty();
 				if (entity instanceof Bound) {
 					final Bound bound = (Bound) entity;
 					final Envelope3D e =
@@ -316,23 +347,7 @@ public class GamaOsmFile extends GamaGisFile {
 						env.expandToInclude(g.getCoordinate());
 						nodesPt.put(node.getId(), new GamaShape(g));
 					} else if (entity instanceof Way) {
-						if (toFilter) {
-							boolean keepObject = false;
-							for (final String keyN : filteringOptions.getKeys()) {
-								final IList valsPoss = filteringOptions.get(keyN);
-								for (final Tag tagN : ((Way) entity).getTags()) {
-									if (keyN.equals(tagN.getKey())) {
-										if (valsPoss == null || valsPoss.isEmpty()
-												|| valsPoss.contains(tagN.getValue())) {
-											keepObject = true;
-											break;
-										}
-									}
-
-								}
-							}
-							if (!keepObject) { return; }
-						}
+						if (!isKept((Way) entity)) { return; }
 						registerHighway((Way) entity, usedNodes, intersectionNodes);
 						ways.add((Way) entity);
 					} else if (entity instanceof Relation) {
@@ -356,6 +371,341 @@ public class GamaOsmFile extends GamaGisFile {
 		
 	}
 
+	/**
+	 * Whether the file is large enough to be imported in streaming mode
+	 */
+	private boolean isStreamed(final IScope scope) {
+		final double threshold = GamaPreferences.External.OSM_STREAMING_THRESHOLD.getValue();
+		return threshold > 0 && getFile(scope).length() >= threshold * 1024 * 1024;
+	}
+
+	/**
+	 * Imports the file without keeping its entities in memory. A first pass collects the ids of the nodes used by the
+	 * ways kept and by the relations, the intersections of the highways and the relations; a second pass stores the
+	 * coordinates of these nodes only (in an OsmNodeStore) and builds the geometries on the fly, as the nodes come
+	 * before the ways in OSM files. The geometries are built in WGS84, saved in a binary cache beside the file (if the
+	 * preference is set), which is read instead of the file by the next imports, and then projected.
+	 */
+	private IList<IShape> readStreaming(final IScope scope) {
+		final File file = getFile(scope);
+		final File cache = new File(file.getAbsolutePath() + CACHE_EXTENSION);
+		final boolean useCache = GamaPreferences.External.OSM_CACHE.getValue();
+		if (useCache) {
+			final IList<IShape> geometries = readCache(scope, file, cache);
+			if (geometries != null) { return geometries; }
+		}
+		final OsmNodeStore store = new OsmNodeStore();
+		final Set<Long> memberWays = new HashSet<>();
+		final List<Relation> relations = new ArrayList<>();
+		final Envelope bounds = new Envelope();
+		readFile(scope, new Sink() {
+
+			@Override
+			public void process(final EntityContainer entityContainer) {
+				final Entity entity = entityContainer.getEntity();
+				if (entity instanceof Bound) {
+					final Bound bound = (Bound) entity;
+					bounds.init(bound.getLeft(), bound.getRight(), bound.getBottom(), bound.getTop());
+				} else if (entity instanceof Node) {
+					env.expandToInclude(((Node) entity).getLongitude(), ((Node) entity).getLatitude());
+				} else if (entity instanceof Way) {
+					final Way way = (Way) entity;
+					if (!isKept(way)) { return; }
+					for (final WayNode node : way.getWayNodes()) {
+						store.require(node.getNodeId());
+					}
+					registerHighway(way, store::use, store::setIntersection);
+				} else if (entity instanceof Relation) {
+					relations.add((Relation) entity);
+					for (final RelationMember member : ((Relation) entity).getMembers()) {
+						if (member.getMemberType() == EntityType.Way) {
+							memberWays.add(member.getMemberId());
+						} else if (member.getMemberType() == EntityType.Node) {
+							store.require(member.getMemberId());
+						}
+					}
+				}
+			}
+
+			@Override
+			public void complete() {}
+
+			@Override
+			public void initialize(final Map<String, Object> arg0) {}
+		}, file);
+		final Envelope extent = bounds.isNull() ? new Envelope(env) : bounds;
+		computeProjection(scope, Envelope3D.of(extent));
+		final IList<IShape> geometries = GamaListFactory.create(Types.GEOMETRY);
+		final Map<Long, List<WayNode>> memberWayNodes = new HashMap<>();
+		readFile(scope, new Sink() {
+
+			@Override
+			public void process(final EntityContainer entityContainer) {
+				final Entity entity = entityContainer.getEntity();
+				if (entity instanceof Node) {
+					final Node node = (Node) entity;
+					store.locate(node.getId(), node.getLongitude(), node.getLatitude());
+					if (!node.getTags().isEmpty()) {
+						final GamaShape pt =
+								new GamaShape(new GamaPoint(node.getLongitude(), node.getLatitude()).getInnerGeometry());
+						buildNode(node, pt, geometries, store::setIntersection);
+					}
+				} else if (entity instanceof Way) {
+					final Way way = (Way) entity;
+					if (!isKept(way)) { return; }
+					if (memberWays.contains(way.getId())) {
+						memberWayNodes.put(way.getId(), way.getWayNodes());
+					}
+					buildWay(way, geometries, store::isIntersection, store::point);
+				}
+			}
+
+			@Override
+			public void complete() {}
+
+			@Override
+			public void initialize(final Map<String, Object> arg0) {}
+		}, file);
+		for (final Relation relation : relations) {
+			buildRelation(relation, geometries, memberWayNodes, store);
+		}
+		DEBUG.OUT("OSM file " + file.getName() + ": " + store.size() + " nodes stored, " + geometries.size()
+				+ " geometries built");
+		if (useCache) {
+			writeCache(file, cache, extent, geometries);
+		}
+		project(geometries);
+		nbObjects = geometries.size();
+		return geometries;
+	}
+
+	/**
+	 * Builds the geometries of the members of the relation, as buildGeometries() does, in the streaming mode
+	 */
+	private void buildRelation(final Relation relation, final List<IShape> geometries,
+			final Map<Long, List<WayNode>> memberWayNodes, final OsmNodeStore store) {
+		Object name = null;
+		for (final Tag tg : relation.getTags()) {
+			if (tg.getKey().split(":")[0].equals("name")) {
+				name = tg.getValue();
+			}
+		}
+		int order = 0;
+		for (final RelationMember member : relation.getMembers()) {
+			if (member.getMemberType() == EntityType.Way) {
+				final List<WayNode> wayNodes = memberWayNodes.get(member.getMemberId());
+				if (wayNodes == null) {
+					continue;
+				}
+				final Map<String, Object> wayValues = GamaMapFactory.create();
+				wayValues.put("entity_order", order++);
+				wayValues.put("gama_bus_line", name);
+				wayValues.put("osm_way_id", member.getMemberId());
+				if (wayNodes.size() > 0) {
+					geometries.addAll(createSplitRoad(wayNodes, wayValues, store::isIntersection, store::point));
+				}
+			} else if (member.getMemberType() == EntityType.Node) {
+				final GamaPoint location = store.point(member.getMemberId());
+				if (location != null) {
+					final GamaShape pt = new GamaShape(location.getInnerGeometry());
+					pt.setAttribute("gama_bus_line", name);
+					geometries.add(pt);
+				}
+			}
+		}
+	}
+
+	private void project(final List<IShape> geometries) {
+		if (gis == null) { return; }
+		for (final IShape geom : geometries) {
+			geom.setInnerGeometry(gis.transform(geom.getInnerGeometry()));
+		}
+	}
+
+	/**
+	 * Writes the header of the cache, which identifies the version of the source file and the filtering options
+	 */
+	private void writeCacheHeader(final DataOutputStream out, final File file) throws IOException {
+		out.writeInt(CACHE_VERSION);
+		out.writeLong(file.length());
+		out.writeLong(file.lastModified());
+		out.writeUTF(filteringOptions == null ? "" : filteringOptions.toString());
+	}
+
+	private boolean readCacheHeader(final DataInputStream in, final File file) throws IOException {
+		return in.readInt() == CACHE_VERSION && in.readLong() == file.length() && in.readLong() == file.lastModified()
+				&& in.readUTF().equals(filteringOptions == null ? "" : filteringOptions.toString());
+	}
+
+	/**
+	 * Saves the geometries (in WGS84), their attributes, the layers and the attributes of the layers
+	 */
+	private void writeCache(final File file, final File cache, final Envelope extent,
+			final List<IShape> geometries) {
+		final File tmp = new File(cache.getPath() + ".tmp");
+		try (DataOutputStream out =
+				new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			writeCacheHeader(out, file);
+			out.writeDouble(extent.getMinX());
+			out.writeDouble(extent.getMaxX());
+			out.writeDouble(extent.getMinY());
+			out.writeDouble(extent.getMaxY());
+			final WKBWriter writer = new WKBWriter();
+			final Map<IShape, Integer> indices = new IdentityHashMap<>();
+			final List<Object> atts = new ArrayList<>();
+			out.writeInt(geometries.size());
+			for (int i = 0; i < geometries.size(); i++) {
+				final IShape geom = geometries.get(i);
+				indices.put(geom, i);
+				final byte[] wkb = writer.write(geom.getInnerGeometry());
+				out.writeInt(wkb.length);
+				out.write(wkb);
+				atts.clear();
+				geom.forEachAttribute((k, v) -> {
+					atts.add(k);
+					atts.add(v);
+					return true;
+				});
+				out.writeInt(atts.size() / 2);
+				for (int j = 0; j < atts.size(); j += 2) {
+					out.writeUTF((String) atts.get(j));
+					writeCacheValue(out, atts.get(j + 1));
+				}
+			}
+			out.writeInt(layers.size());
+			for (final Map.Entry<String, List<IShape>> layer : layers.entrySet()) {
+				out.writeUTF(layer.getKey());
+				out.writeInt(layer.getValue().size());
+				for (final IShape geom : layer.getValue()) {
+					final Integer index = indices.get(geom);
+					out.writeInt(index == null ? -1 : index);
+				}
+			}
+			out.writeInt(attributes.size());
+			for (final Map.Entry<String, String> att : attributes.entrySet()) {
+				out.writeUTF(att.getKey());
+				out.writeUTF(att.getValue());
+			}
+		} catch (final IOException e) {
+			DEBUG.ERR("Unable to write the cache of " + file.getName(), e);
+			tmp.delete();
+			return;
+		}
+		try {
+			Files.move(tmp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException e) {
+			DEBUG.ERR("Unable to write the cache of " + file.getName(), e);
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Reads the geometries saved in the cache, or returns null if it does not exist or does not correspond to the
+	 * file
+	 */
+	private IList<IShape> readCache(final IScope scope, final File file, final File cache) {
+		if (!cache.exists() || cache.lastModified() < file.lastModified()) { return null; }
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cache), 1 << 16))) {
+			if (!readCacheHeader(in, file)) { return null; }
+			final double x1 = in.readDouble(), x2 = in.readDouble(), y1 = in.readDouble(), y2 = in.readDouble();
+			final WKBReader reader = new WKBReader(GeometryUtils.GEOMETRY_FACTORY);
+			final IShape[] shapes = new IShape[in.readInt()];
+			for (int i = 0; i < shapes.length; i++) {
+				final byte[] wkb = new byte[in.readInt()];
+				in.readFully(wkb);
+				final GamaShape geom = new GamaShape(reader.read(wkb));
+				for (int j = in.readInt(); j > 0; j--) {
+					geom.setAttribute(in.readUTF(), readCacheValue(in));
+				}
+				shapes[i] = geom;
+			}
+			final Map<String, List<IShape>> cachedLayers = new LinkedHashMap<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				final String name = in.readUTF();
+				final List<IShape> objs = GamaListFactory.create(Types.GEOMETRY);
+				for (int j = in.readInt(); j > 0; j--) {
+					final int index = in.readInt();
+					if (index >= 0) {
+						objs.add(shapes[index]);
+					}
+				}
+				cachedLayers.put(name, objs);
+			}
+			final Map<String, String> cachedAttributes = new HashMap<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				cachedAttributes.put(in.readUTF(), in.readUTF());
+			}
+			env.expandToInclude(new Envelope(x1, x2, y1, y2));
+			computeProjection(scope, Envelope3D.of(x1, x2, y1, y2, 0, 0));
+			cachedLayers.forEach((name, objs) -> {
+				final List<IShape> existing = layers.get(name);
+				if (existing == null) {
+					layers.put(name, objs);
+				} else {
+					existing.addAll(objs);
+				}
+			});
+			attributes.putAll(cachedAttributes);
+			final IList<IShape> geometries = GamaListFactory.create(Types.GEOMETRY);
+			geometries.addAll(Arrays.asList(shapes));
+			project(geometries);
+			nbObjects = geometries.size();
+			return geometries;
+		} catch (final IOException | ParseException e) {
+			DEBUG.ERR("Unable to read the cache of " + file.getName(), e);
+			return null;
+		}
+	}
+
+	private static void writeCacheValue(final DataOutputStream out, final Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(0);
+		} else if (value instanceof Integer) {
+			out.writeByte(1);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(2);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(3);
+			out.writeDouble((Double) value);
+		} else {
+			out.writeByte(4);
+			out.writeUTF(value.toString());
+		}
+	}
+
+	private static Object readCacheValue(final DataInputStream in) throws IOException {
+		switch (in.readByte()) {
+			case 1:
+				return in.readInt();
+			case 2:
+				return in.readLong();
+			case 3:
+				return in.readDouble();
+			case 4:
+				return in.readUTF();
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Whether the way passes the filtering options of the file
+	 */
+	boolean isKept(final Way way) {
+		if (filteringOptions == null || filteringOptions.isEmpty()) { return true; }
+		for (final String keyN : filteringOptions.getKeys()) {
+			final IList valsPoss = filteringOptions.get(keyN);
+			for (final Tag tagN : way.getTags()) {
+				if (keyN.equals(tagN.getKey())) {
+					if (valsPoss == null || valsPoss.isEmpty() || valsPoss.contains(tagN.getValue())) { return true; }
+				}
+			}
+		}
+		return false;
+	}
+
 	private void addAttribute(final Map<String, String> atts, final String nameAt, final Object val) {
 		final String type = atts.get(nameAt);
 		if (type != null && type.equals("string")) { return; }
@@ -401,157 +751,13 @@ public class GamaOsmFile extends GamaGisFile {
 		for (final Node node : nodes) {
 			geomMap.put(node.getId(), node);
 			final GamaShape pt = nodesPt.get(node.getId());
-			final boolean hasAttributes = !node.getTags().isEmpty();
-			final Map<String, String> atts = new HashMap<>();
 			if (pt != null) {
-				for (final Tag tg : node.getTags()) {
-					final String key = tg.getKey().split(":")[0];
-					final Object val = tg.getValue();
-					if (val != null) {
-						addAttribute(atts, key, val);
-					}
-					pt.setAttribute(key, val);
-					if (key.equals("highway")) {
-						intersectionNodes.add(node.getId());
-					}
-				}
-				if (hasAttributes) {
-					geometries.add(pt);
-					pt.forEachAttribute((att, val) -> {
-
-						if (featureTypes.contains(att)) {
-							final String idType = att + " (point)";
-							List objs = layers.get(idType);
-							if (objs == null) {
-								objs = GamaListFactory.create(Types.GEOMETRY);
-								layers.put(idType, objs);
-							}
-							objs.add(pt);
-							for (final String v : atts.keySet()) {
-								final String id = idType + ";" + v;
-								attributes.put(id, atts.get(v));
-							}
-							return false;
-						}
-
-						return true;
-					});
-					// for (final Object att : pt.getAttributes().keySet()) {
-					// if (featureTypes.contains(att)) {
-					// final String idType = att + " (point)";
-					// List objs = layers.get(idType);
-					// if (objs == null) {
-					// objs = GamaListFactory.create(Types.GEOMETRY);
-					// layers.put(idType, objs);
-					// }
-					// objs.add(pt);
-					// for (final String v : atts.keySet()) {
-					// final String id = idType + ";" + v;
-					// attributes.put(id, atts.get(v));
-					// }
-					// break;
-					// }
-					// }
-				}
+				buildNode(node, pt, geometries, intersectionNodes::add);
 			}
 		}
 		for (final Way way : ways) {
 			geomMap.put(way.getId(), way);
-			final IMap<String, Object> values = GamaMapFactory.create();
-			final Map<String, String> atts = GamaMapFactory.createUnordered();
-
-			for (final Tag tg : way.getTags()) {
-				final String key = tg.getKey().split(":")[0];
-				final Object val = tg.getValue();
-				if (val != null) {
-					addAttribute(atts, key, val);
-				}
-				values.put(key, tg.getValue());
-			}
-			values.put("osm_id", way.getId());
-
-			final boolean isPolyline = values.containsKey("highway") || way.getWayNodes().get(0).getNodeId() != way
-					.getWayNodes().get(way.getWayNodes().size() - 1).getNodeId();
-			if (isPolyline) {
-				final List<IShape> geoms = createSplitRoad(way.getWayNodes(), values, intersectionNodes, nodesPt);
-				geometries.addAll(geoms);
-				if (!geoms.isEmpty()) {
-					for (final Object att : values.keySet()) {
-						final String idType = att + " (line)";
-						if (featureTypes.contains(att)) {
-							List objs = layers.get(idType);
-							if (objs == null) {
-								objs = GamaListFactory.create(Types.GEOMETRY);
-								layers.put(idType, objs);
-							}
-							objs.addAll(geoms);
-							for (final String v : atts.keySet()) {
-								final String id = idType + ";" + v;
-								attributes.put(id, atts.get(v));
-							}
-							break;
-						}
-					}
-				}
-			} else {
-				final List<IShape> points = GamaListFactory.create(Types.GEOMETRY);
-				for (final WayNode node : way.getWayNodes()) {
-					final GamaShape pp = nodesPt.get(node.getNodeId());
-					if (pp == null) {
-						continue;
-					}
-					points.add(pp);
-				}
-				if (points.size() < 3) {
-					continue;
-				}
-				
-				final IShape geom = GamaGeometryType.buildPolygon(points);
-			
-				if (geom != null && geom.getInnerGeometry() != null && !geom.getInnerGeometry().isEmpty()
-						&& geom.getInnerGeometry().getArea() > 0) {
-					
-					values.forEach((k, v) -> geom.setAttribute(k, v));
-					geometries.add(geom);
-					// if (geom.getAttributes() != null) {}
-
-					geom.forEachAttribute((att, val) -> {
-						final String idType = att + " (polygon)";
-						if (featureTypes.contains(att)) {
-							List objs = layers.get(idType);
-							if (objs == null) {
-								objs = GamaListFactory.create(Types.GEOMETRY);
-								layers.put(idType, objs);
-							}
-							objs.add(geom);
-							for (final String v : atts.keySet()) {
-								final String id = idType + ";" + v;
-								attributes.put(id, atts.get(v));
-							}
-							return false;
-						}
-						return true;
-					});
-					// for (final Object att : geom.getAttributes().keySet()) {
-					// final String idType = att + " (polygon)";
-					// if (featureTypes.contains(att)) {
-					// List objs = layers.get(idType);
-					// if (objs == null) {
-					// objs = GamaListFactory.create(Types.GEOMETRY);
-					// layers.put(idType, objs);
-					// }
-					// objs.add(geom);
-					// for (final String v : atts.keySet()) {
-					// final String id = idType + ";" + v;
-					// attributes.put(id, atts.get(v));
-					// }
-					// break;
-					// }
-					// }
-
-				}
-			}
-
+			buildWay(way, geometries, intersectionNodes::contains, nodesPt::get);
 		}
 		for (final Relation relation : relations) {
 			final Map<String, Object> values = GamaMapFactory.create();
@@ -598,20 +804,185 @@ public class GamaOsmFile extends GamaGisFile {
 		return geometries;
 	}
 
+	/**
+	 * Adds the node to the geometries (and to the layers) if it has attributes
+	 */
+	private void buildNode(final Node node, final GamaShape pt, final List<IShape> geometries,
+			final LongConsumer highwayNodes) {
+		final boolean hasAttributes = !node.getTags().isEmpty();
+		final Map<String, String> atts = new HashMap<>();
+		for (final Tag tg : node.getTags()) {
+			final String key = tg.getKey().split(":")[0];
+			final Object val = tg.getValue();
+			if (val != null) {
+				addAttribute(atts, key, val);
+			}
+			pt.setAttribute(key, val);
+			if (key.equals("highway")) {
+				highwayNodes.accept(node.getId());
+			}
+		}
+		if (hasAttributes) {
+			geometries.add(pt);
+			pt.forEachAttribute((att, val) -> {
+
+				if (featureTypes.contains(att)) {
+					final String idType = att + " (point)";
+					List objs = layers.get(idType);
+					if (objs == null) {
+						objs = GamaListFactory.create(Types.GEOMETRY);
+						layers.put(idType, objs);
+					}
+					objs.add(pt);
+					for (final String v : atts.keySet()) {
+						final String id = idType + ";" + v;
+						attributes.put(id, atts.get(v));
+					}
+					return false;
+				}
+
+				return true;
+			});
+			// for (final Object att : pt.getAttributes().keySet()) {
+			// if (featureTypes.contains(att)) {
+			// final String idType = att + " (point)";
+			// List objs = layers.get(idType);
+			// if (objs == null) {
+			// objs = GamaListFactory.create(Types.GEOMETRY);
+			// layers.put(idType, objs);
+			// }
+			// objs.add(pt);
+			// for (final String v : atts.keySet()) {
+			// final String id = idType + ";" + v;
+			// attributes.put(id, atts.get(v));
+			// }
+			// break;
+			// }
+			// }
+		}
+	}
+
+	/**
+	 * Builds the geometries of the way (split at the intersections if it is a polyline) and adds them to the geometries
+	 * and to the layers
+	 */
+	private void buildWay(final Way way, final List<IShape> geometries, final LongPredicate isIntersection,
+			final LongFunction<? extends IShape> locations) {
+		final IMap<String, Object> values = GamaMapFactory.create();
+		final Map<String, String> atts = GamaMapFactory.createUnordered();
+
+		for (final Tag tg : way.getTags()) {
+			final String key = tg.getKey().split(":")[0];
+			final Object val = tg.getValue();
+			if (val != null) {
+				addAttribute(atts, key, val);
+			}
+			values.put(key, tg.getValue());
+		}
+		values.put("osm_id", way.getId());
+
+		final boolean isPolyline = values.containsKey("highway") || way.getWayNodes().get(0).getNodeId() != way
+				.getWayNodes().get(way.getWayNodes().size() - 1).getNodeId();
+		if (isPolyline) {
+			final List<IShape> geoms = createSplitRoad(way.getWayNodes(), values, isIntersection, locations);
+			geometries.addAll(geoms);
+			if (!geoms.isEmpty()) {
+				for (final Object att : values.keySet()) {
+					final String idType = att + " (line)";
+					if (featureTypes.contains(att)) {
+						List objs = layers.get(idType);
+						if (objs == null) {
+							objs = GamaListFactory.create(Types.GEOMETRY);
+							layers.put(idType, objs);
+						}
+						objs.addAll(geoms);
+						for (final String v : atts.keySet()) {
+							final String id = idType + ";" + v;
+							attributes.put(id, atts.get(v));
+						}
+						break;
+					}
+				}
+			}
+		} else {
+			final List<IShape> points = GamaListFactory.create(Types.GEOMETRY);
+			for (final WayNode node : way.getWayNodes()) {
+				final IShape pp = locations.apply(node.getNodeId());
+				if (pp == null) {
+					continue;
+				}
+				points.add(pp);
+			}
+			if (points.size() < 3) {
+				return;
+			}
+			
+			final IShape geom = GamaGeometryType.buildPolygon(points);
+		
+			if (geom != null && geom.getInnerGeometry() != null && !geom.getInnerGeometry().isEmpty()
+					&& geom.getInnerGeometry().getArea() > 0) {
+				
+				values.forEach((k, v) -> geom.setAttribute(k, v));
+				geometries.add(geom);
+				// if (geom.getAttributes() != null) {}
+
+				geom.forEachAttribute((att, val) -> {
+					final String idType = att + " (polygon)";
+					if (featureTypes.contains(att)) {
+						List objs = layers.get(idType);
+						if (objs == null) {
+							objs = GamaListFactory.create(Types.GEOMETRY);
+							layers.put(idType, objs);
+						}
+						objs.add(geom);
+						for (final String v : atts.keySet()) {
+							final String id = idType + ";" + v;
+							attributes.put(id, atts.get(v));
+						}
+						return false;
+					}
+					return true;
+				});
+				// for (final Object att : geom.getAttributes().keySet()) {
+				// final String idType = att + " (polygon)";
+				// if (featureTypes.contains(att)) {
+				// List objs = layers.get(idType);
+				// if (objs == null) {
+				// objs = GamaListFactory.create(Types.GEOMETRY);
+				// layers.put(idType, objs);
+				// }
+				// objs.add(geom);
+				// for (final String v : atts.keySet()) {
+				// final String id = idType + ";" + v;
+				// attributes.put(id, atts.get(v));
+				// }
+				// break;
+				// }
+				// }
+
+			}
+		}
+	}
+
 	public List<IShape> createSplitRoad(final List<WayNode> wayNodes, final Map<String, Object> values,
 			final Set<Long> intersectionNodes, final Map<Long, GamaShape> nodesPt) {
+		return createSplitRoad(wayNodes, values, intersectionNodes::contains, nodesPt::get);
+	}
+
+	List<IShape> createSplitRoad(final List<WayNode> wayNodes, final Map<String, Object> values,
+			final LongPredicate isIntersection, final LongFunction<? extends IShape> locations) {
 		final List<List<IShape>> pointsList = GamaListFactory.create(Types.LIST.of(Types.GEOMETRY));
 		List<IShape> points = GamaListFactory.create(Types.GEOMETRY);
 		final IList<IShape> geometries = GamaListFactory.create(Types.GEOMETRY);
 		final WayNode endNode = wayNodes.get(wayNodes.size() - 1);
 		for (final WayNode node : wayNodes) {
-			final Long id = node.getNodeId();
-			final GamaShape pt = nodesPt.get(id);
+			final long id = node.getNodeId();
+			final IShape pt = locations.apply(id);
 			if (pt == null) {
 				continue;
 			}
 			points.add(pt);
-			if (intersectionNodes.contains(id) || node == endNode) {
+			if (isIntersection.test(id) || node == endNode) {
 				if (points.size() > 1) {
 					pointsList.add(points);
 				}
@@ -647,20 +1018,28 @@ public class GamaOsmFile extends GamaGisFile {
 	}
 
 	void registerHighway(final Way way, final Set<Long> usedNodes, final Set<Long> intersectionNodes) {
+		registerHighway(way, usedNodes::add, intersectionNodes::add);
+	}
+
+	/**
+	 * Marks as intersections the nodes of the way (if it is a highway) already used by another highway
+	 *
+	 * @param firstUse
+	 *            declares that a node is used by a highway and returns whether it is the first time
+	 */
+	void registerHighway(final Way way, final LongPredicate firstUse, final LongConsumer intersectionNodes) {
 		for (final Tag tg : way.getTags()) {
 			final String key = tg.getKey();
 			if (key.equals("highway")) {
 				final List<WayNode> nodes = way.getWayNodes();
 				for (final WayNode node : nodes) {
 					final long id = node.getNodeId();
-					if (usedNodes.contains(id)) {
-						intersectionNodes.add(id);
-					} else {
-						usedNodes.add(id);
+					if (!firstUse.test(id)) {
+						intersectionNodes.accept(id);
 					}
 				}
 				if (nodes.size() > 2 && nodes.get(0) == nodes.get(nodes.size() - 1)) {
-					intersectionNodes.add(nodes.get(nodes.size() / 2).getNodeId());
+					intersectionNodes.accept(nodes.get(nodes.size() / 2).getNodeId());
 				}
 			}
 		}
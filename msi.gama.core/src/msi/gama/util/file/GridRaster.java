@@ -0,0 +1,401 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.util.file.GridRaster.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and
+ * simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.geometry.GeneralEnvelope;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Read-only access to the values of the cells of a grid file, decoded on demand instead of being all loaded (and turned
+ * into geometries) when the file is opened. Columns and rows are numbered from the upper left corner of the grid, as
+ * the cells of the grid species. The envelope is expressed in the coordinates of the file (before any projection).
+ * <ul>
+ * <li>ASC files are memory-mapped: only the header is parsed when they are opened; the positions of the rows in the
+ * file are indexed the first time they are reached, and the rows are decoded when they are accessed and kept in a
+ * small cache.</li>
+ * <li>GeoTIFF files are read through their coverage, whose image is loaded tile by tile when the tiles are
+ * accessed.</li>
+ * </ul>
+ */
+public abstract class GridRaster {
+
+	int numRows, numCols, nbBands = 1;
+	double noData = -9999;
+	Envelope envelope;
+
+	public int getNbRows() {
+		return numRows;
+	}
+
+	public int getNbCols() {
+		return numCols;
+	}
+
+	public int getNbBands() {
+		return nbBands;
+	}
+
+	public double getNoData() {
+		return noData;
+	}
+
+	public Envelope getEnvelope() {
+		return envelope;
+	}
+
+	/**
+	 * The value of the band in the cell
+	 */
+	public abstract double value(int col, int row, int band);
+
+	/**
+	 * The value given to the "grid_value" of the cell (the value of its first band, by default)
+	 */
+	public double gridValue(final int col, final int row) {
+		return value(col, row, 0);
+	}
+
+	/**
+	 * The values of all the bands in the cell
+	 */
+	public double[] bands(final int col, final int row) {
+		final double[] result = new double[nbBands];
+		for (int b = 0; b < nbBands; b++) {
+			result[b] = value(col, row, b);
+		}
+		return result;
+	}
+
+	/**
+	 * The "grid_value" of the cell containing the point (expressed in the coordinates of the file), or the no data
+	 * value if it is outside the grid
+	 */
+	public double valueAt(final double x, final double y) {
+		final int col = (int) Math.floor((x - envelope.getMinX()) / envelope.getWidth() * numCols);
+		final int row = (int) Math.floor((envelope.getMaxY() - y) / envelope.getHeight() * numRows);
+		if (col < 0 || col >= numCols || row < 0 || row >= numRows) { return noData; }
+		return gridValue(col, row);
+	}
+
+	public void dispose() {}
+
+	/**
+	 * An ASC file mapped in memory
+	 */
+	public static class Asc extends GridRaster {
+
+		// The size of the memory-mapped segments of the file
+		private static final int SEGMENT_SHIFT = 30;
+		private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+		// The maximum size of the rows kept decoded
+		private static final long CACHE_SIZE = 32 * 1024 * 1024;
+		private static final double[] POWERS_OF_TEN = new double[16];
+
+		static {
+			POWERS_OF_TEN[0] = 1;
+			for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+				POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+			}
+		}
+
+		private final MappedByteBuffer[] segments;
+		private final long length;
+		private final long[] rowStarts;
+		private int indexedRows;
+		private final Map<Integer, double[]> rows;
+		private final byte[] token = new byte[64];
+		private long cursor;
+
+		public Asc(final File file) throws IOException {
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+				length = channel.size();
+				segments = new MappedByteBuffer[(int) (length >>> SEGMENT_SHIFT) + 1];
+				for (int i = 0; i < segments.length; i++) {
+					final long start = (long) i << SEGMENT_SHIFT;
+					segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+							Math.min(length - start, SEGMENT_MASK + 1));
+				}
+			}
+			readHeader();
+			rowStarts = new long[numRows];
+			rowStarts[0] = cursor;
+			indexedRows = 1;
+			final int maxRows = (int) Math.max(1, CACHE_SIZE / (8L * numCols));
+			rows = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<Integer, double[]> eldest) {
+					return size() > maxRows;
+				}
+			};
+		}
+
+		private void readHeader() throws IOException {
+			double xll = Double.NaN, yll = Double.NaN, dx = Double.NaN, dy = Double.NaN;
+			boolean xCenter = false, yCenter = false;
+			while (true) {
+				final long start = skipSpaces();
+				final int len = readToken();
+				if (len == 0) { throw new IOException("Unexpected end of file in the header"); }
+				final char first = (char) token[0];
+				// The header ends with the first value of the grid
+				if (Character.isDigit(first) || first == '-' || first == '+' || first == '.') {
+					cursor = start;
+					break;
+				}
+				final String key = new String(token, 0, len, StandardCharsets.US_ASCII).toLowerCase();
+				skipSpaces();
+				final double value = parseToken(readToken());
+				switch (key) {
+					case "ncols":
+						numCols = (int) value;
+						break;
+					case "nrows":
+						numRows = (int) value;
+						break;
+					case "xllcenter":
+						xCenter = true;
+						xll = value;
+						break;
+					case "xllcorner":
+						xll = value;
+						break;
+					case "yllcenter":
+						yCenter = true;
+						yll = value;
+						break;
+					case "yllcorner":
+						yll = value;
+						break;
+					case "cellsize":
+						dx = dy = value;
+						break;
+					case "dx":
+						dx = value;
+						break;
+					case "dy":
+						dy = value;
+						break;
+					case "nodata_value":
+						noData = value;
+						break;
+					default:
+						throw new IOException("Unknown key in the header: " + key);
+				}
+			}
+			if (numCols <= 0 || numRows <= 0 || Double.isNaN(xll) || Double.isNaN(yll) || Double.isNaN(dx)
+					|| Double.isNaN(dy)) {
+				throw new IOException("Incomplete header");
+			}
+			if (xCenter) {
+				xll -= dx / 2;
+			}
+			if (yCenter) {
+				yll -= dy / 2;
+			}
+			envelope = new Envelope(xll, xll + numCols * dx, yll, yll + numRows * dy);
+		}
+
+		private int byteAt(final long position) {
+			return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+		}
+
+		private static boolean isSpace(final int c) {
+			return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',';
+		}
+
+		/**
+		 * Moves the cursor to the next token and returns its position
+		 */
+		private long skipSpaces() {
+			while (cursor < length && isSpace(byteAt(cursor))) {
+				cursor++;
+			}
+			return cursor;
+		}
+
+		/**
+		 * Copies the token at the cursor in the token buffer and returns its length
+		 */
+		private int readToken() {
+			int len = 0;
+			while (cursor < length) {
+				final int c = byteAt(cursor);
+				if (isSpace(c)) {
+					break;
+				}
+				if (len < token.length) {
+					token[len++] = (byte) c;
+				}
+				cursor++;
+			}
+			return len;
+		}
+
+		/**
+		 * Parses the number in the token buffer. Decimal numbers with less than 16 digits are parsed directly (the
+		 * division by an exact power of ten gives the same result as Double.parseDouble()), the others by
+		 * Double.parseDouble()
+		 */
+		private double parseToken(final int len) {
+			int i = 0;
+			boolean negative = false;
+			if (len > 0 && (token[0] == '-' || token[0] == '+')) {
+				negative = token[0] == '-';
+				i++;
+			}
+			long mantissa = 0;
+			int digits = 0, decimals = 0;
+			boolean dot = false, simple = i < len;
+			for (; i < len && simple; i++) {
+				final int c = token[i];
+				if (c >= '0' && c <= '9') {
+					mantissa = mantissa * 10 + c - '0';
+					digits++;
+					if (dot) {
+						decimals++;
+					}
+				} else if (c == '.' && !dot) {
+					dot = true;
+				} else {
+					simple = false;
+				}
+			}
+			if (simple && digits > 0 && digits < POWERS_OF_TEN.length) {
+				final double value = mantissa / POWERS_OF_TEN[decimals];
+				return negative ? -value : value;
+			}
+			try {
+				return Double.parseDouble(new String(token, 0, len, StandardCharsets.US_ASCII));
+			} catch (final NumberFormatException e) {
+				return noData;
+			}
+		}
+
+		private double[] row(final int r) {
+			double[] values = rows.get(r);
+			if (values != null) { return values; }
+			// Indexes the rows before it, by skipping their values
+			while (indexedRows <= r) {
+				cursor = rowStarts[indexedRows - 1];
+				for (int c = 0; c < numCols; c++) {
+					skipSpaces();
+					readToken();
+				}
+				rowStarts[indexedRows++] = skipSpaces();
+			}
+			values = new double[numCols];
+			cursor = rowStarts[r];
+			for (int c = 0; c < numCols; c++) {
+				skipSpaces();
+				values[c] = parseToken(readToken());
+			}
+			if (r + 1 == indexedRows && r + 1 < numRows) {
+				rowStarts[indexedRows++] = skipSpaces();
+			}
+			rows.put(r, values);
+			return values;
+		}
+
+		@Override
+		public synchronized double value(final int col, final int row, final int band) {
+			return row(row)[col];
+		}
+
+		/**
+		 * Returns the whole row of values (which must not be modified)
+		 */
+		public synchronized double[] getRow(final int row) {
+			return row(row);
+		}
+
+		@Override
+		public synchronized void dispose() {
+			rows.clear();
+		}
+
+	}
+
+	/**
+	 * A coverage read by geotools, whose image is accessed tile by tile
+	 */
+	public static class Coverage extends GridRaster {
+
+		private final GridCoverage2D coverage;
+		private final AbstractGridCoverage2DReader store;
+		private final RenderedImage image;
+		private final boolean bytes;
+
+		public Coverage(final AbstractGridCoverage2DReader store, final GridCoverage2D coverage, final Number noData) {
+			this.store = store;
+			this.coverage = coverage;
+			image = coverage.getRenderedImage();
+			numCols = image.getWidth();
+			numRows = image.getHeight();
+			nbBands = image.getSampleModel().getNumBands();
+			bytes = image.getSampleModel().getDataType() == DataBuffer.TYPE_BYTE;
+			if (noData != null) {
+				this.noData = noData.doubleValue();
+			}
+			final GeneralEnvelope env = (GeneralEnvelope) coverage.getEnvelope();
+			envelope = new Envelope(env.getMinimum(0), env.getMaximum(0), env.getMinimum(1), env.getMaximum(1));
+		}
+
+		@Override
+		public double value(final int col, final int row, final int band) {
+			final int x = image.getMinX() + col;
+			final int y = image.getMinY() + row;
+			final Raster tile = image.getTile(Math.floorDiv(x - image.getTileGridXOffset(), image.getTileWidth()),
+					Math.floorDiv(y - image.getTileGridYOffset(), image.getTileHeight()));
+			final double value = tile.getSampleDouble(x, y, band);
+			// Bytes are signed, as when they are read from the coverage
+			return bytes ? (byte) value : value;
+		}
+
+		@Override
+		public double gridValue(final int col, final int row) {
+			if (bytes && nbBands == 3) {
+				double sum = 0;
+				for (int b = 0; b < 3; b++) {
+					final double v = value(col, row, b);
+					sum += v < 0 ? 256 + v : v;
+				}
+				return sum / 3.0;
+			}
+			return super.gridValue(col, row);
+		}
+
+		@Override
+		public void dispose() {
+			coverage.dispose(true);
+			if (store != null) {
+				store.dispose();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.util.file.OsmNodeStore.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and
+ * simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file;
+
+import java.util.Arrays;
+
+import msi.gama.metamodel.shape.GamaPoint;
+
+/**
+ * The nodes of an OSM file used by the streaming import of GamaOsmFile: the ids of the nodes required by the ways kept
+ * (collected during a first pass on the file), their coordinates (read during the second pass) and whether they are
+ * used by several highways. They are stored in an open addressing hash table made of primitive arrays, which takes
+ * about 40 bytes per node instead of the hundreds taken by a Long, a Node and a GamaShape.
+ */
+final class OsmNodeStore {
+
+	private static final long FREE = Long.MIN_VALUE;
+	private static final byte REQUIRED = 1, LOCATED = 2, USED = 4, INTERSECTION = 8;
+
+	private long[] ids;
+	private double[] xs, ys;
+	private byte[] flags;
+	private int size;
+
+	OsmNodeStore() {
+		allocate(1 << 16);
+	}
+
+	private void allocate(final int capacity) {
+		ids = new long[capacity];
+		Arrays.fill(ids, FREE);
+		xs = new double[capacity];
+		ys = new double[capacity];
+		flags = new byte[capacity];
+	}
+
+	private int slot(final long id) {
+		final int mask = ids.length - 1;
+		long h = id * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		int i = (int) h & mask;
+		while (ids[i] != FREE && ids[i] != id) {
+			i = i + 1 & mask;
+		}
+		return i;
+	}
+
+	private int add(final long id) {
+		int i = slot(id);
+		if (ids[i] == FREE) {
+			if (++size * 4 > ids.length * 3) {
+				grow();
+				i = slot(id);
+			}
+			ids[i] = id;
+		}
+		return i;
+	}
+
+	private void grow() {
+		final long[] oldIds = ids;
+		final double[] oldXs = xs, oldYs = ys;
+		final byte[] oldFlags = flags;
+		allocate(oldIds.length * 2);
+		for (int j = 0; j < oldIds.length; j++) {
+			if (oldIds[j] != FREE) {
+				final int i = slot(oldIds[j]);
+				ids[i] = oldIds[j];
+				xs[i] = oldXs[j];
+				ys[i] = oldYs[j];
+				flags[i] = oldFlags[j];
+			}
+		}
+	}
+
+	private boolean has(final long id, final byte flag) {
+		final int i = slot(id);
+		return ids[i] != FREE && (flags[i] & flag) != 0;
+	}
+
+	/**
+	 * Declares that the coordinates of the node will be needed
+	 */
+	void require(final long id) {
+		// The slot must be computed before the array is read, as the table may grow
+		final int i = add(id);
+		flags[i] |= REQUIRED;
+	}
+
+	/**
+	 * Records the coordinates of the node if they have been required, and returns whether they have
+	 */
+	boolean locate(final long id, final double x, final double y) {
+		final int i = slot(id);
+		if (ids[i] == FREE || (flags[i] & REQUIRED) == 0) { return false; }
+		xs[i] = x;
+		ys[i] = y;
+		flags[i] |= LOCATED;
+		return true;
+	}
+
+	/**
+	 * Returns a new point at the location of the node, or null if its coordinates are not known
+	 */
+	GamaPoint point(final long id) {
+		final int i = slot(id);
+		if (ids[i] == FREE || (flags[i] & LOCATED) == 0) { return null; }
+		return new GamaPoint(xs[i], ys[i]);
+	}
+
+	/**
+	 * Declares that the node is used by a highway, and returns true if it is the first one
+	 */
+	boolean use(final long id) {
+		final int i = add(id);
+		final boolean first = (flags[i] & USED) == 0;
+		flags[i] |= USED;
+		return first;
+	}
+
+	void setIntersection(final long id) {
+		final int i = add(id);
+		flags[i] |= INTERSECTION;
+	}
+
+	boolean isIntersection(final long id) {
+		return has(id, INTERSECTION);
+	}
+
+	int size() {
+		return size;
+	}
+
+}
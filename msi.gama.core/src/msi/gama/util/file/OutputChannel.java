@@ -0,0 +1,280 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.util.file.OutputChannel.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and
+ * simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.experiment.IExperimentAgent;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException.GamaRuntimeFileException;
+
+/**
+ * The output channel of a file written by the save statement. Instead of opening, appending to and closing the file
+ * each time something is saved, the channel keeps it open across the cycles and hands the writing to a background
+ * thread, through a bounded queue (which blocks the simulation only if the thread cannot keep up). All the channels
+ * share the same thread, so that the writes happen in the order they have been requested.
+ * <p>
+ * There is only one channel per file, shared by all the experiments that save to it, so that their writes are not
+ * interleaved in separate buffers. A channel is flushed when the file is read by GAMA (see GamaFile.getContents()),
+ * and closed when it is rewritten and when the last experiment using it is closed. The errors met by the thread are
+ * reported by the next operation on the channel.
+ * Writing in the background is only enabled by the preference "pref_save_asynchronous" (false by default, as the
+ * files may be read outside of GAMA while the simulation runs); otherwise each operation waits for the thread to
+ * complete it.
+ */
+public class OutputChannel {
+
+	/**
+	 * An operation on the file, run by the background thread
+	 */
+	@FunctionalInterface
+	public interface Task {
+
+		void run(OutputChannel channel) throws Exception;
+	}
+
+	private static final int QUEUE_SIZE = 1024;
+	// The key used for the channels opened outside of an experiment
+	private static final Object NO_EXPERIMENT = new Object();
+	private static final Map<File, OutputChannel> CHANNELS = new ConcurrentHashMap<>();
+	private static final BlockingQueue<Runnable> QUEUE = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private static Thread writerThread;
+
+	private final File file;
+	// The experiments using the channel. Only accessed while computing the entry of the file in CHANNELS
+	private final Set<Object> users = new HashSet<>();
+	// Only accessed by the background thread
+	private Writer writer;
+	private OutputStream stream;
+	private volatile Exception error;
+
+	private OutputChannel(final File file) {
+		this.file = file;
+	}
+
+	private static Object experimentOf(final IScope scope) {
+		final IExperimentAgent experiment = scope == null ? null : scope.getExperiment();
+		return experiment == null ? NO_EXPERIMENT : experiment;
+	}
+
+	/**
+	 * Returns the channel of the file, creating it if necessary, and records that the experiment of the scope uses it
+	 */
+	public static OutputChannel of(final IScope scope, final File file) {
+		final Object user = experimentOf(scope);
+		return CHANNELS.compute(file.getAbsoluteFile(), (f, c) -> {
+			final OutputChannel channel = c == null ? new OutputChannel(f) : c;
+			channel.users.add(user);
+			return channel;
+		});
+	}
+
+	/**
+	 * Waits until all the operations requested on the file, if it has a channel, are done and written to the disk
+	 */
+	public static void flush(final IScope scope, final File file) {
+		final OutputChannel channel = CHANNELS.get(file.getAbsoluteFile());
+		if (channel != null) {
+			channel.flush(scope);
+		}
+	}
+
+	/**
+	 * Flushes and closes the channel of the file, if it has one, for all the experiments using it. The next operation
+	 * on the file will open a new one
+	 */
+	public static void close(final IScope scope, final File file) {
+		final OutputChannel channel = CHANNELS.remove(file.getAbsoluteFile());
+		if (channel != null) {
+			channel.await(scope, OutputChannel::closeWriter);
+		}
+	}
+
+	/**
+	 * Releases all the channels used by the experiment of the scope (when it is closed), and flushes and closes the
+	 * ones no other experiment uses. The error met by each channel is reported without preventing the others from
+	 * being closed
+	 */
+	public static void closeAll(final IScope scope) {
+		final Object user = experimentOf(scope);
+		for (final File f : CHANNELS.keySet()) {
+			final OutputChannel[] unused = new OutputChannel[1];
+			CHANNELS.computeIfPresent(f, (k, c) -> {
+				if (!c.users.remove(user) || !c.users.isEmpty()) { return c; }
+				unused[0] = c;
+				return null;
+			});
+			if (unused[0] == null) { continue; }
+			try {
+				unused[0].await(scope, OutputChannel::closeWriter);
+			} catch (final GamaRuntimeFileException e) {
+				GAMA.reportError(scope, e, false);
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the writer appending to the file, opened if necessary. Must only be called by the tasks
+	 */
+	public Writer getWriter() throws IOException {
+		if (writer == null) {
+			writer = new BufferedWriter(new FileWriter(file, true));
+		}
+		return writer;
+	}
+
+	/**
+	 * Returns the stream appending bytes to the file, opened if necessary. Must only be called by the tasks, and not
+	 * mixed with the writer on the same file
+	 */
+	public OutputStream getStream() throws IOException {
+		if (stream == null) {
+			stream = new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16);
+		}
+		return stream;
+	}
+
+	/**
+	 * Appends the text to the file
+	 */
+	public void write(final IScope scope, final String text) {
+		submit(scope, channel -> channel.getWriter().write(text));
+	}
+
+	/**
+	 * Asks the background thread to run the task (or runs it through the background thread and waits for its end if
+	 * the writing in the background is disabled)
+	 */
+	public void submit(final IScope scope, final Task task) {
+		if (!GamaPreferences.External.SAVE_ASYNCHRONOUS.getValue()) {
+			await(scope, channel -> {
+				task.run(channel);
+				channel.flushWriter();
+			});
+			return;
+		}
+		checkError(scope);
+		enqueue(() -> {
+			try {
+				task.run(this);
+			} catch (final Exception e) {
+				error = e;
+			}
+		});
+	}
+
+	/**
+	 * Waits until all the operations requested on the file are done and written to the disk
+	 */
+	public void flush(final IScope scope) {
+		await(scope, OutputChannel::flushWriter);
+	}
+
+	private void flushWriter() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		if (stream != null) {
+			stream.flush();
+		}
+	}
+
+	private void closeWriter() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+		if (stream != null) {
+			stream.close();
+			stream = null;
+		}
+	}
+
+	private void await(final IScope scope, final Task task) {
+		final CountDownLatch done = new CountDownLatch(1);
+		enqueue(() -> {
+			try {
+				task.run(this);
+			} catch (final Exception e) {
+				error = e;
+			} finally {
+				done.countDown();
+			}
+		});
+		try {
+			done.await();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		checkError(scope);
+	}
+
+	private void checkError(final IScope scope) {
+		final Exception e = error;
+		if (e != null) {
+			error = null;
+			throw new GamaRuntimeFileException(scope, e);
+		}
+	}
+
+	private static void enqueue(final Runnable runnable) {
+		startWriterThread();
+		// The operation must not be lost, nor run by another thread than the background one
+		boolean interrupted = false;
+		while (true) {
+			try {
+				QUEUE.put(runnable);
+				break;
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static synchronized void startWriterThread() {
+		if (writerThread != null && writerThread.isAlive()) { return; }
+		writerThread = new Thread(() -> {
+			while (true) {
+				try {
+					QUEUE.take().run();
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}, "GAMA output writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+}
@@ -19,7 +19,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.EdgeFactory;
@@ -44,8 +43,10 @@ import msi.gama.common.util.StringUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.graph.ContractionHierarchy;
 import msi.gama.metamodel.topology.graph.FloydWarshallShortestPathsGAMA;
 import msi.gama.metamodel.topology.graph.GamaSpatialGraph.VertexRelationship;
+import msi.gama.metamodel.topology.graph.GraphCSR;
 import msi.gama.metamodel.topology.graph.NBAStarPathfinder;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
@@ -85,14 +86,14 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	protected boolean agentEdge;
 	protected final IScope graphScope;
 	protected final IContainerType type;
-	protected Map<Pair<V, V>, IList<IList<E>>> shortestPathComputed = null;
+	protected ShortestPathCache<V, E> shortestPathComputed = null;
 	protected VertexRelationship vertexRelation;
 	protected GamaIntMatrix shortestPathMatrix = null;
 
 	protected static double DEFAULT_NODE_WEIGHT = 0.0;
 
 	public enum shortestPathAlgorithm {
-		FloydWarshall, BellmannFord, Dijkstra, AStar, NBAStar, NBAStarApprox;
+		FloydWarshall, BellmannFord, Dijkstra, AStar, NBAStar, NBAStarApprox, ContractionHierarchies;
 	}
 
 	protected boolean saveComputedShortestPaths = true;
@@ -100,6 +101,11 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	protected ISpecies edgeSpecies;
 	protected shortestPathAlgorithm pathFindingAlgo = shortestPathAlgorithm.NBAStar;
 	private FloydWarshallShortestPathsGAMA<V, E> optimizer;
+	// Built at the first query and discarded whenever the structure or the weights of the graph change
+	private volatile ContractionHierarchy<V, E> hierarchy;
+	// Whether the path finders run on a compact copy of the graph (see freeze()), built and discarded in the same way
+	protected volatile boolean frozen;
+	private volatile GraphCSR<V, E> compact;
 
 	private Object linkedGraph = null;
 
@@ -119,7 +125,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		version = 1;
 		agentEdge = false;
 		this.graphScope = scope;
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>();
 		type = Types.GRAPH.of(nodeType, vertexType);
 	}
 
@@ -127,7 +133,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			final VertexRelationship rel, final ISpecies edgesSpecies, final IType nodeType, final IType edgeType) {
 		vertexMap = GamaMapFactory.create();
 		edgeMap = GamaMapFactory.create();
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>();
 		this.graphScope = scope;
 		// WARNING TODO Verify this
 		// IType nodeType = byEdge ? Types.NO_TYPE :
@@ -142,7 +148,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public GamaGraph(final IScope scope, final IType nodeType, final IType vertexType) {
 		vertexMap = GamaMapFactory.create();
 		edgeMap = GamaMapFactory.create();
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>();
 		this.graphScope = scope;
 		type = Types.GRAPH.of(nodeType, vertexType);
 	}
@@ -702,6 +708,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public void setEdgeWeight(final Object e, final double weight) {
 		if (!containsEdge(e)) { return; }
 		incVersion();
+		discardCompactStructures();
 		getEdge(e).setWeight(weight);
 	}
 
@@ -738,6 +745,111 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		return pathFromEdges(scope, source, target, computeBestRouteBetween(scope, source, target));
 	}
 
+	/**
+	 * Returns the shortest paths from the source to each of the targets (in the same order)
+	 *
+	 * @see #computeBestRoutesFrom(IScope, Object, List)
+	 */
+	public List<IPath<V, E, IGraph<V, E>>> computeShortestPathsFrom(final IScope scope, final V source,
+			final List<V> targets) {
+		return pathsFrom(scope, source, targets, computeBestRoutesFrom(scope, source, targets));
+	}
+
+	/**
+	 * Returns the paths following the routes from the source to each of the targets (in the same order)
+	 */
+	public List<IPath<V, E, IGraph<V, E>>> pathsFrom(final IScope scope, final V source, final List<V> targets,
+			final List<IList<E>> routes) {
+		final List<IPath<V, E, IGraph<V, E>>> result = new ArrayList<>(routes.size());
+		for (int i = 0; i < routes.size(); i++) {
+			result.add(pathFromEdges(scope, source, targets.get(i), routes.get(i)));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the lists of the edges of the shortest paths from the source to each of the targets (in the same order).
+	 * With Dijkstra, AStar and NBAStar, the routes that are not in the cache are all computed by a single search on
+	 * the compact copy of the graph, which stops once all the targets are reached; with the other algorithms, they are
+	 * computed one by one.
+	 */
+	public List<IList<E>> computeBestRoutesFrom(final IScope scope, final V source, final List<V> targets) {
+		final int n = targets.size();
+		final List<IList<E>> result = new ArrayList<>(Collections.nCopies(n, (IList<E>) null));
+		if (!searchesAllRoutes()) {
+			for (int i = 0; i < n; i++) {
+				result.set(i, computeBestRouteBetween(scope, source, targets.get(i)));
+			}
+			return result;
+		}
+		final List<Integer> positions = fillKnownRoutes(scope, source, targets, result);
+		if (positions.isEmpty()) { return result; }
+		final List<V> missing = new ArrayList<>(positions.size());
+		for (final int i : positions) {
+			missing.add(targets.get(i));
+		}
+		final List<IList<E>> routes = searchRoutes(source, missing);
+		saveRoutes(source, missing, routes);
+		for (int j = 0; j < routes.size(); j++) {
+			result.set(positions.get(j), routes.get(j));
+		}
+		return result;
+	}
+
+	/**
+	 * Whether the routes from a source to several targets are computed by a single search on the compact copy of the
+	 * graph (see computeBestRoutesFrom())
+	 */
+	public boolean searchesAllRoutes() {
+		return shortestPathMatrix == null && (pathFindingAlgo == shortestPathAlgorithm.Dijkstra
+				|| pathFindingAlgo == shortestPathAlgorithm.AStar || pathFindingAlgo == shortestPathAlgorithm.NBAStar
+				|| pathFindingAlgo == shortestPathAlgorithm.NBAStarApprox);
+	}
+
+	/**
+	 * Puts in the result the routes from the source to the targets which do not need a search (to the source itself,
+	 * or already in the cache), and returns the positions of the other targets
+	 */
+	public List<Integer> fillKnownRoutes(final IScope scope, final V source, final List<V> targets,
+			final List<IList<E>> result) {
+		final int n = targets.size();
+		final List<Integer> positions = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			final V target = targets.get(i);
+			if (source.equals(target)) {
+				result.set(i, GamaListFactory.create(getGamlType().getContentType()));
+				continue;
+			}
+			if (saveComputedShortestPaths) {
+				final IList<IList<E>> sp = shortestPathComputed.get(new Pair<>(source, target));
+				if (sp != null && !sp.isEmpty() && !sp.get(0).isEmpty()) {
+					result.set(i, GamaListFactory.create(scope, getGamlType().getContentType(), sp.get(0)));
+					continue;
+				}
+			}
+			positions.add(i);
+		}
+		return positions;
+	}
+
+	/**
+	 * Searches the routes from the source to the targets on the compact copy of the graph, without modifying the graph
+	 * nor its cache. Can be called concurrently
+	 */
+	public List<IList<E>> searchRoutes(final V source, final List<V> targets) {
+		return getCompactGraph().searchAll(source, targets);
+	}
+
+	/**
+	 * Records the routes found by searchRoutes() in the cache of the graph (if it is enabled)
+	 */
+	public void saveRoutes(final V source, final List<V> targets, final List<IList<E>> routes) {
+		if (!saveComputedShortestPaths) { return; }
+		for (int j = 0; j < routes.size(); j++) {
+			saveShortestPaths(routes.get(j), source, targets.get(j));
+		}
+	}
+
 	@Override
 	public IList<E> computeBestRouteBetween(final IScope scope, final V source, final V target) {
 		if (source.equals(target)) { return GamaListFactory.create(getGamlType().getContentType()); }
@@ -748,6 +860,24 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			}
 			return edges;
 		}
+		if (frozen && (pathFindingAlgo == shortestPathAlgorithm.Dijkstra || pathFindingAlgo == shortestPathAlgorithm.AStar
+				|| pathFindingAlgo == shortestPathAlgorithm.NBAStar
+				|| pathFindingAlgo == shortestPathAlgorithm.NBAStarApprox)) {
+			IList<IList<E>> sp1 = null;
+			if (saveComputedShortestPaths) {
+				sp1 = shortestPathComputed.get(new Pair<>(source, target));
+			}
+			IList<E> spl1 = null;
+			if (sp1 == null || sp1.isEmpty() || sp1.get(0).isEmpty()) {
+				spl1 = getCompactGraph().search(source, target);
+				if (saveComputedShortestPaths) {
+					saveShortestPaths(spl1, source, target);
+				}
+			} else {
+				spl1 = GamaListFactory.create(scope, getGamlType().getContentType(), sp1.get(0));
+			}
+			return spl1;
+		}
 		if (pathFindingAlgo == shortestPathAlgorithm.FloydWarshall) {
 			if (optimizer == null) {
 				optimizer = new FloydWarshallShortestPathsGAMA<>(this);
@@ -833,6 +963,21 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 
 			return spl3;
 
+		} else if (pathFindingAlgo == shortestPathAlgorithm.ContractionHierarchies) {
+			IList<IList<E>> sp1 = null;
+			if (saveComputedShortestPaths) {
+				sp1 = shortestPathComputed.get(new Pair<>(source, target));
+			}
+			IList<E> spl1 = null;
+			if (sp1 == null || sp1.isEmpty() || sp1.get(0).isEmpty()) {
+				spl1 = getContractionHierarchy().search(source, target);
+				if (saveComputedShortestPaths) {
+					saveShortestPaths(spl1, source, target);
+				}
+			} else {
+				spl1 = GamaListFactory.create(scope, getGamlType().getContentType(), sp1.get(0));
+			}
+			return spl1;
 		} else if (pathFindingAlgo == shortestPathAlgorithm.BellmannFord) {
 			IList<IList<E>> sp1 = null;
 			if (saveComputedShortestPaths) {
@@ -880,6 +1025,58 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 
 	}
 
+	/**
+	 * Returns the contraction hierarchy of the graph, building it if it does not exist yet (i.e. at the first query or
+	 * after a change of the structure or of the weights of the graph)
+	 */
+	public ContractionHierarchy<V, E> getContractionHierarchy() {
+		ContractionHierarchy<V, E> result = hierarchy;
+		if (result == null) {
+			synchronized (this) {
+				result = hierarchy;
+				if (result == null) {
+					hierarchy = result = new ContractionHierarchy<>(getCompactGraph());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the compact (CSR) copy of the graph, building it if it does not exist yet
+	 */
+	public GraphCSR<V, E> getCompactGraph() {
+		GraphCSR<V, E> result = compact;
+		if (result == null) {
+			synchronized (this) {
+				result = compact;
+				if (result == null) {
+					compact = result = new GraphCSR<>(this);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * To be called once the construction of a large graph is done: from now on, Dijkstra, AStar and NBAStar searches
+	 * run on a compact copy of the graph. The graph can still be modified, in which case the copy is built again at
+	 * the next query
+	 */
+	public void freeze() {
+		frozen = true;
+		getCompactGraph();
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	protected void discardCompactStructures() {
+		compact = null;
+		hierarchy = null;
+	}
+
 	private void saveShortestPaths(final List<E> edges, final V source, final V target) {
 		V s = source;
 		final IList<IList<E>> spl = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
@@ -1182,6 +1379,10 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 
 	@Override
 	public void dispatchEvent(final IScope scope, final GraphEvent event) {
+		shortestPathComputed.receiveEvent(scope, event);
+		if (event.eventType != GraphEvent.GraphEventType.VERTEX_ADDED) {
+			discardCompactStructures();
+		}
 		synchronized (listeners) {
 			if (listeners.isEmpty()) { return; }
 			for (final IGraphEventListener l : listeners) {
@@ -1237,6 +1438,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 
 	public void reInitPathFinder() {
 		optimizer = null;
+		discardCompactStructures();
 	}
 
 	public boolean isAgentEdge() {
@@ -1496,6 +1698,10 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	}
 
 	public Map<Pair<V, V>, IList<IList<E>>> getShortestPathComputed() {
+		return shortestPathComputed.asMap();
+	}
+
+	public ShortestPathCache<V, E> getShortestPathCache() {
 		return shortestPathComputed;
 	}
 
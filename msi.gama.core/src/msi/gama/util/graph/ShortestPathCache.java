@@ -0,0 +1,107 @@
+/*******************************************************************************************************
+ *
+ * msi.gama.util.graph.ShortestPathCache.java, in plugin msi.gama.core,
+ * is part of the source code of the GAMA modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jgrapht.alg.util.Pair;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.runtime.IScope;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.types.Types;
+
+/**
+ * The cache of the shortest paths computed in a graph. It is bounded by the total number of edges stored in the paths
+ * (see the preference "pref_shortest_path_cache_size"), the least recently used paths being evicted first, and can be
+ * safely shared by agents computing their paths in parallel. It is emptied when the version of the graph changes and
+ * whenever the graph signals a change of its structure or of its weights through a GraphEvent.
+ */
+public class ShortestPathCache<V, E> implements IGraphEventListener {
+
+	private final Cache<Pair<V, V>, IList<IList<E>>> cache;
+	private final LongAdder invalidations = new LongAdder();
+
+	public ShortestPathCache() {
+		final int max = GamaPreferences.External.SHORTEST_PATH_CACHE_SIZE.getValue();
+		final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+		if (max > 0) {
+			cache = builder.maximumWeight(max).weigher((final Pair<V, V> key, final IList<IList<E>> paths) -> {
+				int weight = 1;
+				for (final IList<E> path : paths) {
+					weight += path.size();
+				}
+				return weight;
+			}).build();
+		} else {
+			cache = builder.build();
+		}
+	}
+
+	public IList<IList<E>> get(final Pair<V, V> key) {
+		return cache.getIfPresent(key);
+	}
+
+	public boolean containsKey(final Pair<V, V> key) {
+		return cache.asMap().containsKey(key);
+	}
+
+	public void put(final Pair<V, V> key, final IList<IList<E>> paths) {
+		cache.put(key, paths);
+	}
+
+	public void clear() {
+		if (cache.size() > 0) {
+			invalidations.increment();
+			cache.invalidateAll();
+		}
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public Map<Pair<V, V>, IList<IList<E>>> asMap() {
+		return cache.asMap();
+	}
+
+	/**
+	 * Adding an isolated vertex does not change the existing paths: every other event invalidates them
+	 */
+	@Override
+	public void receiveEvent(final IScope scope, final GraphEvent event) {
+		if (event.eventType != GraphEvent.GraphEventType.VERTEX_ADDED) {
+			clear();
+		}
+	}
+
+	/**
+	 * Returns the counters of the cache (hits, misses, evictions, invalidations and size)
+	 */
+	public IMap<String, Integer> getStatistics() {
+		final CacheStats stats = cache.stats();
+		final IMap<String, Integer> result = GamaMapFactory.create(Types.STRING, Types.INT);
+		result.put("hits", (int) stats.hitCount());
+		result.put("misses", (int) stats.missCount());
+		result.put("evictions", (int) stats.evictionCount());
+		result.put("invalidations", invalidations.intValue());
+		result.put("size", (int) cache.size());
+		return result;
+	}
+
+}
@@ -20,12 +20,25 @@ import msi.gaml.compilation.GamaGetter;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.OperatorProto;
 import msi.gaml.operators.Cast;
+import msi.gaml.types.IType;
 
 /**
  * The Class BinaryOperator.
  */
 public class BinaryOperator extends AbstractNAryOperator {
 
+	// The arithmetic and comparison operators between ints and floats, which are computed on primitive values (see
+	// floatValue(), intValue() and boolValue()) instead of calling the helper of the operator with boxed values
+	static final int NONE = 0, PLUS = 1, MINUS = 2, TIMES = 3, DIVIDE = 4, LESS = 5, GREATER = 6, LESS_EQUAL = 7,
+			GREATER_EQUAL = 8;
+
+	final int primitive;
+	final boolean intOperands, floatOperands;
+	// Whether the primitive values of the operands can be asked directly. Otherwise, as an operand can be nil, they are
+	// evaluated as objects and the helper of the operator is called when one of them is nil (to keep its semantics:
+	// the comparisons return false, the arithmetic operators raise an error)
+	final boolean nonNilOperands;
+
 	public static IExpression create(final OperatorProto proto, final IDescription context,
 			final IExpression... child) {
 		final BinaryOperator u = new BinaryOperator(proto, context, child);
@@ -38,6 +51,60 @@ public class BinaryOperator extends AbstractNAryOperator {
 	public BinaryOperator(final OperatorProto proto, final IDescription context, final IExpression... args) {
 		super(proto, args);
 		prototype.verifyExpectedTypes(context, exprs[1].getGamlType());
+		final IType<?> left = proto.signature.size() == 2 ? proto.signature.get(0) : null;
+		final IType<?> right = proto.signature.size() == 2 ? proto.signature.get(1) : null;
+		intOperands = left != null && left.id() == IType.INT && right.id() == IType.INT;
+		floatOperands = left != null && left.id() == IType.FLOAT && right.id() == IType.FLOAT;
+		primitive = isNumeric(left) && isNumeric(right) ? primitiveOf(proto, intOperands) : NONE;
+		nonNilOperands = isNeverNil(exprs[0]) && isNeverNil(exprs[1]);
+	}
+
+	/**
+	 * Whether the expression can never evaluate to nil: the non-nil constants and the operators computed on primitive
+	 * values
+	 */
+	static boolean isNeverNil(final IExpression expr) {
+		if (expr instanceof ConstantExpression) { return ((ConstantExpression) expr).value != null; }
+		if (expr instanceof BinaryOperator) { return ((BinaryOperator) expr).primitive != NONE; }
+		if (expr instanceof UnaryOperator) {
+			final UnaryOperator u = (UnaryOperator) expr;
+			return u.intNegation || u.floatNegation;
+		}
+		return false;
+	}
+
+	private static boolean isNumeric(final IType<?> type) {
+		return type != null && (type.id() == IType.INT || type.id() == IType.FLOAT);
+	}
+
+	/**
+	 * Returns the primitive operation corresponding to the operator, provided its return type is the one of the
+	 * operators defined in Maths and Comparison
+	 */
+	private static int primitiveOf(final OperatorProto proto, final boolean intOperands) {
+		if (proto.lazy[0] || proto.lazy[1]) { return NONE; }
+		final int returned = proto.returnType.id();
+		final int arithmetic = intOperands ? IType.INT : IType.FLOAT;
+		switch (proto.getName()) {
+			case IKeyword.PLUS:
+				return returned == arithmetic ? PLUS : NONE;
+			case IKeyword.MINUS:
+				return returned == arithmetic ? MINUS : NONE;
+			case IKeyword.MULTIPLY:
+				return returned == arithmetic ? TIMES : NONE;
+			case IKeyword.DIVIDE:
+				return returned == IType.FLOAT ? DIVIDE : NONE;
+			case "<":
+				return returned == IType.BOOL ? LESS : NONE;
+			case ">":
+				return returned == IType.BOOL ? GREATER : NONE;
+			case "<=":
+				return returned == IType.BOOL ? LESS_EQUAL : NONE;
+			case ">=":
+				return returned == IType.BOOL ? GREATER_EQUAL : NONE;
+			default:
+				return NONE;
+		}
 	}
 
 	@Override
@@ -70,10 +137,22 @@ public class BinaryOperator extends AbstractNAryOperator {
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
-		Object leftVal = null, rightVal = null;
+		// Only the result is boxed
+		if (primitive >= LESS) {
+			return boolValue(scope);
+		} else if (primitive == DIVIDE || primitive != NONE && !intOperands) {
+			return floatValue(scope);
+		} else if (primitive != NONE) { return intValue(scope); }
+		final Object leftVal = prototype.lazy[0] ? exprs[0] : exprs[0].value(scope);
+		final Object rightVal = prototype.lazy[1] ? exprs[1] : exprs[1].value(scope);
+		return apply(scope, leftVal, rightVal);
+	}
+
+	/**
+	 * Calls the helper of the operator on the values of the operands
+	 */
+	private Object apply(final IScope scope, final Object leftVal, final Object rightVal) throws GamaRuntimeException {
 		try {
-			leftVal = prototype.lazy[0] ? exprs[0] : exprs[0].value(scope);
-			rightVal = prototype.lazy[1] ? exprs[1] : exprs[1].value(scope);
 			return ((GamaGetter.Binary) prototype.helper).get(scope, leftVal, rightVal);
 		} catch (final GamaRuntimeException ge) {
 			throw ge;
@@ -85,6 +164,88 @@ public class BinaryOperator extends AbstractNAryOperator {
 		}
 	}
 
+	@Override
+	public double floatValue(final IScope scope) throws GamaRuntimeException {
+		if (primitive == NONE || primitive >= LESS) { return Cast.asFloat(scope, value(scope)); }
+		// The operations on ints are done on ints, to keep their semantics
+		if (intOperands && primitive != DIVIDE) { return intValue(scope); }
+		final double left, right;
+		if (nonNilOperands) {
+			left = exprs[0].floatValue(scope);
+			right = exprs[1].floatValue(scope);
+		} else {
+			final Object leftVal = exprs[0].value(scope);
+			final Object rightVal = exprs[1].value(scope);
+			if (leftVal == null || rightVal == null) { return Cast.asFloat(scope, apply(scope, leftVal, rightVal)); }
+			left = Cast.asFloat(scope, leftVal);
+			right = Cast.asFloat(scope, rightVal);
+		}
+		switch (primitive) {
+			case PLUS:
+				return left + right;
+			case MINUS:
+				return left - right;
+			case TIMES:
+				return left * right;
+			default:
+				// Like Maths, which does not consider -0.0 as a zero
+				if (Double.compare(right, 0d) == 0) { throw GamaRuntimeException.error("Division by zero", scope); }
+				return left / right;
+		}
+	}
+
+	@Override
+	public int intValue(final IScope scope) throws GamaRuntimeException {
+		if (!intOperands || primitive == NONE || primitive >= DIVIDE) { return Cast.asInt(scope, value(scope)); }
+		final int left, right;
+		if (nonNilOperands) {
+			left = exprs[0].intValue(scope);
+			right = exprs[1].intValue(scope);
+		} else {
+			final Object leftVal = exprs[0].value(scope);
+			final Object rightVal = exprs[1].value(scope);
+			if (leftVal == null || rightVal == null) { return Cast.asInt(scope, apply(scope, leftVal, rightVal)); }
+			left = Cast.asInt(scope, leftVal);
+			right = Cast.asInt(scope, rightVal);
+		}
+		switch (primitive) {
+			case PLUS:
+				return left + right;
+			case MINUS:
+				return left - right;
+			default:
+				return left * right;
+		}
+	}
+
+	@Override
+	public boolean boolValue(final IScope scope) throws GamaRuntimeException {
+		if (primitive < LESS) { return Cast.asBool(scope, value(scope)); }
+		// ints are exactly represented by doubles
+		final double left, right;
+		if (nonNilOperands) {
+			left = exprs[0].floatValue(scope);
+			right = exprs[1].floatValue(scope);
+		} else {
+			final Object leftVal = exprs[0].value(scope);
+			final Object rightVal = exprs[1].value(scope);
+			if (leftVal == null || rightVal == null) { return Cast.asBool(scope, apply(scope, leftVal, rightVal)); }
+			left = Cast.asFloat(scope, leftVal);
+			right = Cast.asFloat(scope, rightVal);
+		}
+		switch (primitive) {
+			case LESS:
+				return left < right;
+			case GREATER:
+				return left > right;
+			case LESS_EQUAL:
+				// Like Comparison, which compares two floats with !(a > b)
+				return floatOperands ? !(left > right) : left <= right;
+			default:
+				return floatOperands ? !(left < right) : left >= right;
+		}
+	}
+
 	@Override
 	public BinaryOperator copy() {
 		return new BinaryOperator(prototype, null, exprs);
@@ -12,6 +12,7 @@ package msi.gaml.expressions;
 
 import msi.gama.common.util.StringUtils;
 import msi.gama.runtime.IScope;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.GamaType;
 import msi.gaml.types.IType;
 
@@ -44,6 +45,21 @@ public class ConstantExpression extends AbstractExpression {
 		return value;
 	}
 
+	@Override
+	public double floatValue(final IScope scope) {
+		return value instanceof Number ? ((Number) value).doubleValue() : Cast.asFloat(scope, value);
+	}
+
+	@Override
+	public int intValue(final IScope scope) {
+		return value instanceof Integer ? (Integer) value : Cast.asInt(scope, value);
+	}
+
+	@Override
+	public boolean boolValue(final IScope scope) {
+		return value instanceof Boolean ? (Boolean) value : Cast.asBool(scope, value);
+	}
+
 	@Override
 	public boolean isConst() {
 		return true;
@@ -19,6 +19,7 @@ import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.descriptions.IExpressionDescription;
 import msi.gaml.descriptions.IVarDescriptionUser;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.IType;
 
 /**
@@ -59,6 +60,29 @@ public interface IExpression extends IGamlDescription, ITyped, IDisposable, IVar
 	 */
 	Object value(final IScope scope) throws GamaRuntimeException;
 
+	/**
+	 * Returns the result of the evaluation of the expression as a primitive double. The expressions able to compute
+	 * it without boxing (the arithmetic operators on ints and floats, the constants) redefine this method, which
+	 * allows them to evaluate their operands the same way. By default, casts the result of value()
+	 */
+	default double floatValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asFloat(scope, value(scope));
+	}
+
+	/**
+	 * Returns the result of the evaluation of the expression as a primitive int (see floatValue())
+	 */
+	default int intValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asInt(scope, value(scope));
+	}
+
+	/**
+	 * Returns the result of the evaluation of the expression as a primitive boolean (see floatValue())
+	 */
+	default boolean boolValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asBool(scope, value(scope));
+	}
+
 	/**
 	 * Whether the expression is considered as 'constant', meaning it does not need a scope to be evaluated and return a
 	 * value
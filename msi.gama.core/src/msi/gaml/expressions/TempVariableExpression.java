@@ -20,7 +20,8 @@ import msi.gaml.types.IType;
 public class TempVariableExpression extends VariableExpression {
 
 	protected TempVariableExpression(final String n, final IType<?> type, final IDescription definitionDescription) {
-		super(n, type, false, definitionDescription);
+		// The name is interned so that the execution contexts find the slot of the variable by identity
+		super(n.intern(), type, false, definitionDescription);
 	}
 
 	@Override
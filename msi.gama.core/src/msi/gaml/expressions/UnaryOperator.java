@@ -21,6 +21,7 @@ import static msi.gama.precompiler.ITypeProvider.WRAPPED;
 
 import java.util.function.Predicate;
 
+import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
@@ -32,6 +33,7 @@ import msi.gaml.descriptions.IVarDescriptionUser;
 import msi.gaml.descriptions.OperatorProto;
 import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.GamaType;
 import msi.gaml.types.IContainerType;
 import msi.gaml.types.IType;
@@ -45,6 +47,11 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 
 	final protected IExpression child;
 	final OperatorProto prototype;
+	// Whether the operator is the negation of an int or a float, computed on primitive values (see floatValue() and
+	// intValue())
+	final boolean intNegation, floatNegation;
+	// Whether the primitive value of the operand can be asked directly (see BinaryOperator.isNeverNil())
+	final boolean nonNilChild;
 
 	public static IExpression create(final OperatorProto proto, final IDescription context, final IExpression child) {
 		final UnaryOperator u = new UnaryOperator(proto, context, child);
@@ -70,6 +77,12 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 		// setName(proto.getName());
 		this.child = child[0];
 		this.prototype = proto;
+		final int negated = proto != null && proto.getName().equals(IKeyword.MINUS) && proto.signature.size() == 1
+				&& !proto.lazy[0] && proto.returnType.id() == proto.signature.get(0).id() ? proto.returnType.id()
+						: IType.NONE;
+		intNegation = negated == IType.INT;
+		floatNegation = negated == IType.FLOAT;
+		nonNilChild = BinaryOperator.isNeverNil(this.child);
 		if (proto != null) {
 			type = proto.returnType;
 			computeType();
@@ -79,7 +92,17 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
-		final Object childValue = prototype.lazy[0] ? child : child.value(scope);
+		// Only the result is boxed
+		if (intNegation) {
+			return intValue(scope);
+		} else if (floatNegation) { return floatValue(scope); }
+		return apply(scope, prototype.lazy[0] ? child : child.value(scope));
+	}
+
+	/**
+	 * Calls the helper of the operator on the value of the operand
+	 */
+	private Object apply(final IScope scope, final Object childValue) throws GamaRuntimeException {
 		try {
 			return ((GamaGetter.Unary) prototype.helper).get(scope, childValue);
 		} catch (final GamaRuntimeException e1) {
@@ -94,6 +117,28 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 		}
 	}
 
+	@Override
+	public double floatValue(final IScope scope) throws GamaRuntimeException {
+		if (floatNegation) {
+			if (nonNilChild) { return -child.floatValue(scope); }
+			// A nil operand is passed to the helper, which raises the error
+			final Object childValue = child.value(scope);
+			return childValue == null ? Cast.asFloat(scope, apply(scope, null)) : -Cast.asFloat(scope, childValue);
+		}
+		if (intNegation) { return intValue(scope); }
+		return Cast.asFloat(scope, value(scope));
+	}
+
+	@Override
+	public int intValue(final IScope scope) throws GamaRuntimeException {
+		if (intNegation) {
+			if (nonNilChild) { return -child.intValue(scope); }
+			final Object childValue = child.value(scope);
+			return childValue == null ? Cast.asInt(scope, apply(scope, null)) : -Cast.asInt(scope, childValue);
+		}
+		return Cast.asInt(scope, value(scope));
+	}
+
 	@Override
 	public String serialize(final boolean includingBuiltIn) {
 		final String s = literalValue();
@@ -35,8 +35,10 @@ import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.ITopology;
 import msi.gama.metamodel.topology.graph.GamaSpatialGraph;
 import msi.gama.metamodel.topology.graph.GamaSpatialGraph.VertexRelationship;
+import msi.gama.metamodel.topology.graph.GraphTopology;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.example;
 import msi.gama.precompiler.GamlAnnotations.no_test;
@@ -1444,6 +1446,24 @@ public class Graphs {
 		return GamaGraphType.useChacheForShortestPath(g, useCache);
 	}
 
+	@operator (
+			value = "cache_statistics",
+			content_type = IType.INT,
+			index_type = IType.STRING,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "returns the counters of the cache of shortest paths of the operand graph: number of 'hits', 'misses', 'evictions' (paths removed because the cache was full), 'invalidations' (the cache being emptied because the graph changed) and current 'size'",
+			examples = @example (
+					value = "cache_statistics(road_network)[\"hits\"]",
+					isExecutable = false),
+			see = { "use_cache", "path_between" })
+	@no_test
+	public static IMap<String, Integer> cacheStatistics(final IGraph g) {
+		if (g instanceof GamaGraph) { return ((GamaGraph) g).getShortestPathCache().getStatistics(); }
+		return GamaMapFactory.create(Types.STRING, Types.INT);
+	}
+
 	@operator (
 			value = "directed",
 			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
@@ -1539,7 +1559,9 @@ public class Graphs {
 			value = "changes the shortest path computation method of the given graph",
 			comment = "the right-hand operand can be \"Djikstra\", \"Bellmann\", \"Astar\" to use the associated algorithm. "
 					+ "Note that these methods are dynamic: the path is computed when needed. In contrarily, if the operand is another string, "
-					+ "a static method will be used, i.e. all the shortest are previously computed.",
+					+ "a static method will be used, i.e. all the shortest are previously computed. "
+					+ "\"ContractionHierarchies\" preprocesses the graph once (and again only when its structure or its weights change) "
+					+ "in order to answer each query in a fraction of the time of the dynamic methods: it suits large graphs whose weights rarely change.",
 			examples = @example (
 					value = "graphEpidemio <- graphEpidemio with_optimizer_type \"static\";",
 					isExecutable = false),
@@ -1695,6 +1717,33 @@ public class Graphs {
 		return Cast.asTopology(scope, graph).KpathsBetween(scope, (IShape) sourTarg.key, (IShape) sourTarg.value, k);
 	}
 
+	@operator (
+			value = "paths_between",
+			type = IType.LIST,
+			content_type = IType.PATH,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH })
+	@doc (
+			value = "The shortest paths between each of the pairs of objects of a list (origin::destination) in a graph, in the same order as the pairs (nil if there is no path). The pairs sharing the same origin are computed by a single search and, if there are many pairs, the searches run in parallel: this is faster than calling path_between for each pair",
+			examples = { @example (
+					value = "paths_between(my_graph, [ag1::ag2, ag1::ag3, ag4::ag2])",
+					equals = "the shortest paths between ag1 and ag2, ag1 and ag3, and ag4 and ag2",
+					isExecutable = false) },
+			see = { "path_between" })
+	@test ("graph<geometry, geometry> g <- directed(as_edge_graph([edge({10,5}, {20,3}), edge({10,5}, {30,30}),edge({30,30}, {80,35}),edge({80,35}, {40,60}),edge({80,35}, {10,5}), node ({50,50})]));\r\n"
+			+ " length(paths_between(g, [{10,5}::{40,60}, {10,5}::{20,3}, {80,35}::{20,3}])[0].edges) = 3")
+	public static IList<IPath> paths_between(final IScope scope, final IGraph graph, final IList<GamaPair> pairs)
+			throws GamaRuntimeException {
+		final ITopology topology = graph instanceof GamaSpatialGraph ? Cast.asTopology(scope, graph) : null;
+		if (topology instanceof GraphTopology) { return (IList) ((GraphTopology) topology).pathsBetween(scope, pairs); }
+		final IList<IPath> result = GamaListFactory.create(Types.PATH);
+		for (final GamaPair pair : pairs) {
+			result.add(topology == null ? graph.computeShortestPathBetween(scope, pair.key, pair.value)
+					: topology.pathBetween(scope, (IShape) pair.key, (IShape) pair.value));
+		}
+		return result;
+	}
+
 	@operator (
 			value = "max_flow_between",
 			type = IType.LIST,
@@ -4672,6 +4672,58 @@ public abstract class Spatial {
 			return _neighbors(scope, Different.with(), scope.getAgent(), distance);
 		}
 
+		@operator (
+				value = "neighbors_map",
+				type = IType.MAP,
+				index_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+				content_type = IType.LIST,
+				category = { IOperatorCategory.SPATIAL, IOperatorCategory.SP_QUERIES },
+				concept = { IConcept.GEOMETRY, IConcept.SPATIAL_COMPUTATION, IConcept.SPATIAL_RELATION,
+						IConcept.AGENT_LOCATION })
+		@doc (
+				value = "A map associating each agent of the left operand (a list, species or meta-population) with the list of the other agents of this operand located at a distance <= the right operand (in the topology of the caller)",
+				comment = "The result is the same as asking each agent to compute 'list at_distance distance', but the neighbours of all the agents are computed at once (and in parallel if they are numerous), which is much faster in continuous topologies",
+				examples = { @example (
+						value = "boids neighbors_map 10.0",
+						equals = "a map whose keys are the boids and the values the list of the other boids located at a distance <= 10 from each of them",
+						isExecutable = false) },
+				see = { "at_distance", "neighbors_at", "agents_at_distance" })
+		@no_test // already done in Spatial tests Models
+		public static IMap<IAgent, IList<IAgent>> neighbors_map(final IScope scope,
+				final IContainer<?, ? extends IAgent> list, final Double distance) {
+			return neighbors_map(scope, list, list, distance);
+		}
+
+		@operator (
+				value = "neighbors_map",
+				type = IType.MAP,
+				index_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+				content_type = IType.LIST,
+				category = { IOperatorCategory.SPATIAL, IOperatorCategory.SP_QUERIES },
+				concept = { IConcept.GEOMETRY, IConcept.SPATIAL_COMPUTATION, IConcept.SPATIAL_RELATION,
+						IConcept.AGENT_LOCATION })
+		@doc (
+				value = "A map associating each agent of the first operand with the list of the agents of the second operand (a list, species or meta-population) located at a distance <= the third operand (in the topology of the caller)",
+				examples = { @example (
+						value = "neighbors_map(people, shops, 50.0)",
+						equals = "a map whose keys are the people and the values the list of the shops located at a distance <= 50 from each of them",
+						isExecutable = false) },
+				see = { "at_distance", "neighbors_at", "agents_at_distance" })
+		@no_test // already done in Spatial tests Models
+		public static IMap<IAgent, IList<IAgent>> neighbors_map(final IScope scope,
+				final IContainer<?, ? extends IAgent> sources, final IContainer<?, ? extends IAgent> candidates,
+				final Double distance) {
+			final IAgentFilter filter = In.list(scope, candidates);
+			final IList<IAgent> agents = GamaListFactory.create(Types.AGENT);
+			for (final IAgent a : sources.iterable(scope)) {
+				agents.add(a);
+			}
+			if (filter == null || distance == null || agents.isEmpty()) {
+				return GamaMapFactory.create(Types.AGENT, Types.LIST.of(Types.AGENT));
+			}
+			return scope.getTopology().getNeighborsOfAll(scope, agents, distance, filter);
+		}
+
 		// Support methods used by the different queries
 
 		private static IList<IAgent> _gather(final IScope scope, final IAgentFilter filter, final Object source,
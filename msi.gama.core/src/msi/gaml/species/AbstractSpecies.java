@@ -19,6 +19,7 @@ import java.util.Map;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.ISkill;
 import msi.gama.kernel.model.GamlModelSpecies;
+import msi.gama.metamodel.agent.AttributeLayout;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.ILocation;
@@ -49,6 +50,7 @@ import msi.gaml.statements.UserCommandStatement;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
 import msi.gaml.variables.IVariable;
+import msi.gaml.variables.Variable;
 
 /**
  * Written by drogoul Modified on 29 d�c. 2010
@@ -68,6 +70,7 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 	private final List<IStatement> behaviors = new ArrayList<>();
 	protected ISpecies macroSpecies, parentSpecies;
 	final IArchitecture control;
+	private AttributeLayout attributeLayout;
 
 	public AbstractSpecies(final IDescription description) {
 		super(description);
@@ -367,6 +370,23 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 		control.setChildren(behaviors);
 		behaviors.forEach(b -> b.setEnclosing(this));
 		control.verifyBehaviors(this);
+		computeAttributeLayout();
+	}
+
+	private void computeAttributeLayout() {
+		final SpeciesDescription desc = getDescription();
+		if (desc.isModel() || desc.isExperiment()) { return; }
+		attributeLayout = new AttributeLayout(desc);
+		for (final IVariable v : variables.values()) {
+			if (v instanceof Variable) {
+				((Variable) v).setSlot(attributeLayout, attributeLayout.slotOf(v.getName()));
+			}
+		}
+	}
+
+	@Override
+	public AttributeLayout getAttributeLayout() {
+		return attributeLayout;
 	}
 
 	@Override
@@ -376,6 +396,7 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 			v.dispose();
 		}
 		variables.clear();
+		attributeLayout = null;
 		for (final AspectStatement ac : aspects.values()) {
 			ac.dispose();
 		}
@@ -112,6 +112,21 @@ import one.util.streamex.StreamEx;
 						optional = true,
 						doc = { @doc (
 								value = "(grid only),(true by default). Allows to specify if the agents of the grid are regular agents (like those of any other species) or minimal ones (which can't have sub-populations, can't inherit from a regular species, etc.)") }),
+				@facet (
+						name = "columnar",
+						type = IType.BOOL,
+						optional = true,
+						doc = { @doc (
+								value = "(grid only),(false by default). Allows to store the int and float attributes declared in the grid in contiguous columns shared by all the cells (like 'grid_value') rather than in each cell",
+								comment = "This facet saves memory on large grids and speeds up the diffusion of these attributes. Attributes declaring on_change, among, min or max facets are not stored in columns") }),
+				@facet (
+						name = "spatial_index",
+						type = IType.STRING,
+						optional = true,
+						values = { "quadtree", "grid" },
+						doc = { @doc (
+								value = "(not for grids and graphs),(\"quadtree\" by default). Allows to specify the spatial index used for the agents of this species: the quadtree shared by all species or a dedicated uniform grid of buckets, faster for large populations of point agents evenly spread in the environment",
+								comment = "The number of cells of the grid index along the largest side of the environment can be changed in the preferences") }),
 				@facet (
 						name = "optimizer",
 						type = IType.STRING,
@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.List;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.AttributeLayout;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.population.IPopulationSet;
@@ -259,6 +260,12 @@ public interface ISpecies
 
 	void removeTemporaryAction();
 
+	/**
+	 * Returns the layout of the slots in which the agents of this species can store their attributes, or null if they
+	 * do not use slots (like experiments or simulations)
+	 */
+	AttributeLayout getAttributeLayout();
+
 	@Override
 	SpeciesDescription getDescription();
 
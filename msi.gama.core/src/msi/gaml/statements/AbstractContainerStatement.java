@@ -10,12 +10,20 @@
  ********************************************************************************************************/
 package msi.gaml.statements;
 
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
 import msi.gama.common.interfaces.IGamlIssue;
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.AttributeSlots;
+import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IContainer;
+import msi.gama.util.IMap;
 import msi.gama.util.graph.IGraph;
 import msi.gaml.compilation.GAML;
 import msi.gaml.compilation.IDescriptionValidator;
@@ -243,7 +251,22 @@ public abstract class AbstractContainerStatement extends AbstractStatement {
 	@Override
 	public Object privateExecuteIn(final IScope scope) throws GamaRuntimeException {
 		// We then identify the container
-		final IContainer.Modifiable container = identifyContainer(scope);
+		final Object cont = list.value(scope);
+		// The declared attributes of an agent stored in slots are modified in a copy of its attributes, whose changes
+		// are then written back in the slots
+		if (!isDirect && cont instanceof IAgent && ((IAgent) cont).getAttributeSlots() != null) {
+			final IAgent agent = (IAgent) cont;
+			final IMap<String, Object> attributes = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+			agent.forEachAttribute((k, v) -> {
+				attributes.put(k, v);
+				return true;
+			});
+			final Set<String> previous = new HashSet<>(attributes.keySet());
+			apply(scope, identifyValue(scope, attributes), identifyIndex(scope, attributes), attributes);
+			writeAttributes(agent, previous, attributes);
+			return attributes;
+		}
+		final IContainer.Modifiable container = identifyContainer(scope, cont);
 
 		final Object position = identifyIndex(scope, container);
 		final Object object = identifyValue(scope, container);
@@ -286,14 +309,36 @@ public abstract class AbstractContainerStatement extends AbstractStatement {
 	 * @throws GamaRuntimeException
 	 * @return the container to which this command will be applied
 	 */
-	private IContainer.Modifiable identifyContainer(final IScope scope) throws GamaRuntimeException {
-		final Object cont = list.value(scope);
+	private IContainer.Modifiable identifyContainer(final IScope scope, final Object cont)
+			throws GamaRuntimeException {
 		if (isDirect) { return (IContainer.Modifiable) cont; }
 		if (cont instanceof IShape) { return ((IShape) cont).getOrCreateAttributes(); }
 		throw GamaRuntimeException.warning("Cannot use " + list.serialize(false) + ", of type "
 				+ list.getGamlType().toString() + ", as a container", scope);
 	}
 
+	/**
+	 * Writes the attributes modified by this command back in the agent, through its slots for the declared ones
+	 */
+	private void writeAttributes(final IAgent agent, final Set<String> previous,
+			final IMap<String, Object> attributes) {
+		final AttributeSlots slots = agent.getAttributeSlots();
+		for (final String key : previous) {
+			if (attributes.containsKey(key)) { continue; }
+			final int slot = slots.layout.slotOf(key);
+			if (slot >= 0) {
+				slots.unset(slot);
+			} else {
+				agent.getOrCreateAttributes().remove(key);
+			}
+		}
+		attributes.forEach((k, v) -> {
+			if (!Objects.equals(agent.getAttribute(k), v)) {
+				agent.setAttribute(k, v);
+			}
+		});
+	}
+
 	/**
 	 * Method to add, remove or put one individual item
 	 *
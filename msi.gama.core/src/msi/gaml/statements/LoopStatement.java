@@ -321,7 +321,8 @@ public class LoopStatement extends AbstractStatementSequence implements Breakabl
 		final boolean isWhile = getFacet(IKeyword.WHILE) != null;
 		final boolean isList = getFacet(IKeyword.OVER) != null;
 		final boolean isBounded = getFacet(IKeyword.FROM) != null && getFacet(IKeyword.TO) != null;
-		varName = desc.getName();
+		// Interned like the names of the temporary variables (see TempVariableExpression)
+		varName = desc.getName() == null ? null : desc.getName().intern();
 		executer = isWhile ? new While() : isList ? new Over() : isBounded ? new Bounded() : new Times();
 	}
 
@@ -20,6 +20,7 @@ import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -97,7 +98,9 @@ import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.IModifiableContainer;
+import msi.gama.util.file.GamaColumnarFile;
 import msi.gama.util.file.IGamaFile;
+import msi.gama.util.file.OutputChannel;
 import msi.gama.util.graph.IGraph;
 import msi.gaml.compilation.IDescriptionValidator;
 import msi.gaml.compilation.annotations.validator;
@@ -133,8 +136,8 @@ import msi.gaml.types.Types;
 				name = IKeyword.TYPE,
 				type = IType.ID,
 				optional = true,
-				values = { "shp", "text", "csv", "asc", "geotiff", "image", "kml", "kmz", "json" },
-				doc = @doc ("an expression that evaluates to an string, the type of the output file (it can be only \"shp\", \"asc\", \"geotiff\", \"image\", \"text\" or \"csv\") ")),
+				values = { "shp", "text", "csv", "asc", "geotiff", "image", "kml", "kmz", "json", "columnar" },
+				doc = @doc ("an expression that evaluates to an string, the type of the output file (it can be only \"shp\", \"asc\", \"geotiff\", \"image\", \"text\", \"csv\" or \"columnar\") ")),
 				@facet (
 						name = IKeyword.DATA,
 						type = IType.NONE,
@@ -144,7 +147,7 @@ import msi.gaml.types.Types;
 						name = IKeyword.REWRITE,
 						type = IType.BOOL,
 						optional = true,
-						doc = @doc ("a boolean expression specifying whether to erase the file if it exists or append data at the end of it. Only applicable to \"text\" or \"csv\" files. Default is true")),
+						doc = @doc ("a boolean expression specifying whether to erase the file if it exists or append data at the end of it. Only applicable to \"text\", \"csv\" or \"columnar\" files. Default is true")),
 				@facet (
 						name = IKeyword.HEADER,
 						type = IType.BOOL,
@@ -194,6 +197,10 @@ import msi.gaml.types.Types;
 						value = "To save the values of all attributes of all the agents of a species into a csv (with optional attributes):",
 						examples = { @example (
 								value = "save species_of(self) to: \"save_csvfile.csv\" type: \"csv\" header: false;") }),
+				@usage (
+						value = "To save the values of all attributes of all the agents of a species into a binary file storing them column by column (one group of rows per save, usually per cycle), which can be read back with columnar_file():",
+						examples = { @example (
+								value = "save species_of(self) to: \"save_columns.gcol\" type: \"columnar\" rewrite: false;") }),
 				@usage (
 						value = "To save the geometries of all the agents of a species into a shapefile (with optional attributes):",
 						examples = { @example (
@@ -371,6 +378,8 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 				case "csv":
 					final boolean rewrite = shouldOverwrite(scope);
 					if (rewrite) {
+						// The writing of what was previously saved must be over before the file is deleted
+						OutputChannel.close(scope, fileToSave);
 						if (exists) {
 							fileToSave.delete();
 							exists = false;
@@ -380,6 +389,15 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 					final boolean addHeader = !exists && (header == null || Cast.asBool(scope, header.value(scope)));
 					saveText(type, fileToSave, addHeader, scope);
 					break;
+				case "columnar":
+					if (shouldOverwrite(scope)) {
+						OutputChannel.close(scope, fileToSave);
+						if (exists) {
+							fileToSave.delete();
+						}
+					}
+					saveColumns(fileToSave, scope);
+					break;
 				case "asc":
 					final ISpecies species1 = Cast.asSpecies(scope, item.value(scope));
 					if (species1 == null || !species1.isGrid()) { return null; }
@@ -734,9 +752,11 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 
 	public void saveText(final String type, final File fileTxt, final boolean header, final IScope scope)
 			throws GamaRuntimeException {
-		try (FileWriter fw = new FileWriter(fileTxt, true)) {
+		// The text is built here, and written in the background by the output channel of the file
+		final StringBuilder sb = new StringBuilder();
+		try {
 			if (type.equals("text")) {
-				fw.write(Cast.asString(scope, item.value(scope)) + Strings.LN);
+				sb.append(Cast.asString(scope, item.value(scope)) + Strings.LN);
 			} else if (type.equals("csv")) {
 				final IType itemType = item.getGamlType();
 				final SpeciesDescription sd;
@@ -755,16 +775,16 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 					final Collection<String> attributeNames = sd.getAttributeNames();
 					attributeNames.removeAll(NON_SAVEABLE_ATTRIBUTE_NAMES);
 					if (header) {
-						fw.write("cycle;name;location.x;location.y;location.z");
+						sb.append("cycle;name;location.x;location.y;location.z");
 						for (final String v : attributeNames) {
-							fw.write(";" + v);
+							sb.append(";" + v);
 						}
-						fw.write(Strings.LN);
+						sb.append(Strings.LN);
 					}
 					for (final Object obj : values) {
 						if (obj instanceof IAgent) {
 							final IAgent ag = Cast.asAgent(scope, obj);
-							fw.write(scope.getClock().getCycle() + ";" + ag.getName().replace(';', ',') + ";"
+							sb.append(scope.getClock().getCycle() + ";" + ag.getName().replace(';', ',') + ";"
 									+ ag.getLocation().getX() + ";" + ag.getLocation().getY() + ";"
 									+ ag.getLocation().getZ());
 							for (final String v : attributeNames) {
@@ -773,45 +793,40 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 										|| val.startsWith("\"") && val.endsWith("\"")) {
 									val = val.substring(1, val.length() - 1);
 								}
-								fw.write(";" + val);
+								sb.append(";" + val);
 							}
-							fw.write(Strings.LN);
+							sb.append(Strings.LN);
 						}
 
 					}
 				} else {
 					if (header) {
-						fw.write(item.serialize(true).replace("]", "").replace("[", ""));
-						fw.write(Strings.LN);
+						sb.append(item.serialize(true).replace("]", "").replace("[", ""));
+						sb.append(Strings.LN);
 					}
 					if (itemType.id() == IType.MATRIX) {
 						final String[] tmpValue = value.toString().replace("[", "").replace("]", "").split(",");
 						for (int i = 0; i < tmpValue.length; i++) {
 							if (i > 0) {
-								fw.write(',');
+								sb.append(',');
 							}
-							fw.write(toCleanString(tmpValue[i]));
+							sb.append(toCleanString(tmpValue[i]));
 						}
-						fw.write(Strings.LN);
+						sb.append(Strings.LN);
 					} else {
 						final int size = values.size();
 						for (int i = 0; i < size; i++) {
 							if (i > 0) {
-								fw.write(',');
+								sb.append(',');
 							}
-							fw.write(toCleanString(values.get(i)));
+							sb.append(toCleanString(values.get(i)));
 						}
-						fw.write(Strings.LN);
+						sb.append(Strings.LN);
 					}
 				}
 
 			}
-
-		} catch (final IOException io) {
-			// Could catch the exception when multiple threads try to access the file
-			// See Issue #2796. But it'd be a bad idea.
-			// DEBUG.OUT("Ignoring IOException");
-			throw GamaRuntimeFileException.create(io, scope);
+			OutputChannel.of(scope, fileTxt).write(scope, sb.toString());
 		} catch (final GamaRuntimeException e) {
 			throw e;
 		} catch (final Throwable e) {
@@ -820,6 +835,54 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 
 	}
 
+	/**
+	 * Saves the agents as a row group of a columnar file (see GamaColumnarFile), with the same columns as the csv
+	 * files. The values are collected here and compressed and written in the background
+	 */
+	public void saveColumns(final File f, final IScope scope) throws GamaRuntimeException {
+		final IType itemType = item.getGamlType();
+		final SpeciesDescription sd = itemType.isAgentType() ? itemType.getSpecies()
+				: itemType.getContentType().isAgentType() ? itemType.getContentType().getSpecies() : null;
+		if (sd == null) { throw GamaRuntimeException.error("Only agents can be saved in columnar files", scope); }
+		final Object value = item.value(scope);
+		final IList values = itemType.isContainer() ? Cast.asList(scope, value)
+				: GamaListFactory.create(scope, itemType, value);
+		final List<IAgent> agents = new ArrayList<>(values.size());
+		for (final Object obj : values) {
+			if (obj instanceof IAgent) {
+				agents.add((IAgent) obj);
+			}
+		}
+		if (agents.isEmpty()) { return; }
+		final Collection<String> attributeNames = sd.getAttributeNames();
+		attributeNames.removeAll(NON_SAVEABLE_ATTRIBUTE_NAMES);
+		final int rows = agents.size();
+		final GamaColumnarFile.RowGroup group = new GamaColumnarFile.RowGroup(rows);
+		final int cycle = group.addColumn("cycle", IType.INT);
+		final int name = group.addColumn(IKeyword.NAME, IType.STRING);
+		final int location = group.addColumn(IKeyword.LOCATION, IType.POINT);
+		final String[] attributes = attributeNames.toArray(new String[attributeNames.size()]);
+		final int[] columns = new int[attributes.length];
+		for (int i = 0; i < attributes.length; i++) {
+			columns[i] = group.addColumn(attributes[i], sd.getAttribute(attributes[i]).getGamlType().id());
+		}
+		for (int row = 0; row < rows; row++) {
+			final IAgent ag = agents.get(row);
+			group.set(cycle, row, scope.getClock().getCycle());
+			group.set(name, row, ag.getName());
+			group.set(location, row, ag.getLocation());
+			for (int i = 0; i < attributes.length; i++) {
+				group.set(columns[i], row, ag.getDirectVarValue(scope, attributes[i]));
+			}
+		}
+		OutputChannel.of(scope, f).submit(scope, channel -> {
+			final OutputStream out = channel.getStream();
+			// What has been written before must be on the disk to know whether the file is empty
+			out.flush();
+			group.write(out, channel.getFile().length() == 0);
+		});
+	}
+
 	public String toCleanString(final Object o) {
 		String val = Cast.toGaml(o).replace(';', ',');
 		if (val.startsWith("'") && val.endsWith("'") || val.startsWith("\"") && val.endsWith("\"")) {
@@ -935,7 +998,9 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 		// geometry is by convention (in specs) at position 0
 		if (ag.getInnerGeometry() == null) { return false; }
 		// System.out.println("ag.getInnerGeometry(): "+ ag.getInnerGeometry().getClass());
-		Geometry g = gis == null ? ag.getInnerGeometry() : gis.inverseTransform(ag.getInnerGeometry());
+		// The geometry of the agent is copied, as the feature may be written after the agent has moved
+		Geometry g = gis == null ? (Geometry) ag.getInnerGeometry().clone()
+				: gis.inverseTransform(ag.getInnerGeometry());
 
 		g = fixesPolygonCWS(g);
 		g = geometryCollectionManagement(g);
@@ -1006,7 +1071,8 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 		}
 
 		final FeatureJSON io = new FeatureJSON();
-		io.writeFeatureCollection(featureCollection, f.getAbsolutePath());
+		OutputChannel.of(scope, f).submit(scope,
+				channel -> io.writeFeatureCollection(featureCollection, channel.getFile().getAbsolutePath()));
 
 	}
 
@@ -1017,6 +1083,27 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 		// AD 11/02/15 Added to allow saving to new directories
 		if (agents == null || agents.isEmpty()) { return; }
 
+		// The features are built here (as the attributes are evaluated by the agents), and written in the background
+		// by the output channel of the file
+		final SimpleFeatureBuilder builder = new SimpleFeatureBuilder(DataUtilities.createType("shape", specs));
+		final List<SimpleFeature> features = new ArrayList<>();
+		// AD Builds once the list of agent attributes to evaluate
+		final Collection<IExpression> attributeValues =
+				attributes == null ? Collections.EMPTY_LIST : attributes.values();
+		for (final IShape ag : agents) {
+			final SimpleFeature ff = builder.buildFeature(null);
+			final boolean ok = buildFeature(scope, ff, ag, gis, attributeValues);
+			if (!ok) {
+				break;
+			}
+			features.add(ff);
+		}
+		final CoordinateReferenceSystem crs = gis == null ? null : gis.getInitialCRS(scope);
+		OutputChannel.of(scope, f).submit(scope, channel -> writeShapeFile(channel.getFile(), features, specs, crs));
+	}
+
+	private static void writeShapeFile(final File f, final List<SimpleFeature> features, final String specs,
+			final CoordinateReferenceSystem crs) throws IOException, SchemaException {
 		final ShapefileDataStore store = new ShapefileDataStore(f.toURI().toURL());
 		store.setCharset(Charset.forName("UTF8"));
 		// The name of the type and the name of the feature source shoud now be
@@ -1026,33 +1113,22 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 		store.createSchema(type);
 		// AD: creation of a FeatureWriter on the store.
 		try (FeatureWriter fw = store.getFeatureWriter(Transaction.AUTO_COMMIT)) {
-
-			// AD Builds once the list of agent attributes to evaluate
-			final Collection<IExpression> attributeValues =
-					attributes == null ? Collections.EMPTY_LIST : attributes.values();
-			for (final IShape ag : agents) {
+			for (final SimpleFeature feature : features) {
 				final SimpleFeature ff = (SimpleFeature) fw.next();
-				final boolean ok = buildFeature(scope, ff, ag, gis, attributeValues);
-				if (!ok) {
-					break;
-				}
+				ff.setAttributes(feature.getAttributes());
 			}
 			// Writes the prj file
-			if (gis != null) {
-				final CoordinateReferenceSystem crs = gis.getInitialCRS(scope);
-				if (crs != null) {
-					try (FileWriter fw1 = new FileWriter(f.getAbsolutePath().replace(".shp", ".prj"))) {
-						fw1.write(crs.toString());
-						// fw.close();
-					} catch (final IOException e) {
-						e.printStackTrace();
-					}
+			if (crs != null) {
+				try (FileWriter fw1 = new FileWriter(f.getAbsolutePath().replace(".shp", ".prj"))) {
+					fw1.write(crs.toString());
+					// fw.close();
+				} catch (final IOException e) {
+					e.printStackTrace();
 				}
 			}
 		} catch (final ClassCastException e) {
-			throw GamaRuntimeException.error(
-					"Cannot save agents/geometries with different types of geometries (point, line, polygon) in a same shapefile",
-					scope);
+			throw new IOException(
+					"Cannot save agents/geometries with different types of geometries (point, line, polygon) in a same shapefile");
 		} finally {
 			store.dispose();
 		}
@@ -18,6 +18,8 @@ import com.google.common.base.Objects;
 import msi.gama.common.interfaces.IGamlIssue;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.ISkill;
+import msi.gama.metamodel.agent.AttributeLayout;
+import msi.gama.metamodel.agent.AttributeSlots;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.facet;
@@ -363,6 +365,9 @@ public class Variable extends Symbol implements IVariable {
 	private IExecutable on_changer;
 	protected String pName, cName;
 	protected ISkill gSkill, sSkill;
+	// The slot of this attribute in the layout of its species (or -1 if it is not stored in a slot)
+	private AttributeLayout layout;
+	private int slot = -1;
 	// private Object speciesWideValue;
 
 	public Variable(final IDescription sd) {
@@ -410,6 +415,11 @@ public class Variable extends Symbol implements IVariable {
 		return result;
 	}
 
+	public void setSlot(final AttributeLayout layout, final int slot) {
+		this.layout = slot < 0 ? null : layout;
+		this.slot = slot;
+	}
+
 	@Override
 	public void setValue(final IScope scope, final Object initial) {
 		final IExpressionDescription desc = ConstantExpressionDescription.create(initial);
@@ -521,7 +531,12 @@ public class Variable extends Symbol implements IVariable {
 		if (setter != null) {
 			setter.run(scope, agent, sSkill == null ? agent : sSkill, val);
 		} else {
-			agent.setAttribute(name, val);
+			final AttributeSlots slots = agent.getAttributeSlots();
+			if (slots != null && slots.layout == layout) {
+				slots.set(slot, val);
+			} else {
+				agent.setAttribute(name, val);
+			}
 		}
 		// if (isSpeciesConst) {
 		// speciesWideValue = val;
@@ -548,6 +563,11 @@ public class Variable extends Symbol implements IVariable {
 		// if (isSpeciesConst) { return speciesWideValue; }
 		if (getter != null) { return getter.run(scope, agent, gSkill == null ? agent : gSkill); }
 		if (functionExpression != null) { return scope.evaluate(functionExpression, agent).getValue(); }
+		final AttributeSlots slots = agent.getAttributeSlots();
+		if (slots != null && slots.layout == layout) {
+			if (isNotModifiable && !slots.isAssigned(slot)) { return getInitialValue(scope); }
+			return slots.get(slot);
+		}
 		if (!agent.hasAttribute(name)) {
 			// Var not yet initialized. May happen when asking for its value while initializing an editor
 			// See Issue #2781
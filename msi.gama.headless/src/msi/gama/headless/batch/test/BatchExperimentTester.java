@@ -0,0 +1,149 @@
+package msi.gama.headless.batch.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.headless.batch.AbstractModelLibraryRunner;
+import msi.gama.headless.common.Globals;
+import msi.gama.headless.core.GamaHeadlessException;
+import msi.gama.headless.core.HeadlessSimulationLoader;
+import msi.gama.headless.runtime.SystemLogger;
+import msi.gama.kernel.experiment.IExperimentAgent;
+import msi.gama.kernel.experiment.IExperimentPlan;
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.kernel.model.IModel;
+import msi.gama.runtime.GAMA;
+
+/**
+ * Checks how batch experiments evaluate their solutions: the experiment steps once per finished solution and only sees
+ * its simulations, the racing mode discards the worse solutions, and the fitness store avoids running the solutions
+ * again. Returns the number of failed checks.
+ */
+public class BatchExperimentTester extends AbstractModelLibraryRunner {
+
+	private static BatchExperimentTester instance;
+
+	// The experiments record, each time they step, the value of p in each simulation they can see
+	private static final String MODEL = "model batch_test\n" + "global {\n" + "	int p <- 1;\n"
+			+ "	float value <- 0.0;\n" + "	reflex grow {\n" + "		value <- value + p;\n" + "	}\n" + "}\n"
+			+ "experiment explore type: batch until: cycle = 5 repeat: 4 keep_seed: true keep_simulations: true {\n"
+			+ "	parameter \"p\" var: p among: [1, 2, 3];\n" + "	list<list<int>> seen <- [];\n"
+			+ "	reflex observe {\n" + "		seen <- seen + [simulations collect each.p];\n" + "	}\n"
+			+ "	method exhaustive maximize: value;\n" + "}\n"
+			+ "experiment race type: batch until: cycle = 5 repeat: 6 keep_seed: true keep_simulations: true {\n"
+			+ "	parameter \"p\" var: p among: [1, 2, 3];\n" + "	list<list<int>> seen <- [];\n"
+			+ "	reflex observe {\n" + "		seen <- seen + [simulations collect each.p];\n" + "	}\n"
+			+ "	method exhaustive maximize: value racing: 2;\n" + "}\n";
+
+	private int failed;
+
+	private BatchExperimentTester() {}
+
+	@Override
+	public int start(final List<String> args) throws IOException {
+		SystemLogger.activeDisplay();
+		HeadlessSimulationLoader.preloadGAMA();
+		final File dir = Files.createTempDirectory("gama_batch_test").toFile();
+		if (Globals.OUTPUT_PATH == null) {
+			Globals.OUTPUT_PATH = dir.getAbsolutePath();
+		}
+		final File model = new File(dir, "batch_test.gaml");
+		try (FileWriter writer = new FileWriter(model)) {
+			writer.write(MODEL);
+			// The fitness store is named after the source of the model: it must not have been filled by a previous test
+			writer.write("// " + System.nanoTime() + "\n");
+		}
+		failed = 0;
+		final boolean oldPref = GamaPreferences.External.BATCH_FITNESS_STORE.getValue();
+		try {
+			testOneSolutionAtATime(model);
+			testRace(model);
+			GamaPreferences.External.BATCH_FITNESS_STORE.set(true);
+			testFitnessStore(model);
+		} catch (final GamaHeadlessException e) {
+			check(false, e.getMessage());
+		} finally {
+			GamaPreferences.External.BATCH_FITNESS_STORE.set(oldPref);
+		}
+		System.out.println(failed == 0 ? "Batch tests passed" : failed + " batch tests failed");
+		return failed;
+	}
+
+	private void check(final boolean condition, final String message) {
+		if (!condition) {
+			failed++;
+			System.out.println("FAILED: " + message);
+		}
+	}
+
+	/**
+	 * Runs the experiment of the model and returns, for each of its steps, the values of p in the simulations seen
+	 */
+	@SuppressWarnings ("unchecked")
+	private static List<List<Integer>> run(final File file, final String expName)
+			throws IOException, GamaHeadlessException {
+		final IModel model = HeadlessSimulationLoader.loadModel(file);
+		final IExperimentPlan exp = GAMA.addHeadlessExperiment(model, expName, new ParametersSet(), null);
+		final IExperimentAgent agent = exp.getAgent();
+		exp.getController().getScheduler().paused = false;
+		agent.step(agent.getScope());
+		return (List<List<Integer>>) agent.getDirectVarValue(agent.getScope(), "seen");
+	}
+
+	/**
+	 * The experiment must step once per solution, seeing the simulations of that solution only
+	 */
+	private void testOneSolutionAtATime(final File model) throws IOException, GamaHeadlessException {
+		final List<List<Integer>> seen = run(model, "explore");
+		check(seen.size() == 3, "the experiment stepped " + seen.size() + " times instead of 3");
+		final Set<Integer> solutions = new HashSet<>();
+		for (final List<Integer> step : seen) {
+			check(step.size() == 4, "the experiment saw " + step.size() + " simulations instead of 4: " + step);
+			check(new HashSet<>(step).size() == 1, "the experiment saw the simulations of several solutions: " + step);
+			solutions.addAll(step);
+		}
+		check(solutions.size() == 3, "the experiment did not see all the solutions: " + solutions);
+	}
+
+	/**
+	 * All the simulations give the same fitness for the same p: after the first round, only the best solution is run
+	 * on the other seeds
+	 */
+	private void testRace(final File model) throws IOException, GamaHeadlessException {
+		final Map<Integer, Integer> simulations = new HashMap<>();
+		for (final List<Integer> step : run(model, "race")) {
+			check(new HashSet<>(step).size() <= 1, "the experiment saw the simulations of several solutions: " + step);
+			for (final Integer p : step) {
+				simulations.merge(p, 1, Integer::sum);
+			}
+		}
+		check(simulations.getOrDefault(3, 0) == 6, "the best solution ran " + simulations.get(3) + " simulations");
+		check(simulations.getOrDefault(1, 0) == 2, "a discarded solution ran " + simulations.get(1) + " simulations");
+		check(simulations.getOrDefault(2, 0) == 2, "a discarded solution ran " + simulations.get(2) + " simulations");
+	}
+
+	/**
+	 * The second run of the experiment must find all the solutions in the store and run no simulation
+	 */
+	private void testFitnessStore(final File model) throws IOException, GamaHeadlessException {
+		final List<List<Integer>> first = run(model, "explore");
+		check(first.size() == 3, "the first run stepped " + first.size() + " times instead of 3");
+		final List<List<Integer>> second = run(model, "explore");
+		check(second.isEmpty(), "the second run simulated the solutions again: " + second);
+	}
+
+	public static BatchExperimentTester getInstance() {
+		if (instance == null) {
+			instance = new BatchExperimentTester();
+		}
+		return instance;
+	}
+}
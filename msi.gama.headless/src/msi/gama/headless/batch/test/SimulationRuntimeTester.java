@@ -0,0 +1,147 @@
+package msi.gama.headless.batch.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import msi.gama.headless.batch.AbstractModelLibraryRunner;
+import msi.gama.headless.common.Globals;
+import msi.gama.headless.core.HeadlessSimulationLoader;
+import msi.gama.headless.job.ExperimentJob;
+import msi.gama.headless.runtime.LocalSimulationRuntime;
+import msi.gama.headless.runtime.RuntimeContext;
+import msi.gama.headless.runtime.SimulationState;
+import msi.gama.headless.runtime.SystemLogger;
+
+/**
+ * Checks the scheduling of the jobs by LocalSimulationRuntime: jobs running the same model one after the other, and the
+ * bound on the number of waiting jobs. Returns the number of failed checks.
+ */
+public class SimulationRuntimeTester extends AbstractModelLibraryRunner {
+
+	private static SimulationRuntimeTester instance;
+
+	private static final String MODEL = "model runtime_test\n" + "global {\n" + "	int counter <- 0;\n"
+			+ "	reflex count {\n" + "		counter <- counter + 1;\n" + "	}\n" + "}\n"
+			+ "experiment run type: gui {}\n";
+
+	private int failed;
+
+	private SimulationRuntimeTester() {}
+
+	@Override
+	public int start(final List<String> args) throws IOException {
+		SystemLogger.activeDisplay();
+		HeadlessSimulationLoader.preloadGAMA();
+		final File dir = Files.createTempDirectory("gama_runtime_test").toFile();
+		if (Globals.OUTPUT_PATH == null) {
+			Globals.OUTPUT_PATH = dir.getAbsolutePath();
+		}
+		failed = 0;
+		try {
+			testSameModelTwice(dir);
+			testWaitingJobs();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			check(false, "Interrupted");
+		}
+		System.out.println(failed == 0 ? "Runtime tests passed" : failed + " runtime tests failed");
+		return failed;
+	}
+
+	private void check(final boolean condition, final String message) {
+		if (!condition) {
+			failed++;
+			System.out.println("FAILED: " + message);
+		}
+	}
+
+	/**
+	 * Two jobs of the same model, run one after the other on a single thread, must both run all their steps
+	 */
+	private void testSameModelTwice(final File dir) throws IOException, InterruptedException {
+		final File model = new File(dir, "runtime_test.gaml");
+		try (FileWriter writer = new FileWriter(model)) {
+			writer.write(MODEL);
+		}
+		final LocalSimulationRuntime runtime = new LocalSimulationRuntime(1);
+		runtime.keepTrace(true);
+		final ExperimentJob first = new ExperimentJob(model.getAbsolutePath(), "first", "run", 10, "", 1);
+		final ExperimentJob second = new ExperimentJob(model.getAbsolutePath(), "second", "run", 10, "", 1);
+		runtime.pushSimulation(first);
+		runtime.pushSimulation(second);
+		waitFor(runtime);
+		runtime.shutdown();
+		check(runtime.getSimulationState("first") == SimulationState.ACHIEVED, "the first job is not achieved");
+		check(runtime.getSimulationState("second") == SimulationState.ACHIEVED, "the second job is not achieved");
+		check(first.getStep() > 0, "the first job has not run");
+		check(second.getStep() == first.getStep(),
+				"the second job ran " + second.getStep() + " steps instead of " + first.getStep());
+	}
+
+	/**
+	 * With one thread and one waiting job, the third job pushed blocks the caller until the first one is done
+	 */
+	private void testWaitingJobs() throws InterruptedException {
+		final LocalSimulationRuntime runtime = new LocalSimulationRuntime(1, 1);
+		final CountDownLatch release = new CountDownLatch(1);
+		runtime.pushSimulation(new BlockingJob("a", release));
+		runtime.pushSimulation(new BlockingJob("b", release));
+		final CountDownLatch pushed = new CountDownLatch(1);
+		final Thread pusher = new Thread(() -> {
+			runtime.pushSimulation(new BlockingJob("c", release));
+			pushed.countDown();
+		});
+		pusher.start();
+		check(!pushed.await(500, TimeUnit.MILLISECONDS), "the third job has been admitted while the queue is full");
+		check(runtime.getSimulationState("a") == SimulationState.STARTED, "the first job is not started");
+		check(runtime.getSimulationState("b") == SimulationState.ENQUEUED, "the second job is not waiting");
+		release.countDown();
+		check(pushed.await(10, TimeUnit.SECONDS), "the third job has not been admitted");
+		waitFor(runtime);
+		runtime.shutdown();
+		check(!runtime.isPerformingSimulation(), "the jobs are not all done");
+	}
+
+	private static void waitFor(final LocalSimulationRuntime runtime) throws InterruptedException {
+		while (runtime.isPerformingSimulation()) {
+			Thread.sleep(100);
+		}
+	}
+
+	/**
+	 * A job which does not load any model and runs until it is released
+	 */
+	private static class BlockingJob extends ExperimentJob {
+
+		private final CountDownLatch release;
+
+		BlockingJob(final String id, final CountDownLatch release) {
+			super("", id, "", 0, "", 0);
+			this.release = release;
+		}
+
+		@Override
+		public void loadAndBuild(final RuntimeContext rtx) {}
+
+		@Override
+		public void playAndDispose() {
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public static SimulationRuntimeTester getInstance() {
+		if (instance == null) {
+			instance = new SimulationRuntimeTester();
+		}
+		return instance;
+	}
+}
@@ -115,4 +115,11 @@ public class HeadlessStatement extends AbstractStatement {
 		return null;
 	}
 
+	@Override
+	public void dispose() {
+		// The jobs already pushed are run until their end
+		processorQueue.shutdown();
+		super.dispose();
+	}
+
 }
@@ -38,7 +38,9 @@ import org.w3c.dom.Document;
 import com.vividsolutions.jts.util.Debug;
 
 import msi.gama.headless.batch.documentation.ModelLibraryGenerator;
+import msi.gama.headless.batch.test.BatchExperimentTester;
 import msi.gama.headless.batch.test.ModelLibraryTester;
+import msi.gama.headless.batch.test.SimulationRuntimeTester;
 import msi.gama.headless.batch.validation.ModelLibraryRunner;
 import msi.gama.headless.batch.validation.ModelLibraryValidator;
 import msi.gama.headless.common.Globals;
@@ -69,6 +71,8 @@ public class Application implements IApplication {
 	final public static String VALIDATE_LIBRARY_PARAMETER = "-validate";
 	final public static String RUN_LIBRARY_PARAMETER = "-runLibrary";
 	final public static String TEST_LIBRARY_PARAMETER = "-test";
+	final public static String TEST_RUNTIME_PARAMETER = "-testRuntime";
+	final public static String TEST_BATCH_PARAMETER = "-testBatch";
 
 	public static boolean headLessSimulation = false;
 	public int numberOfThread = -1;
@@ -93,6 +97,8 @@ public class Application implements IApplication {
 				+ "\n      -p        					-- start pipeline to interact with another framework" + "\n"
 				+ "\n      -validate [directory]    	-- invokes GAMA to validate the models present in the directory passed as argument"
 				+ "\n      -test [directory]		   	-- invokes GAMA to execute the tests present in the directory and display their results"
+				+ "\n      -testRuntime		   		-- invokes GAMA to check the scheduling of the headless jobs"
+				+ "\n      -testBatch		   			-- invokes GAMA to check the evaluation of the solutions by batch experiments"
 				+ "\n      -failed		   				-- only display the failed and aborted test results"
 				+ "\n      -xml	[experimentName] [modelFile.gaml] [xmlOutputFile.xml]	-- only display the failed and aborted test results"
 				+ "\n" + " sh ./gama-headless.sh -xml experimentName gamlFile xmlOutputFile\n"
@@ -203,6 +209,10 @@ public class Application implements IApplication {
 			return ModelLibraryValidator.getInstance().start(args);
 		} else if (args.contains(TEST_LIBRARY_PARAMETER)) {
 			return ModelLibraryTester.getInstance().start(args);
+		} else if (args.contains(TEST_RUNTIME_PARAMETER)) {
+			return SimulationRuntimeTester.getInstance().start(args);
+		} else if (args.contains(TEST_BATCH_PARAMETER)) {
+			return BatchExperimentTester.getInstance().start(args);
 		} else if (args.contains(CHECK_MODEL_PARAMETER)) {
 			ModelLibraryGenerator.start(this, args);
 		} else if (args.contains(BUILD_XML_PARAMETER)) {
@@ -301,6 +311,7 @@ public class Application implements IApplication {
 				e.printStackTrace();
 			}
 		}
+		processorQueue.shutdown();
 	}
 
 	public void runSimulation(final List<String> args) throws FileNotFoundException, InterruptedException {
@@ -346,6 +357,7 @@ public class Application implements IApplication {
 		while (processorQueue.isPerformingSimulation()) {
 			Thread.sleep(1000);
 		}
+		processorQueue.shutdown();
 
 		System.exit(0);
 	}
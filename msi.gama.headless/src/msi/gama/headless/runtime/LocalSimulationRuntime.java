@@ -4,12 +4,17 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import msi.gama.headless.common.Globals;
 import msi.gama.headless.core.GamaHeadlessException;
@@ -20,34 +25,80 @@ import msi.gama.kernel.experiment.IExperimentPlan;
 import msi.gama.kernel.model.IModel;
 import msi.gama.runtime.GAMA;
 import msi.gama.runtime.HeadlessListener;
-import msi.gaml.compilation.GamlCompilationError;
 import msi.gaml.descriptions.IDescription;
 import ummisco.gama.dev.utils.DEBUG;
 
+/**
+ * Runs the experiment jobs of the headless mode on a fixed pool of threads (one per allocated processor). Jobs pushed
+ * while all the threads are busy wait in the queue of the pool; if a maximum number of waiting jobs is given,
+ * pushSimulation() blocks the caller until some room is available. Each job compiles its own model, as the experiment
+ * plans of a model are disposed with the experiment that used them. The threads of the pool are stopped by shutdown().
+ */
 public class LocalSimulationRuntime extends Observable implements SimulationRuntime, RuntimeContext {
 
 	static {
 		DEBUG.ON();
 	}
-	private final Map<String, ExperimentJob> simulations;
-	private final ArrayList<FakeApplication> queue;
-	private final ArrayList<FakeApplication> started;
-	private final HashMap<String, ArrayList<IModel>> loadedModels;
-	private final HashMap<String, ArrayList<IModel>> availableLoadedModels;
+
+	/**
+	 * The life cycle of a job in the runtime, with the dates (in ms) of its submission, start and end
+	 */
+	public static class JobRecord {
+
+		final ExperimentJob job;
+		volatile SimulationState state = SimulationState.ENQUEUED;
+		final long submitted = System.currentTimeMillis();
+		volatile long started, ended;
+
+		JobRecord(final ExperimentJob job) {
+			this.job = job;
+		}
+
+		public ExperimentJob getJob() {
+			return job;
+		}
+
+		public SimulationState getState() {
+			return state;
+		}
+
+		public long getQueueWait() {
+			return (started == 0 ? System.currentTimeMillis() : started) - submitted;
+		}
+
+		public long getRunningTime() {
+			return started == 0 ? 0 : (ended == 0 ? System.currentTimeMillis() : ended) - started;
+		}
+	}
+
+	private final Map<String, JobRecord> simulations = new ConcurrentHashMap<>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final ThreadPoolExecutor executor;
+	private final Semaphore admissions;
 	private final int allocatedProcessor;
-	private boolean isTraceKept;
+	private volatile boolean isTraceKept;
 
 	public LocalSimulationRuntime() {
 		this(UNDEFINED_QUEUE_SIZE);
 	}
 
 	public LocalSimulationRuntime(final int numberOfCoresAsked) {
-		simulations = new HashMap<>();
-		queue = new ArrayList<>();
-		started = new ArrayList<>();
-		loadedModels = new HashMap<>();
-		availableLoadedModels = new HashMap<>();
+		this(numberOfCoresAsked, UNDEFINED_QUEUE_SIZE);
+	}
+
+	/**
+	 * @param numberOfCoresAsked
+	 *            the number of jobs run concurrently (bounded by the number of available processors)
+	 * @param maxWaitingJobs
+	 *            the number of jobs that can wait for a thread before pushSimulation() blocks
+	 */
+	public LocalSimulationRuntime(final int numberOfCoresAsked, final int maxWaitingJobs) {
 		this.allocatedProcessor = getAvailableCores(numberOfCoresAsked);
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(allocatedProcessor, allocatedProcessor, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), r -> new Thread(r, "GAMA headless job " + count.incrementAndGet()));
+		admissions = maxWaitingJobs == UNDEFINED_QUEUE_SIZE ? null
+				: new Semaphore(allocatedProcessor + Math.max(0, maxWaitingJobs));
 	}
 
 	private static int getAvailableCores(final int asked) {
@@ -74,31 +125,31 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 
 	@Override
 	public void pushSimulation(final ExperimentJob s) {
-		simulations.put(s.getExperimentID(), s);
-		final FakeApplication f = new FakeApplication(s, this);
-		if (started.size() < allocatedProcessor) {
-			this.startSimulation(f);
-		} else {
-			queue.add(f);
+		if (admissions != null) {
+			try {
+				admissions.acquire();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
 		}
-	}
-
-	private void startSimulation(final FakeApplication s) {
-		started.add(s);
-		s.start();
+		final JobRecord record = new JobRecord(s);
+		simulations.put(s.getExperimentID(), record);
+		pending.incrementAndGet();
+		executor.execute(new ExperimentRunner(record));
 		this.notifyListener();
 	}
 
-	public void closeSimulation(final FakeApplication s) {
-		started.remove(s);
-		if (queue.size() > 0) {
-			final FakeApplication p = queue.get(0);
-			queue.remove(p);
-			this.startSimulation(p);
-		}
+	void closeSimulation(final JobRecord record) {
+		record.ended = System.currentTimeMillis();
+		record.state = SimulationState.ACHIEVED;
 		if (!this.isTraceKept) {
-			simulations.remove(s.getExperimentJob().getExperimentID());
+			simulations.remove(record.job.getExperimentID());
+		}
+		if (admissions != null) {
+			admissions.release();
 		}
+		pending.decrementAndGet();
 		this.notifyListener();
 	}
 
@@ -109,71 +160,41 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 
 	@Override
 	public SimulationState getSimulationState(final String id) {
-		final ExperimentJob tmp = simulations.get(id);
+		final JobRecord tmp = simulations.get(id);
 		if (tmp == null) { return SimulationState.UNDEFINED; }
-		/**
-		 * TODO AD BUG: ATTENTION !! queue contient des FakeApplication, pas des ExperimentJob
-		 */
-		if (started.contains(tmp)) { return SimulationState.STARTED; }
-		/**
-		 * TODO AD BUG: ATTENTION !! queue contient des FakeApplication, pas des ExperimentJob
-		 */
-		if (queue.contains(tmp)) { return SimulationState.ENQUEUED; }
-		return SimulationState.ACHIEVED;
+		return tmp.state;
 	}
 
-	@Override
-	public boolean isPerformingSimulation() {
-		return started.size() > 0 || queue.size() > 0;
+	/**
+	 * The records of the jobs currently known by the runtime (all the jobs pushed if the trace is kept)
+	 */
+	public Map<String, JobRecord> getJobRecords() {
+		return Collections.unmodifiableMap(simulations);
 	}
 
-	public synchronized void releaseModel(final String key, final IModel mdl) {
-		// DEBUG.LOG("release simulation");
-		// String key = mdl.getFilePath();
-		// availableLoadedModels.get(key).add(mdl);
-		// DEBUG.LOG("remove " + mdl.getFilePath());
-		// lockUnLock(null,key, mdl);
-		// DEBUG.LOG("model released ") ;
+	@Override
+	public boolean isPerformingSimulation() {
+		return pending.get() > 0;
 	}
 
-	// private synchronized IModel lockUnLock(final File fl, final String key, final IModel mdl)
-	// throws IOException, GamaHeadlessException {
-	// IModel mm = null;
-	// if (mdl != null) {
-	// availableLoadedModels.get(key).add(mdl);
-	// mm = mdl;
-	// }
-	// if (fl != null) {
-	// mm = lockModel(fl);
-	// }
-	// return mm;
-	// }
-
-	public synchronized IModel lockModel(final File fl) throws IOException, GamaHeadlessException {
-		IModel mdl;
-		final String key = fl.getAbsolutePath();
-		ArrayList<IModel> arr = availableLoadedModels.get(fl.getAbsolutePath());
-		// DEBUG.OUT(fl.getAbsolutePath());
-		if (arr == null) {
-			arr = new ArrayList<>();
-			availableLoadedModels.put(key, arr);
-			loadedModels.put(key, new ArrayList<IModel>());
-		}
-		if (arr.size() == 0) {
-			mdl = HeadlessSimulationLoader.loadModel(fl);
-			loadedModels.get(key).add(mdl);
-		} else {
-			mdl = arr.get(0);
-			arr.remove(0);
-		}
-		return mdl;
+	/**
+	 * Shuts the pool of threads down once all the jobs pushed are done
+	 */
+	@Override
+	public void shutdown() {
+		executor.shutdown();
 	}
 
+	/**
+	 * Returns a model compiled for the job. The models are not reused by the next jobs, as disposing of an experiment
+	 * also disposes of the experiment plan owned by its model
+	 */
 	@Override
-	public synchronized IModel loadModel(final File fl) throws IOException, GamaHeadlessException {
-		// return lockUnLock( fl,null, null) ; //lockModel(fl); //
-		final List<GamlCompilationError> errors = new ArrayList<>();
-		return HeadlessSimulationLoader.loadModel(fl, errors); // lockModel(fl); //mdl.c;
+	public IModel loadModel(final File fl) throws IOException, GamaHeadlessException {
+		// The compilation of models is not thread safe
+		synchronized (this) {
+			return HeadlessSimulationLoader.loadModel(fl);
+		}
 	}
 
 	@Override
@@ -184,22 +205,20 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 		return expp;
 	}
 
-	class FakeApplication extends Thread {// implements Runnable {
-
-		private ExperimentJob si = null;
-		private LocalSimulationRuntime runtime = null;
+	class ExperimentRunner implements Runnable {
 
-		ExperimentJob getExperimentJob() {
-			return si;
-		}
+		private final JobRecord record;
 
-		public FakeApplication(final ExperimentJob sim, final LocalSimulationRuntime rn) {
-			si = sim;
-			this.runtime = rn;
+		ExperimentRunner(final JobRecord record) {
+			this.record = record;
 		}
 
 		@Override
 		public void run() {
+			record.started = System.currentTimeMillis();
+			record.state = SimulationState.STARTED;
+			notifyListener();
+			final ExperimentJob si = record.job;
 			boolean noErrorFound = true;
 			try {
 				final BufferedWriter file = new BufferedWriter(new FileWriter(Globals.OUTPUT_PATH + "/"
@@ -211,47 +230,31 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 			}
 			try {
 				if (noErrorFound) {
-					si.loadAndBuild(this.runtime);
+					si.loadAndBuild(LocalSimulationRuntime.this);
 				}
-
-			} catch (final InstantiationException e) {
-				noErrorFound = false;
-				System.out.println(e.toString());
-				DEBUG.ERR(e);
-			} catch (final IllegalAccessException e) {
+			} catch (final InstantiationException | IllegalAccessException | ClassNotFoundException | IOException
+					| GamaHeadlessException e) {
 				noErrorFound = false;
 				System.out.println(e.toString());
 				DEBUG.ERR(e);
-			} catch (final ClassNotFoundException e) {
-				noErrorFound = false;
-				System.out.println(e.toString());
-				DEBUG.ERR(e);
-			} catch (final IOException e) {
-				noErrorFound = false;
-				System.out.println(e.toString());
-				DEBUG.ERR(e);
-			} catch (final GamaHeadlessException e) {
-				noErrorFound = false;
-				// e.printStackTrace();
-				System.out.println(e.toString());
-				DEBUG.ERR(e);
 			}
-			if (noErrorFound) {
-				si.playAndDispose();
+			try {
+				if (noErrorFound) {
+					si.playAndDispose();
+				}
+			} finally {
+				((HeadlessListener) GAMA.getHeadlessGui()).leaveJob();
+				closeSimulation(record);
 			}
-			((HeadlessListener) GAMA.getHeadlessGui()).leaveJob();
-			runtime.closeSimulation(this);
-			runtime.releaseModel(si.getSourcePath(), si.getSimulation().getModel());
-
 		}
 
 	}
 
 	@Override
 	public HashMap<String, Double> getSimulationState() {
-
 		final HashMap<String, Double> res = new HashMap<>();
-		for (final ExperimentJob exp : simulations.values()) {
+		for (final JobRecord record : simulations.values()) {
+			final ExperimentJob exp = record.job;
 			res.put(exp.getExperimentID(), new Double(exp.getStep() / exp.getFinalStep()));
 		}
 		return res;
@@ -20,4 +20,9 @@ public interface SimulationRuntime {
 
 	public boolean isPerformingSimulation();
 
+	/**
+	 * Stops accepting new jobs and releases the threads of the runtime once the jobs pushed are done
+	 */
+	public void shutdown();
+
 }
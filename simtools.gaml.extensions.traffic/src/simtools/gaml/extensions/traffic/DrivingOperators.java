@@ -25,6 +25,7 @@ import msi.gama.util.GamaListFactory;
 import msi.gama.util.IContainer;
 import msi.gama.util.IList;
 import msi.gama.util.graph.IGraph;
+import msi.gaml.types.IType;
 import msi.gaml.types.Types;
 
 @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -53,6 +54,7 @@ public class DrivingOperators {
 							}
 							agentsOn.add(lisSg);
 						}
+						ag.setAttribute(RoadSkill.OCCUPANCY, null);
 					}
 					ag.setAttribute(RoadSkill.AGENTS, GamaListFactory.create(Types.NO_TYPE));
 				}
@@ -62,4 +64,13 @@ public class DrivingOperators {
 		return graph;
 	}
 
+	@operator(value = "drive_all", content_type = IType.AGENT, concept = { IConcept.TRANSPORT })
+	@doc(value = "moves all the drivers of the list given as operand toward their final target (as the drive action), in two phases whose result does not depend on the number of threads: first, each driver chooses its speed (speed_choice action) and its lane without modifying the roads, in parallel if the species of the drivers is parallel; then the drivers move one after the other, road by road and from the first to the last driver of each road, on the lane they have chosen unless the drivers moved before block it. Returns the drivers that have reached their final target. The speed_choice actions of the drivers must only read the state of the drivers and of the roads, and the drivers must not call the drive action themselves", examples = {
+			@example(value = "list<agent> arrived <- drive_all(car);  --:  moves all the cars and returns those which have reached their final target", isExecutable = false) }, see = {
+					"as_driving_graph" })
+	@no_test
+	public static IList<IAgent> driveAll(final IScope scope, final IContainer<?, ? extends IAgent> drivers) {
+		return DrivingStep.drive(scope, drivers);
+	}
+
 }
@@ -15,6 +15,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.DoubleSupplier;
 
 import com.vividsolutions.jts.geom.Coordinate;
 
@@ -472,6 +473,16 @@ public class DrivingSkill extends MovingSkill {
 
 	public Double primAdvancedFollow(final IScope scope, final IAgent agent, final double s, final double t,
 			final IPath path, final GamaPoint target) throws GamaRuntimeException {
+		return primAdvancedFollow(scope, agent, s, t, path, target, null, scope.getRandom()::next);
+	}
+
+	/**
+	 * Moves the agent along the path. If a lane has been proposed for its current segment (by senseLane()), it is
+	 * taken unless it has become blocked. The random choices of lanes are drawn from the random generator given
+	 */
+	Double primAdvancedFollow(final IScope scope, final IAgent agent, final double s, final double t,
+			final IPath path, final GamaPoint target, final LaneChoice proposal, final DoubleSupplier random)
+			throws GamaRuntimeException {
 
 		final double safety_distance_coeff = agent.hasAttribute(SAFETY_DISTANCE_COEFF) ? getSafetyDistanceCoeff(agent)
 				: getSecurityDistanceCoeff(agent);
@@ -490,7 +501,8 @@ public class DrivingSkill extends MovingSkill {
 		double tps = 0;
 		// if ( onLinkedRoad ) {
 		tps = t * moveToNextLocAlongPathOSM(scope, agent, path, target, maxDist, safety_distance_coeff, currentLane,
-				currentRoad, linkedRoad, probaChangeLaneUp, probaChangeLaneDown, probaProbaUseLinkedRoad, rightSide);
+				currentRoad, linkedRoad, probaChangeLaneUp, probaChangeLaneDown, probaProbaUseLinkedRoad, rightSide,
+				proposal, random);
 		// }
 		// else {
 		// tps =
@@ -935,6 +947,33 @@ public class DrivingSkill extends MovingSkill {
 					value = "action to drive toward the final target",
 					examples = { @example ("do drive;") }))
 	public void primDrive(final IScope scope) throws GamaRuntimeException {
+		drive(scope, getCurrentAgent(scope), null, null, scope.getRandom()::next);
+	}
+
+	/**
+	 * Chooses the speed of the driver on its current road (with its "speed_choice" action), without moving it. Used by
+	 * the first phase of DrivingStep: must be called with the driver as the agent of the scope. Returns null if the
+	 * driver has nowhere to go
+	 */
+	Double senseSpeed(final IScope scope, final IAgent agent) throws GamaRuntimeException {
+		if (agent == null || agent.dead() || getFinalTarget(agent) == null) { return null; }
+		final IAgent road = getCurrentRoad(agent);
+		if (road == null) { return null; }
+		final IStatement.WithArgs actionSC = agent.getSpecies().getAction("speed_choice");
+		final Arguments argsSC = new Arguments();
+		argsSC.put("new_road", ConstantExpressionDescription.create(road));
+		actionSC.setRuntimeArgs(scope, argsSC);
+		return (Double) actionSC.executeOn(scope);
+	}
+
+	/**
+	 * Drives the agent toward its final target. If the speed and the lane on the current road have already been chosen
+	 * (by senseSpeed() and senseLane()), they are used instead of calling the "speed_choice" action and choosing the
+	 * lane again for this road. The random choices of lanes are drawn from the random generator given. Must be called
+	 * with the driver as the agent of the scope
+	 */
+	void drive(final IScope scope, final IAgent agent, final Double chosenSpeed, final LaneChoice chosenLane,
+			final DoubleSupplier random) throws GamaRuntimeException {
 
 		/*
 		 * nbIt++; if (nbIt % 10000 == 0) { DEBUG.OUT("tot: " + tot + " t1: " + t1 + " t2: " + t2 + " t3: " + t3 +
@@ -948,7 +987,6 @@ public class DrivingSkill extends MovingSkill {
 		 * long t = java.lang.System.currentTimeMillis();
 		 */
 
-		final IAgent agent = getCurrentAgent(scope);
 		if (agent == null || agent.dead()) { return; }
 		final GamaPoint finalTarget = getFinalTarget(agent);
 		if (finalTarget == null) { return; }
@@ -969,6 +1007,8 @@ public class DrivingSkill extends MovingSkill {
 		double y = loc.getY();
 
 		double remainingTime = 1.0;
+		Double plannedSpeed = chosenSpeed;
+		LaneChoice plannedLane = chosenLane;
 		// t1 += java.lang.System.currentTimeMillis() - t;
 		while (remainingTime > 0.0) {
 			// t = java.lang.System.currentTimeMillis();
@@ -977,13 +1017,21 @@ public class DrivingSkill extends MovingSkill {
 			final GamaPoint target = getCurrentTarget(agent);
 			final double xt = target.getX();
 			final double yt = target.getY();
-			argsSC.put("new_road", ConstantExpressionDescription.create(road));
-			actionSC.setRuntimeArgs(scope, argsSC);
-			final double speed = (Double) actionSC.executeOn(scope);
+			final double speed;
+			if (plannedSpeed != null) {
+				speed = plannedSpeed;
+				plannedSpeed = null;
+			} else {
+				argsSC.put("new_road", ConstantExpressionDescription.create(road));
+				actionSC.setRuntimeArgs(scope, argsSC);
+				speed = (Double) actionSC.executeOn(scope);
+			}
 			setSpeed(agent, speed);
 			// t2 += java.lang.System.currentTimeMillis() - t;
 			// t = java.lang.System.currentTimeMillis();
-			remainingTime = primAdvancedFollow(scope, agent, speed, remainingTime, path, target);
+			remainingTime =
+					primAdvancedFollow(scope, agent, speed, remainingTime, path, target, plannedLane, random);
+			plannedLane = null;
 			loc = agent.getLocation();
 			x = loc.getX();
 			y = loc.getY();
@@ -1246,11 +1294,11 @@ public class DrivingSkill extends MovingSkill {
 	}
 
 	private double avoidCollision(final IScope scope, final IAgent agent, final double distance,
-			final double security_distance, final GamaPoint currentLocation, final GamaPoint target, final int lane,
-			final int segmentIndex, final boolean onLinkedRoad, final IAgent currentRoad, final boolean changeLane) {
+			final double distanceToGoal, final double security_distance, final GamaPoint currentLocation,
+			final GamaPoint target, final int lane, final int segmentIndex, final boolean onLinkedRoad,
+			final IAgent currentRoad, final boolean changeLane) {
 		// long t = java.lang.System.currentTimeMillis();
 		// DEBUG.OUT(agent + " agents: " + agents);
-		final double distanceToGoal = getDistanceToGoal(agent);
 		final boolean nextSegment = distanceToGoal < distance;
 		final double min_safety_distance =
 				agent.hasAttribute(MIN_SAFETY_DISTANCE) ? getMinSafetyDistance(agent) : getMinSecurityDistance(agent);
@@ -1261,8 +1309,9 @@ public class DrivingSkill extends MovingSkill {
 		final IList aglanes = (IList) ((IList) currentRoad.getAttribute(RoadSkill.AGENTS_ON)).get(lane);
 		final Collection<IAgent> agents = (IList<IAgent>) aglanes.get(segment);
 		final boolean moreSegment = !onLinkedRoad && segmentIndex <= aglanes.size() - 2;
+		final LaneOccupancy occupancy = RoadSkill.getOccupancy(currentRoad);
 
-		final boolean contains = agents.contains(agent);
+		final boolean contains = occupancy.contains(agent, lane, segment);
 		final GamaPoint targetLoc = new GamaPoint(currentRoad.getInnerGeometry().getCoordinates()[segment + 1]);
 		// DEBUG.OUT("agent:" + agent + " theRoad: " +
 		// theRoad + " segment: " + segment + " targetLoc: " + targetLoc);
@@ -1298,13 +1347,16 @@ public class DrivingSkill extends MovingSkill {
 		// getDistanceToGoal(agent);
 		IAgent nextAgent = null;
 		double minDiff = Double.MAX_VALUE;
+		// Only the closest drivers behind and ahead of the agent can be the next agent or be too close to it
+		final IAgent[] closest =
+				occupancy.neighbours(lane, segment, occupancy.positionOf(segment, distanceToGoal), agent);
 		// t343+= java.lang.System.currentTimeMillis() - t;
 		// t = java.lang.System.currentTimeMillis();
 
 		if (onLinkedRoad) {
 			if (onLinkedRoad && nextSegment) { return 0; }
 
-			for (final IAgent ag : agents) {
+			for (final IAgent ag : closest) {
 				// if (changeLane && onLinkedRoad)
 				// DEBUG.OUT("ag: " + ag );
 
@@ -1329,7 +1381,7 @@ public class DrivingSkill extends MovingSkill {
 			}
 		} else {
 
-			for (final IAgent ag : agents) {
+			for (final IAgent ag : closest) {
 				// DEBUG.OUT("ag: " + ag + " currentRoad:" +
 				// currentRoad);
 				if (ag == agent || ag == null) {
@@ -1405,212 +1457,223 @@ public class DrivingSkill extends MovingSkill {
 	}
 
 	private void changeLanetoReverse(final IScope scope, final IAgent agent, final int previousLane, final int newLane,
-			final int segment, final List currentAgentOn, final List newAgentOn) {
+			final int segment, final IAgent currentRoad, final IAgent newRoad) {
 		final int oldIndex = getSegmentIndex(agent);
-		final List agPrevLane = (List) currentAgentOn.get(previousLane);
-		final int newIndexInv = agPrevLane.size() - segment - 1;
+		final int newIndexInv = nbSegments(currentRoad, previousLane) - segment - 1;
 		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) agPrevLane.get(oldIndex)).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(newIndexInv)).add(agent);
+		RoadSkill.moveDriver(currentRoad, previousLane, oldIndex, newRoad, newLane, newIndexInv, agent);
 		agent.setAttribute(SEGMENT_INDEX, segment);
 	}
 
 	private void changeLanefromReverse(final IScope scope, final IAgent agent, final int previousLane,
-			final int newLane, final int segment, final List currentAgentOn, final List newAgentOn) {
+			final int newLane, final int segment, final IAgent currentRoad, final IAgent newRoad) {
 		final int oldIndex = getSegmentIndex(agent);
-		final List agPrevLane = (List) currentAgentOn.get(previousLane);
-		final int oldIndexInv = agPrevLane.size() - oldIndex - 1;
+		final int oldIndexInv = nbSegments(currentRoad, previousLane) - oldIndex - 1;
 		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) agPrevLane.get(oldIndexInv)).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(segment)).add(agent);
+		RoadSkill.moveDriver(currentRoad, previousLane, oldIndexInv, newRoad, newLane, segment, agent);
 		agent.setAttribute(SEGMENT_INDEX, segment);
 	}
 
 	private void changeLaneReverse(final IScope scope, final IAgent agent, final int previousLane, final int newLane,
-			final int segment, final List currentAgentOn, final List newAgentOn) {
+			final int segment, final IAgent currentRoad, final IAgent newRoad) {
 		final int oldIndex = getSegmentIndex(agent);
-		final List agPrevLane = (List) currentAgentOn.get(previousLane);
-		final int oldIndexInv = agPrevLane.size() - oldIndex - 1;
-		final int newIndexInv = agPrevLane.size() - segment - 1;
+		final int nbSegments = nbSegments(currentRoad, previousLane);
+		final int oldIndexInv = nbSegments - oldIndex - 1;
+		final int newIndexInv = nbSegments - segment - 1;
 		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) agPrevLane.get(oldIndexInv)).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(newIndexInv)).add(agent);
+		RoadSkill.moveDriver(currentRoad, previousLane, oldIndexInv, newRoad, newLane, newIndexInv, agent);
 		agent.setAttribute(SEGMENT_INDEX, segment);
 	}
 
 	private void changeLane(final IScope scope, final IAgent agent, final int previousLane, final int newLane,
-			final int segment, final List currentAgentOn, final List newAgentOn) {
+			final int segment, final IAgent currentRoad, final IAgent newRoad) {
 		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) ((List) currentAgentOn.get(previousLane)).get(getSegmentIndex(agent))).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(segment)).add(agent);
+		RoadSkill.moveDriver(currentRoad, previousLane, getSegmentIndex(agent), newRoad, newLane, segment, agent);
 		agent.setAttribute(SEGMENT_INDEX, segment);
 	}
 
-	private double avoidCollisionLinkedRoad(final IScope scope, final IAgent agent, final double distance,
-			final double security_distance, final GamaPoint currentLocation, final GamaPoint target, final int lane,
-			final int segment, final IAgent currentRoad, final IAgent linkedRoad, final Double probaChangeLaneUp,
-			final Double probaChangeLaneDown, final Double probaUseLinkedRoad, final Boolean rightSide) {
+	private int nbSegments(final IAgent road, final int lane) {
+		return ((List) RoadSkill.getAgentsOn(road).get(lane)).size();
+	}
+
+	/**
+	 * The lane taken by a driver on the current segment of its road (on the linked road or not) and the distance it
+	 * can travel on it
+	 */
+	static class LaneChoice {
+
+		final int lane;
+		final boolean onLinkedRoad;
+		final double distance;
+
+		LaneChoice(final int lane, final boolean onLinkedRoad, final double distance) {
+			this.lane = lane;
+			this.onLinkedRoad = onLinkedRoad;
+			this.distance = distance;
+		}
+	}
+
+	/**
+	 * Chooses the lane of a driver which is on the linked road of its current road. Only reads the state of the drivers
+	 * and of the roads: the choice is applied by applyLaneChoice()
+	 */
+	private LaneChoice chooseLaneOnLinkedRoad(final IScope scope, final DoubleSupplier random, final IAgent agent,
+			final double distance, final double distanceToGoal, final double security_distance,
+			final GamaPoint currentLocation, final GamaPoint target, final int lane, final int segment,
+			final IAgent currentRoad, final IAgent linkedRoad, final Double probaChangeLaneUp,
+			final Double probaChangeLaneDown) {
 		double distMax = 0;
-		int newLane = lane;
 		final int nbLinkedLanes = (Integer) linkedRoad.getAttribute(RoadSkill.LANES);
 		final int nbLanes = (Integer) currentRoad.getAttribute(RoadSkill.LANES);
-		final List agentOnCurrentRoad = (List) currentRoad.getAttribute(RoadSkill.AGENTS_ON);
-		final List agentOnLinkedRoad = (List) linkedRoad.getAttribute(RoadSkill.AGENTS_ON);
-		List newAgentOn = agentOnLinkedRoad;
 		boolean onLinkedRoad = true;
 
-		if (scope.getRandom().next() < probaChangeLaneDown) {
+		if (random.getAsDouble() < probaChangeLaneDown) {
 			if (lane < nbLinkedLanes - 1) {
 
-				final double val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target,
-						lane + 1, segment, true, currentRoad, true);
-				if (val == distance) {
-					newLane = lane + 1;
-					changeLaneReverse(scope, agent, lane, lane, segment, agentOnLinkedRoad, agentOnLinkedRoad);
-					return distance;
-				}
+				final double val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance,
+						currentLocation, target, lane + 1, segment, true, currentRoad, true);
+				if (val == distance) { return new LaneChoice(lane, true, distance); }
 				if (val > distMax && val > 0) {
-					newLane = lane + 1;
 					distMax = val;
 				}
 			} else {
-				final double val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target,
-						nbLanes - 1, segment, false, currentRoad, true);
-				if (val == distance) {
-					newLane = nbLanes - 1;
-					setOnLinkedRoad(agent, false);
-					changeLanefromReverse(scope, agent, lane, newLane, segment, agentOnLinkedRoad, agentOnCurrentRoad);
-					return distance;
-				}
+				final double val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance,
+						currentLocation, target, nbLanes - 1, segment, false, currentRoad, true);
+				if (val == distance) { return new LaneChoice(nbLanes - 1, false, distance); }
 				if (val > distMax && val > 0) {
-					newLane = nbLanes - 1;
-					newAgentOn = agentOnCurrentRoad;
 					distMax = val;
 					onLinkedRoad = false;
 				}
 			}
 		}
-		double val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, lane, segment,
-				true, currentRoad, false);
-		if (val == distance) {
-			changeLaneReverse(scope, agent, lane, lane, segment, agentOnLinkedRoad, agentOnLinkedRoad);
-
-			return distance;
-		}
+		double val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance, currentLocation, target,
+				lane, segment, true, currentRoad, false);
+		if (val == distance) { return new LaneChoice(lane, true, distance); }
 		if (val >= distMax) {
 			distMax = val;
-			newLane = lane;
-			newAgentOn = agentOnLinkedRoad;
 			onLinkedRoad = true;
 		}
-		if (lane > 0 && scope.getRandom().next() < probaChangeLaneUp) {
-			val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, lane - 1, segment,
-					true, currentRoad, true);
+		if (lane > 0 && random.getAsDouble() < probaChangeLaneUp) {
+			val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance, currentLocation, target,
+					lane - 1, segment, true, currentRoad, true);
 			if (val > distMax && val > 0) {
 				distMax = val;
-				newLane = lane - 1;
 				onLinkedRoad = true;
-				newAgentOn = agentOnLinkedRoad;
 			}
 		}
-
-		// if ( lane != newLane ) {
-		if (!onLinkedRoad) {
-			setOnLinkedRoad(agent, false);
-			changeLanefromReverse(scope, agent, lane, lane, segment, agentOnLinkedRoad, newAgentOn);
-		} else {
-			changeLaneReverse(scope, agent, lane, lane, segment, agentOnLinkedRoad, newAgentOn);
-		}
-
-		// }
-
-		return distMax;
+		return new LaneChoice(lane, onLinkedRoad, distMax);
 	}
-	
 
-	private double avoidCollision(final IScope scope, final IAgent agent, final double distance,
-			final double security_distance, final GamaPoint currentLocation, final GamaPoint target, final int lane,
-			final int segment, final IAgent currentRoad, final IAgent linkedRoad, final Double probaChangeLaneUp,
-			final Double probaChangeLaneDown, final Double probaUseLinkedRoad, final Boolean rightSide) {
+	/**
+	 * Chooses the lane of a driver which is on its current road (or on its linked road if it is allowed to use it).
+	 * Only reads the state of the drivers and of the roads: the choice is applied by applyLaneChoice()
+	 */
+	private LaneChoice chooseLane(final IScope scope, final DoubleSupplier random, final IAgent agent,
+			final double distance, final double distanceToGoal, final double security_distance,
+			final GamaPoint currentLocation, final GamaPoint target, final int lane, final int segment,
+			final IAgent currentRoad, final IAgent linkedRoad, final Double probaChangeLaneUp,
+			final Double probaChangeLaneDown, final Double probaUseLinkedRoad) {
 
 		double distMax = 0;
 		int newLane = lane;
 		final double vl = getVehiculeLength(agent) / 2.0;
-		final List agentOn = (List) currentRoad.getAttribute(RoadSkill.AGENTS_ON);
-		List newAgentOn = agentOn;
-		// boolean changeLane = false;
-
-		if (lane > 0 && scope.getRandom().next() < probaChangeLaneDown) {
-			final double val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target,
-					lane - 1, segment, false, currentRoad, true);
-			if (val == distance) {
-				newLane = lane - 1;
-				changeLane(scope, agent, lane, newLane, segment, agentOn, agentOn);
 
-				return distance;
-			}
+		if (lane > 0 && random.getAsDouble() < probaChangeLaneDown) {
+			final double val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance,
+					currentLocation, target, lane - 1, segment, false, currentRoad, true);
+			if (val == distance) { return new LaneChoice(lane - 1, false, distance); }
 			if (val > distMax && val > vl) {
 				newLane = lane - 1;
-				// changeLane = true;
 				distMax = val;
 			}
 		}
 
-		double val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, lane, segment,
-				false, currentRoad, false);
-		if (val == distance) {
-			changeLane(scope, agent, lane, lane, segment, agentOn, agentOn);
-			return distance;
-		}
+		double val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance, currentLocation, target,
+				lane, segment, false, currentRoad, false);
+		if (val == distance) { return new LaneChoice(lane, false, distance); }
 		if (val >= distMax) {
 			distMax = val;
 			newLane = lane;
-			// changeLane = false;
 		}
 		if (lane < (Integer) currentRoad.getAttribute(RoadSkill.LANES) - 1
-				&& scope.getRandom().next() < probaChangeLaneUp) {
-			val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, lane + 1, segment,
-					false, currentRoad, true);
+				&& random.getAsDouble() < probaChangeLaneUp) {
+			val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance, currentLocation, target,
+					lane + 1, segment, false, currentRoad, true);
 			if (val > distMax && val > vl) {
 				distMax = val;
 				newLane = lane + 1;
-				// changeLane = true;
 			}
 		}
 		boolean onLinkedRoad = false;
-		if (linkedRoad != null && scope.getRandom().next() < probaUseLinkedRoad) {
+		if (linkedRoad != null && random.getAsDouble() < probaUseLinkedRoad) {
 			final int nbLinkedLanes = (Integer) linkedRoad.getAttribute(RoadSkill.LANES);
-			val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, nbLinkedLanes - 1,
-					segment, true, currentRoad, true);
+			val = avoidCollision(scope, agent, distance, distanceToGoal, security_distance, currentLocation, target,
+					nbLinkedLanes - 1, segment, true, currentRoad, true);
 
 			if (val > distMax && val > vl) {
 				distMax = val;
 				newLane = nbLinkedLanes - 1;
-				newAgentOn = (List) linkedRoad.getAttribute(RoadSkill.AGENTS_ON);
-				setOnLinkedRoad(agent, true);
-				// changeLane = true;
 				onLinkedRoad = true;
 			}
 		}
-		// if ( changeLane ) {
-		if (onLinkedRoad) {
-			changeLanetoReverse(scope, agent, lane, newLane, segment, agentOn, newAgentOn);
+		return new LaneChoice(newLane, onLinkedRoad, distMax);
+	}
+
+	/**
+	 * Moves the driver, which was on the lane (of the linked road if wasOnLinkedRoad is true), to the lane chosen
+	 */
+	private void applyLaneChoice(final IScope scope, final IAgent agent, final LaneChoice choice, final int lane,
+			final int segment, final IAgent currentRoad, final IAgent linkedRoad, final boolean wasOnLinkedRoad) {
+		if (wasOnLinkedRoad) {
+			if (choice.onLinkedRoad) {
+				changeLaneReverse(scope, agent, lane, choice.lane, segment, linkedRoad, linkedRoad);
+			} else {
+				setOnLinkedRoad(agent, false);
+				changeLanefromReverse(scope, agent, lane, choice.lane, segment, linkedRoad, currentRoad);
+			}
+		} else if (choice.onLinkedRoad) {
+			setOnLinkedRoad(agent, true);
+			changeLanetoReverse(scope, agent, lane, choice.lane, segment, currentRoad, linkedRoad);
 		} else {
-			changeLane(scope, agent, lane, newLane, segment, agentOn, newAgentOn);
+			changeLane(scope, agent, lane, choice.lane, segment, currentRoad, currentRoad);
 		}
-		// }
-		return distMax;
+	}
+
+	/**
+	 * Chooses the lane of the driver on the current segment of its road, for the speed it has chosen, without moving
+	 * it. Used by the first phase of DrivingStep, while the drivers and the index of the roads are not modified, with
+	 * the random generator of the driver. Returns null if the driver cannot move
+	 */
+	LaneChoice senseLane(final IScope scope, final IAgent agent, final double speed, final DoubleSupplier random) {
+		final IAgent currentRoad = getCurrentRoad(agent);
+		final Coordinate coords[] = currentRoad.getInnerGeometry().getCoordinates();
+		final int indexSegment = getSegmentIndex(agent);
+		if (indexSegment >= coords.length - 1) { return null; }
+		final double distance = computeDistance(scope, agent, speed, 1.0);
+		if (distance == 0) { return null; }
+		final double security_distance = agent.hasAttribute(SAFETY_DISTANCE_COEFF) ? getSafetyDistanceCoeff(agent)
+				: getSecurityDistanceCoeff(agent);
+		final IAgent linkedRoad = (IAgent) currentRoad.getAttribute(RoadSkill.LINKED_ROAD);
+		final GamaPoint currentLocation = (GamaPoint) agent.getLocation();
+		final double distanceToGoal = new GamaPoint(coords[indexSegment + 1]).euclidianDistanceTo(currentLocation);
+		final GamaPoint target = getCurrentTarget(agent);
+		if (getOnLinkedRoad(agent)) {
+			return chooseLaneOnLinkedRoad(scope, random, agent, distance, distanceToGoal, security_distance,
+					currentLocation, target, getCurrentLane(agent), indexSegment, currentRoad, linkedRoad,
+					getProbaLaneChangeUp(agent), getProbaLaneChangeDown(agent));
+		}
+		return chooseLane(scope, random, agent, distance, distanceToGoal, security_distance, currentLocation, target,
+				getCurrentLane(agent), indexSegment, currentRoad, linkedRoad, getProbaLaneChangeUp(agent),
+				getProbaLaneChangeDown(agent), getProbaUseLinkedRoad(agent));
 	}
 
 	private double moveToNextLocAlongPathOSM(final IScope scope, final IAgent agent, final IPath path,
 			final GamaPoint target, final double _distance, final double security_distance, final int lane,
 			final IAgent currentRoad, final IAgent linkedRoad, final Double probaChangeLaneUp,
-			final Double probaChangeLaneDown, final Double probaUseLinkedRoad, final Boolean rightSide) {
+			final Double probaChangeLaneDown, final Double probaUseLinkedRoad, final Boolean rightSide,
+			final LaneChoice proposal, final DoubleSupplier random) {
 		int currentLane = lane;
+		LaneChoice proposed = proposal;
 		// long t = java.lang.System.currentTimeMillis();
 		GamaPoint currentLocation = (GamaPoint) agent.getLocation().copy(scope);
 		final GamaPoint falseTarget = target == null ? new GamaPoint(
@@ -1655,15 +1718,29 @@ public class DrivingSkill extends MovingSkill {
 			setDistanceToGoal(agent, dist);
 			// t33 += java.lang.System.currentTimeMillis() - t;
 			// t = java.lang.System.currentTimeMillis();
-			if (onLinkedRoad) {
-				distance = avoidCollisionLinkedRoad(scope, agent, distance, security_distance, currentLocation,
-						falseTarget, currentLane, indexSegment, currentRoad, linkedRoad, probaChangeLaneUp,
-						probaChangeLaneDown, probaUseLinkedRoad, rightSide);
-			} else {
-				distance = avoidCollision(scope, agent, distance, security_distance, currentLocation, falseTarget,
-						currentLane, indexSegment, currentRoad, linkedRoad, probaChangeLaneUp, probaChangeLaneDown,
-						probaUseLinkedRoad, rightSide);
+			LaneChoice choice = null;
+			if (proposed != null) {
+				// The lane chosen during the sense phase of DrivingStep is kept, with the distance now available on
+				// it, unless the drivers which have moved since block the lane change
+				final boolean change = proposed.lane != currentLane || proposed.onLinkedRoad != onLinkedRoad;
+				final double val = avoidCollision(scope, agent, distance, dist, security_distance, currentLocation,
+						falseTarget, proposed.lane, indexSegment, proposed.onLinkedRoad, currentRoad, change);
+				if (!change || val > 0) {
+					choice = new LaneChoice(proposed.lane, proposed.onLinkedRoad, Math.max(0d, val));
+				}
+				proposed = null;
+			}
+			if (choice == null) {
+				choice = onLinkedRoad
+						? chooseLaneOnLinkedRoad(scope, random, agent, distance, dist, security_distance,
+								currentLocation, falseTarget, currentLane, indexSegment, currentRoad, linkedRoad,
+								probaChangeLaneUp, probaChangeLaneDown)
+						: chooseLane(scope, random, agent, distance, dist, security_distance, currentLocation,
+								falseTarget, currentLane, indexSegment, currentRoad, linkedRoad, probaChangeLaneUp,
+								probaChangeLaneDown, probaUseLinkedRoad);
 			}
+			applyLaneChoice(scope, agent, choice, currentLane, indexSegment, currentRoad, linkedRoad, onLinkedRoad);
+			distance = choice.distance;
 			// t34 += java.lang.System.currentTimeMillis() - t;
 			// t = java.lang.System.currentTimeMillis();
 			currentLane = (Integer) agent.getAttribute(CURRENT_LANE);
@@ -1694,6 +1771,7 @@ public class DrivingSkill extends MovingSkill {
 			setDistanceToGoal(agent, pt.distance(currentLocation));
 		}
 		setLocation(agent, currentLocation);
+		RoadSkill.updateDriver(getOnLinkedRoad(agent) ? linkedRoad : currentRoad, agent);
 		if (path != null) {
 			path.setSource(currentLocation.copy(scope));
 		}
@@ -0,0 +1,193 @@
+/*******************************************************************************************************
+ *
+ * simtools.gaml.extensions.traffic.DrivingStep.java, in plugin simtools.gaml.extensions.traffic, is part of the
+ * source code of the GAMA modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package simtools.gaml.extensions.traffic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.concurrent.GamaExecutorService.Caller;
+import msi.gama.runtime.concurrent.ParallelAgentRunner;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IContainer;
+import msi.gama.util.IList;
+import msi.gaml.species.AbstractSpecies;
+import msi.gaml.statements.IExecutable;
+import msi.gaml.types.Types;
+import simtools.gaml.extensions.traffic.DrivingSkill.LaneChoice;
+
+/**
+ * A step of a set of drivers in two phases, whose result does not depend on the number of threads used:
+ * <ul>
+ * <li>sense: each driver chooses its speed on its current road (with its "speed_choice" action) and the lane it wants
+ * to take on its current segment, against the index of the drivers on the lanes as it was at the beginning of the
+ * step, without modifying the drivers nor the roads. This phase is run in parallel when the species of the drivers is
+ * (facet "parallel" or preferences), and the "speed_choice" actions must then only read the state of the drivers and
+ * of the roads;</li>
+ * <li>commit: the drivers move one after the other, with the speed and the lane they have chosen, in an order which
+ * only depends on the state of the drivers at the beginning of the step. A lane change which has been blocked by the
+ * drivers moved before is dropped and the lane is chosen again. All the modifications of the roads (positions, lane
+ * changes, registration on the next roads) happen in this phase, as in the "drive" action.</li>
+ * </ul>
+ * The drivers are committed road by road (in the order of the species and indexes of the roads) and, on each road,
+ * from the closest to its end to the farthest, so that the leader of a driver has already moved when the driver moves.
+ * The random choices of lanes of each driver are drawn from its own generator (see DriverRandom), seeded from the seed
+ * of the simulation, the cycle and the index of the driver, so that they do not depend on the order of the sense
+ * tasks.
+ */
+public class DrivingStep {
+
+	/**
+	 * A SplitMix64 generator, cheap enough to be created for each driver at each step. Its state is derived from the
+	 * seed of the simulation, the cycle and the index of the driver by mixing them one after the other, so that close
+	 * cycles or indexes give unrelated sequences
+	 */
+	static class DriverRandom implements DoubleSupplier {
+
+		private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+		private long state;
+
+		DriverRandom(final long seed, final int cycle, final int index) {
+			state = mix(mix(mix(seed) + cycle) + index);
+		}
+
+		private static long mix(final long value) {
+			long z = value + GOLDEN_GAMMA;
+			z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+			return z ^ z >>> 31;
+		}
+
+		/**
+		 * Returns a double uniformly drawn in [0, 1)
+		 */
+		@Override
+		public double getAsDouble() {
+			state += GOLDEN_GAMMA;
+			return (mix(state) >>> 11) * 0x1.0p-53;
+		}
+	}
+
+	/**
+	 * The state of a driver at the beginning of the step and the speed and the lane it has chosen
+	 */
+	static class Plan {
+
+		final IAgent driver;
+		final DrivingSkill skill;
+		final int rank;
+		final DoubleSupplier random;
+		IAgent road;
+		double position;
+		Double speed;
+		LaneChoice lane;
+
+		Plan(final IAgent driver, final DrivingSkill skill, final int rank, final DoubleSupplier random) {
+			this.driver = driver;
+			this.skill = skill;
+			this.rank = rank;
+			this.random = random;
+		}
+	}
+
+	private static final Comparator<Plan> ORDER = Comparator.<Plan, String> comparing(p -> p.road.getSpeciesName())
+			.thenComparingInt(p -> p.road.getIndex())
+			.thenComparing((p1, p2) -> Double.compare(p2.position, p1.position))
+			.thenComparingInt(p -> p.rank);
+
+	/**
+	 * Moves the drivers toward their final target and returns the ones which have reached it during the step
+	 */
+	public static IList<IAgent> drive(final IScope scope, final IContainer<?, ? extends IAgent> drivers)
+			throws GamaRuntimeException {
+		final IList<IAgent> arrived = GamaListFactory.create(Types.AGENT);
+		final Double simulationSeed = scope.getRandom().getSeed();
+		final long seed = simulationSeed == null ? 0L : Double.doubleToLongBits(simulationSeed);
+		final int cycle = scope.getClock().getCycle();
+		final List<Plan> plans = new ArrayList<>();
+		final Map<IAgent, Plan> plansOfDrivers = new HashMap<>();
+		for (final IAgent driver : drivers.iterable(scope)) {
+			if (driver == null || driver.dead()) {
+				continue;
+			}
+			final DrivingSkill skill =
+					(DrivingSkill) ((AbstractSpecies) driver.getSpecies()).getSkillInstanceFor(DrivingSkill.class);
+			if (skill == null) {
+				throw GamaRuntimeException.error(driver + " does not have the driving skill", scope);
+			}
+			if (skill.getFinalTarget(driver) == null || skill.getCurrentRoad(driver) == null) {
+				continue;
+			}
+			final Plan plan = new Plan(driver, skill, plans.size(), new DriverRandom(seed, cycle, driver.getIndex()));
+			plans.add(plan);
+			plansOfDrivers.put(driver, plan);
+		}
+		if (plans.isEmpty()) { return arrived; }
+
+		// The indexes of the roads are built (if needed) before the sense phase, which only reads them
+		for (final Plan plan : plans) {
+			final IAgent current = plan.skill.getCurrentRoad(plan.driver);
+			plan.road = plan.skill.getOnLinkedRoad(plan.driver) ? RoadSkill.getLinkedRoad(current) : current;
+			plan.position = RoadSkill.getOccupancy(plan.road).position(plan.driver);
+			RoadSkill.getOccupancy(current);
+		}
+
+		// Sense: each task only writes the plan of its driver
+		final IExecutable sense = s -> {
+			final Plan plan = plansOfDrivers.get(s.getAgent());
+			plan.speed = plan.skill.senseSpeed(s, plan.driver);
+			if (plan.speed != null) {
+				plan.lane = plan.skill.senseLane(s, plan.driver, plan.speed, plan.random);
+			}
+			return plan.speed;
+		};
+		final IAgent[] array = new IAgent[plans.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = plans.get(i).driver;
+		}
+		final int threshold = GamaExecutorService.getParallelism(scope,
+				plans.get(0).driver.getSpecies().getConcurrency(), Caller.SPECIES);
+		if (threshold > 0) {
+			ParallelAgentRunner.execute(scope, sense, array, threshold);
+		} else {
+			for (final IAgent driver : array) {
+				if (!scope.execute(sense, driver, null).passed()) { return arrived; }
+			}
+		}
+
+		// Commit
+		plans.sort(ORDER);
+		for (final Plan plan : plans) {
+			if (plan.speed == null || plan.driver.dead()) {
+				continue;
+			}
+			final IExecutable commit = s -> {
+				plan.skill.drive(s, plan.driver, plan.speed, plan.lane, plan.random);
+				return null;
+			};
+			if (!scope.execute(commit, plan.driver, null).passed()) {
+				break;
+			}
+			if (!plan.driver.dead() && plan.skill.getFinalTarget(plan.driver) == null) {
+				arrived.add(plan.driver);
+			}
+		}
+		return arrived;
+	}
+
+}
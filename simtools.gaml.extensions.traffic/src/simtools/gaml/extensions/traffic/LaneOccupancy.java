@@ -0,0 +1,235 @@
+/*******************************************************************************************************
+ *
+ * simtools.gaml.extensions.traffic.LaneOccupancy.java, in plugin simtools.gaml.extensions.traffic, is part of the
+ * source code of the GAMA modeling and simulation platform (v. 1.8)
+ *
+ * (c) 2007-2018 UMI 209 UMMISCO IRD/SU & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package simtools.gaml.extensions.traffic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import msi.gama.common.geometry.GeometryUtils;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+
+/**
+ * An index of the drivers registered on the lanes of a road (in its "agents_on" lists), which keeps the drivers of
+ * each lane sorted by their distance along the road. It allows the driving skill to find the drivers closest to a
+ * position in a lane (its leader and its follower) without scanning the lists, and to update the position of a driver
+ * without removing it from and adding it to the lists.
+ * <p>
+ * The distance of a driver registered on a segment of the road is computed from the end of the segment (the length
+ * of the road up to the end of the segment minus the distance of the driver to it), as the distances to goal used by
+ * the skill. The index is built from the "agents_on" lists the first time it is needed, and kept up to date by
+ * RoadSkill, through which the lists must be modified. It is dropped when the number of lanes changes.
+ */
+@SuppressWarnings ({ "unchecked", "rawtypes" })
+public class LaneOccupancy {
+
+	/**
+	 * A driver in a lane
+	 */
+	static class Slot implements Comparable<Slot> {
+
+		final IAgent driver;
+		final long order;
+		int lane, segment;
+		double position;
+
+		Slot(final IAgent driver, final long order, final double position) {
+			this.driver = driver;
+			this.order = order;
+			this.position = position;
+		}
+
+		@Override
+		public int compareTo(final Slot o) {
+			final int c = Double.compare(position, o.position);
+			return c != 0 ? c : Long.compare(order, o.order);
+		}
+	}
+
+	private final GamaPoint[] points;
+	// The length of the road up to each of its points
+	private final double[] lengths;
+	private final List<TreeSet<Slot>> lanes = new ArrayList<>();
+	private final Map<IAgent, Slot> slots = new HashMap<>();
+	private long order;
+
+	LaneOccupancy(final IAgent road) {
+		points = GeometryUtils.getPointsOf(road);
+		lengths = new double[points.length];
+		for (int i = 1; i < points.length; i++) {
+			lengths[i] = lengths[i - 1] + points[i - 1].distance(points[i]);
+		}
+		final List agentsOn = RoadSkill.getAgentsOn(road);
+		if (agentsOn == null) { return; }
+		for (int lane = 0; lane < agentsOn.size(); lane++) {
+			final List segments = (List) agentsOn.get(lane);
+			for (int segment = 0; segment < segments.size(); segment++) {
+				for (final Object driver : (List) segments.get(segment)) {
+					add((IAgent) driver, lane, segment);
+				}
+			}
+		}
+	}
+
+	private TreeSet<Slot> lane(final int lane) {
+		while (lanes.size() <= lane) {
+			lanes.add(new TreeSet<>());
+		}
+		return lanes.get(lane);
+	}
+
+	/**
+	 * The distance along the road of a driver located on the segment
+	 */
+	double positionOf(final int segment, final GamaPoint location) {
+		final int end = Math.min(segment + 1, points.length - 1);
+		return lengths[end] - location.distance(points[end]);
+	}
+
+	/**
+	 * The distance along the road of a driver whose distance to the end of the segment is known
+	 */
+	double positionOf(final int segment, final double distanceToEnd) {
+		return lengths[Math.min(segment + 1, points.length - 1)] - distanceToEnd;
+	}
+
+	void add(final IAgent driver, final int lane, final int segment) {
+		remove(driver);
+		final Slot slot = new Slot(driver, order++, positionOf(segment, driver.getLocation().toGamaPoint()));
+		slot.lane = lane;
+		slot.segment = segment;
+		lane(lane).add(slot);
+		slots.put(driver, slot);
+	}
+
+	void remove(final IAgent driver) {
+		final Slot slot = slots.remove(driver);
+		if (slot != null) {
+			lanes.get(slot.lane).remove(slot);
+		}
+	}
+
+	/**
+	 * Recomputes the position of the driver from its location, which has changed
+	 */
+	void update(final IAgent driver) {
+		final Slot slot = slots.get(driver);
+		if (slot == null) { return; }
+		final TreeSet<Slot> lane = lanes.get(slot.lane);
+		lane.remove(slot);
+		slot.position = positionOf(slot.segment, driver.getLocation().toGamaPoint());
+		lane.add(slot);
+	}
+
+	/**
+	 * The distance along the road of the driver, as indexed (NaN if it is not registered on the road)
+	 */
+	double position(final IAgent driver) {
+		final Slot slot = slots.get(driver);
+		return slot == null ? Double.NaN : slot.position;
+	}
+
+	/**
+	 * Whether the driver is registered on the segment of the lane
+	 */
+	boolean contains(final IAgent driver, final int lane, final int segment) {
+		final Slot slot = slots.get(driver);
+		return slot != null && slot.lane == lane && slot.segment == segment;
+	}
+
+	/**
+	 * The driver just behind (or at) the position and the driver just ahead of it, among the drivers registered on
+	 * the segment of the lane other than the excluded one (null if there is none)
+	 */
+	IAgent[] neighbours(final int lane, final int segment, final double position, final IAgent excluded) {
+		final IAgent[] result = new IAgent[2];
+		if (lane >= lanes.size()) { return result; }
+		final TreeSet<Slot> slotsOfLane = lanes.get(lane);
+		final Slot probe = new Slot(null, Long.MAX_VALUE, position);
+		for (final Slot slot : slotsOfLane.headSet(probe, true).descendingSet()) {
+			if (slot.segment < segment) {
+				break;
+			}
+			if (slot.driver != excluded && slot.segment == segment) {
+				result[0] = slot.driver;
+				break;
+			}
+		}
+		for (final Slot slot : slotsOfLane.tailSet(probe, false)) {
+			if (slot.segment > segment) {
+				break;
+			}
+			if (slot.driver != excluded && slot.segment == segment) {
+				result[1] = slot.driver;
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Compares the index with the "agents_on" lists of the road and with the locations of the drivers, and returns the
+	 * inconsistencies found (an empty list if there is none)
+	 */
+	List<String> check(final IAgent road) {
+		final List<String> errors = new ArrayList<>();
+		final List agentsOn = RoadSkill.getAgentsOn(road);
+		int count = 0;
+		if (agentsOn != null) {
+			for (int lane = 0; lane < agentsOn.size(); lane++) {
+				final List segments = (List) agentsOn.get(lane);
+				for (int segment = 0; segment < segments.size(); segment++) {
+					for (final Object o : (List) segments.get(segment)) {
+						final IAgent driver = (IAgent) o;
+						count++;
+						final Slot slot = slots.get(driver);
+						if (slot == null) {
+							errors.add(driver + " is on lane " + lane + ", segment " + segment + " but not indexed");
+						} else if (slot.lane != lane || slot.segment != segment) {
+							errors.add(driver + " is on lane " + lane + ", segment " + segment + " but indexed on lane "
+									+ slot.lane + ", segment " + slot.segment);
+						}
+					}
+				}
+			}
+		}
+		if (count != slots.size()) {
+			errors.add(count + " drivers on the road but " + slots.size() + " indexed");
+		}
+		int size = 0;
+		for (int lane = 0; lane < lanes.size(); lane++) {
+			Slot previous = null;
+			for (final Slot slot : lanes.get(lane)) {
+				size++;
+				if (slot.lane != lane || slots.get(slot.driver) != slot) {
+					errors.add(slot.driver + " is misplaced in the index of lane " + lane);
+				}
+				final double position = positionOf(slot.segment, slot.driver.getLocation().toGamaPoint());
+				if (Math.abs(position - slot.position) > 1e-6) {
+					errors.add(slot.driver + " is indexed at " + slot.position + " but located at " + position);
+				}
+				if (previous != null && previous.segment > slot.segment) {
+					errors.add(slot.driver + " is ahead of " + previous.driver + " on lane " + lane
+							+ " but on a previous segment");
+				}
+				previous = slot;
+			}
+		}
+		if (size != slots.size()) {
+			errors.add(size + " drivers in the lanes of the index but " + slots.size() + " registered");
+		}
+		return errors;
+	}
+
+}
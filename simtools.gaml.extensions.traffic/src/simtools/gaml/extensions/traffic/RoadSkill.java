@@ -82,14 +82,19 @@ public class RoadSkill extends Skill {
 	public final static String LANES = "lanes";
 	public final static String MAXSPEED = "maxspeed";
 	public final static String LINKED_ROAD = "linked_road";
+	// Not a variable: the LaneOccupancy index of the drivers on the lanes
+	final static String OCCUPANCY = "lane_occupancy";
 
 	@getter (AGENTS_ON)
 	public static List getAgentsOn(final IAgent agent) {
 		return (List) agent.getAttribute(AGENTS_ON);
 	}
 	
+	@setter (AGENTS_ON)
 	public static void setAgentsOn(final IAgent agent, final List agents) {
 		agent.setAttribute(AGENTS_ON, agents);
+		// The index of the drivers is rebuilt from the new lists when it is needed
+		agent.setAttribute(OCCUPANCY, null);
 	}
 	
 
@@ -152,6 +157,62 @@ public class RoadSkill extends Skill {
 		agent.setAttribute(LINKED_ROAD, rd);
 	}
 
+	/**
+	 * Returns the index of the drivers on the lanes of the road, built from the "agents_on" lists if necessary
+	 */
+	public static LaneOccupancy getOccupancy(final IAgent road) {
+		LaneOccupancy occupancy = (LaneOccupancy) road.getAttribute(OCCUPANCY);
+		if (occupancy == null) {
+			occupancy = new LaneOccupancy(road);
+			road.setAttribute(OCCUPANCY, occupancy);
+		}
+		return occupancy;
+	}
+
+	/**
+	 * Adds the driver to the segment of the lane of the road. The "agents_on" lists must only be modified through
+	 * addDriver(), removeDriver() and moveDriver(), which keep the index of the road up to date
+	 */
+	static void addDriver(final IAgent road, final int lane, final int segment, final IAgent driver) {
+		((List) ((List) getAgentsOn(road).get(lane)).get(segment)).add(driver);
+		final LaneOccupancy occupancy = (LaneOccupancy) road.getAttribute(OCCUPANCY);
+		if (occupancy != null) {
+			occupancy.add(driver, lane, segment);
+		}
+	}
+
+	static void removeDriver(final IAgent road, final int lane, final int segment, final IAgent driver) {
+		((List) ((List) getAgentsOn(road).get(lane)).get(segment)).remove(driver);
+		final LaneOccupancy occupancy = (LaneOccupancy) road.getAttribute(OCCUPANCY);
+		if (occupancy != null) {
+			occupancy.remove(driver);
+		}
+	}
+
+	/**
+	 * Moves the driver from a segment of a lane to another one (possibly on another road). If it stays on the same
+	 * segment, only its position in the index is updated
+	 */
+	static void moveDriver(final IAgent road, final int lane, final int segment, final IAgent newRoad,
+			final int newLane, final int newSegment, final IAgent driver) {
+		if (road == newRoad && lane == newLane && segment == newSegment) {
+			updateDriver(road, driver);
+			return;
+		}
+		removeDriver(road, lane, segment, driver);
+		addDriver(newRoad, newLane, newSegment, driver);
+	}
+
+	/**
+	 * Updates the position of the driver in the index of the road, after it has moved
+	 */
+	static void updateDriver(final IAgent road, final IAgent driver) {
+		final LaneOccupancy occupancy = (LaneOccupancy) road.getAttribute(OCCUPANCY);
+		if (occupancy != null) {
+			occupancy.update(driver);
+		}
+	}
+
 	public static void register(final IAgent road, final IAgent driver, final int currentLane)
 			throws GamaRuntimeException {
 		int lane = currentLane;
@@ -171,13 +232,13 @@ public class RoadSkill extends Skill {
 					if (segmentIndex == null) {
 						segmentIndex = getSegmentIndex(lr, driver);
 					}
-					((List) agsLane.get(agsLane.size() - 1 - segmentIndex)).remove(driver);
+					removeDriver(lr, pl, agsLane.size() - 1 - segmentIndex, driver);
 					getAgents(cr).remove(driver);
 				} else {
 					if (segmentIndex == null) {
 						segmentIndex = getSegmentIndex(cr, driver);
 					}
-					((List) ((List) getAgentsOn(cr).get(pl)).get(segmentIndex)).remove(driver);
+					removeDriver(cr, pl, segmentIndex, driver);
 					getAgents(cr).remove(driver);
 				}
 			}
@@ -193,14 +254,14 @@ public class RoadSkill extends Skill {
 
 				final List agentsOn = (List) linkedRoad.getAttribute(AGENTS_ON);
 				final List ags = (List) agentsOn.get(lane);
-				((List) ags.get(ags.size() - 1)).add(driver);
+				addDriver(linkedRoad, lane, ags.size() - 1, driver);
 				getAgents(road).add(driver);
 			} else {
 				final List agentsOn = (List) road.getAttribute(AGENTS_ON);
 				lane = nbLanes == 0 ? Math.min(lane,  ((List) agentsOn.get(lane)).size() - 1) : Math.min(lane, nbLanes - 1);
 				driver.setAttribute(DrivingSkill.ON_LINKED_ROAD, false);
 				indexSegment = getSegmentIndex(road, driver);
-				((List) ((List) agentsOn.get(lane)).get(indexSegment)).add(driver);
+				addDriver(road, lane, indexSegment, driver);
 				getAgents(road).add(driver);
 			}
 			driver.setAttribute(DrivingSkill.DISTANCE_TO_GOAL,
@@ -299,6 +360,19 @@ public class RoadSkill extends Skill {
 			}
 			setAgentsOn(road, newAgentsOn);		
 		}
+		// The index is rebuilt with the new lanes
+		road.setAttribute(OCCUPANCY, null);
+	}
+
+	@action (
+			name = "check_occupancy",
+			doc = @doc (
+					value = "checks that the index of the drivers on the lanes of the road is consistent with the agents_on lists and with the locations of the drivers",
+					returns = "the inconsistencies found (an empty list if there is none)",
+					examples = { @example ("list<string> errors <- check_occupancy();") }))
+	public IList<String> primCheckOccupancy(final IScope scope) throws GamaRuntimeException {
+		final IAgent road = getCurrentAgent(scope);
+		return GamaListFactory.create(scope, Types.STRING, getOccupancy(road).check(road));
 	}
 
 	@action (
@@ -336,13 +410,13 @@ public class RoadSkill extends Skill {
 					if (segmentIndex == null) {
 						segmentIndex = getSegmentIndex(lr, driver);
 					}
-					((List) agsLane.get(agsLane.size() - 1 - segmentIndex)).remove(driver);
+					removeDriver(lr, pl, agsLane.size() - 1 - segmentIndex, driver);
 					getAgents(cr).remove(driver);
 				} else {
 					if (segmentIndex == null) {
 						segmentIndex = getSegmentIndex(cr, driver);
 					}
-					((List) ((List) getAgentsOn(cr).get(pl)).get(segmentIndex)).remove(driver);
+					removeDriver(cr, pl, segmentIndex, driver);
 					getAgents(cr).remove(driver);
 				}
 			}
@@ -356,14 +430,13 @@ public class RoadSkill extends Skill {
 
 				final List agentsOn = (List) linkedRoad.getAttribute(AGENTS_ON);
 				final List ags = (List) agentsOn.get(lane);
-				((List) ags.get(ags.size() - 1)).add(driver);
+				addDriver(linkedRoad, lane, ags.size() - 1, driver);
 				getAgents(road).add(driver);
 			} else {
 				lane = Math.min(lane, nbLanes - 1);
 				driver.setAttribute(DrivingSkill.ON_LINKED_ROAD, false);
 				indexSegment = getSegmentIndex(road, driver);
-				final List agentsOn = (List) road.getAttribute(AGENTS_ON);
-				((List) ((List) agentsOn.get(lane)).get(indexSegment)).add(driver);
+				addDriver(road, lane, indexSegment, driver);
 				getAgents(road).add(driver);
 			}
 			// DEBUG.LOG("register " + driver + " lane : " + lane);
@@ -420,13 +493,13 @@ public class RoadSkill extends Skill {
 					if (segmentIndex == null) {
 						segmentIndex = getSegmentIndex(lr, driver);
 					}
-					((List) agsLane.get(agsLane.size() - 1 - segmentIndex)).remove(driver);
+					removeDriver(lr, pl, agsLane.size() - 1 - segmentIndex, driver);
 					getAgents(cr).remove(driver);
 				} else {
 					if (segmentIndex == null) {
 						segmentIndex = getSegmentIndex(cr, driver);
 					}
-					((List) ((List) getAgentsOn(cr).get(pl)).get(segmentIndex)).remove(driver);
+					removeDriver(cr, pl, segmentIndex, driver);
 					getAgents(cr).remove(driver);
 				}
 			}